@@ -15,4 +15,5 @@ public interface SheetDTO extends DTO {
     int getColWidth();
     Map<String, RangeDTOImpl>  getRanges();
     Map<String, CellDTOImpl> getCells();
+    void applyDelta(SheetDeltaDTO delta);
 }
@@ -0,0 +1,12 @@
+package dto.api;
+
+import dto.impl.CellDTOImpl;
+
+import java.util.Map;
+
+public interface SheetDeltaDTO extends DTO {
+    String getName();
+    int getBaseVersion();
+    int getVersion();
+    Map<String, CellDTOImpl> getCells();
+}
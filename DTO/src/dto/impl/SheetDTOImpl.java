@@ -1,13 +1,14 @@
 package dto.impl;
 
 import dto.api.SheetDTO;
+import dto.api.SheetDeltaDTO;
 
 import java.util.Map;
 
 public class SheetDTOImpl implements SheetDTO {
     private final String name;
     private final String owner;
-    private final int version;
+    private int version;
     private final int rows;
     private final int cols;
     private final int rowHeight;
@@ -72,4 +73,14 @@ public class SheetDTOImpl implements SheetDTO {
     public Map<String, CellDTOImpl> getCells() {
         return cells;
     }
+
+    // Brings this sheet from the delta's base version to its version
+    @Override
+    public void applyDelta(SheetDeltaDTO delta) {
+        if (delta.getBaseVersion() != version) {
+            throw new IllegalArgumentException("Delta from version " + delta.getBaseVersion() + " cannot be applied to version " + version + ".");
+        }
+        cells.putAll(delta.getCells());
+        version = delta.getVersion();
+    }
 }
@@ -0,0 +1,41 @@
+package dto.impl;
+
+import dto.api.SheetDeltaDTO;
+
+import java.util.Map;
+
+// The difference a cell update made to a sheet: only the cells that changed, since an update never changes the ranges
+public class SheetDeltaDTOImpl implements SheetDeltaDTO {
+    private final String name;
+    private final int baseVersion;
+    private final int version;
+    private final Map<String, CellDTOImpl> cells;
+
+    public SheetDeltaDTOImpl(String name, int baseVersion, int version, Map<String, CellDTOImpl> cells) {
+        this.name = name;
+        this.baseVersion = baseVersion;
+        this.version = version;
+        this.cells = cells;
+    }
+
+    // Getters
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public int getBaseVersion() {
+        return baseVersion;
+    }
+
+    @Override
+    public int getVersion() {
+        return version;
+    }
+
+    @Override
+    public Map<String, CellDTOImpl> getCells() {
+        return cells;
+    }
+}
@@ -0,0 +1,45 @@
+#!/usr/bin/env bash
+# Runs the engine benchmarks with JMH, entirely offline.
+#
+# Needs, besides a JDK 21:
+#   - the engine and DTO modules built into out/production (Build > Build Project in IntelliJ)
+#   - the JMH jars in lib/jmh: jmh-core-1.37.jar, jmh-generator-annprocess-1.37.jar,
+#     jopt-simple-5.0.4.jar and commons-math3-3.6.1.jar
+#
+# Arguments are passed on to JMH, for example:
+#   benchmarks/run-benchmarks.sh RecalculationBenchmark -p rows=1000 -p depth=10
+# Results go to benchmarks/results/latest.json; compare them with benchmarks/baseline/baseline.json.
+# With --baseline as the first argument they become that baseline instead. Record it on the machine the results
+# will be compared on, with nothing else running and without overriding the warmup, measurement or fork settings.
+set -euo pipefail
+shopt -s nullglob
+
+cd "$(dirname "$0")/.."
+RESULTS=benchmarks/results/latest.json
+if [ "${1:-}" = "--baseline" ]; then
+  shift
+  RESULTS=benchmarks/baseline/baseline.json
+fi
+BIN="${JAVA_HOME:+$JAVA_HOME/bin/}"
+JMH_JARS=(lib/jmh/*.jar)
+if [ ${#JMH_JARS[@]} -eq 0 ]; then
+  echo "No JMH jars found in lib/jmh." >&2
+  exit 1
+fi
+for module in engine DTO; do
+  if [ ! -d "out/production/$module" ]; then
+    echo "out/production/$module is missing; build the project first." >&2
+    exit 1
+  fi
+done
+
+JMH_CP=$(IFS=:; echo "${JMH_JARS[*]}")
+LIB_JARS=(lib/*.jar)
+APP_CP="out/production/engine:out/production/DTO${LIB_JARS:+:$(IFS=:; echo "${LIB_JARS[*]}")}"
+OUT=out/production/benchmarks
+
+rm -rf "$OUT"
+mkdir -p "$OUT" "$(dirname "$RESULTS")"
+# the annotation processor writes the generated benchmark classes and their list next to the compiled ones
+"${BIN}javac" -encoding UTF-8 -d "$OUT" -cp "$APP_CP:$JMH_CP" -processorpath "$JMH_CP" $(find benchmarks/src -name '*.java')
+"${BIN}java" -cp "$OUT:$APP_CP:$JMH_CP" org.openjdk.jmh.Main -rf json -rff "$RESULTS" "$@"
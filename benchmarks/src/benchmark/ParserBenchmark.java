@@ -0,0 +1,64 @@
+package benchmark;
+
+import expression.api.Expression;
+import expression.parser.FunctionParser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/*
+Formula parsing, both through the parsed-expression cache and past it.
+The uncached case cycles through more distinct formulas than the cache holds, so every parse misses it.
+depth is how deeply the formula nests.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ParserBenchmark {
+
+    // more than the parser caches
+    private static final int DISTINCT_FORMULAS = 20_000;
+
+    @Param({"1", "10"})
+    public int depth;
+
+    private String[] formulas;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void buildFormulas() {
+        formulas = new String[DISTINCT_FORMULAS];
+        for (int i = 0; i < DISTINCT_FORMULAS; i++) {
+            String formula = "{REF,A" + (i + 1) + "}";
+            for (int level = 1; level < depth; level++) {
+                formula = (level % 2 == 0 ? "{TIMES," : "{PLUS,") + formula + "," + level + "}";
+            }
+            formulas[i] = "{PLUS," + formula + "," + i + "}";
+        }
+    }
+
+    @Benchmark
+    public Expression parseCached() {
+        return FunctionParser.parseExpression(formulas[0]);
+    }
+
+    @Benchmark
+    public Expression parseUncached() {
+        next = (next + 1) % DISTINCT_FORMULAS;
+        return FunctionParser.parseExpression(formulas[next]);
+    }
+}
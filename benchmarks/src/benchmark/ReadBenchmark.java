@@ -0,0 +1,60 @@
+package benchmark;
+
+import dto.api.SheetDTO;
+import engine.DTOFactory.DTOFactory;
+import engine.DTOFactory.DTOFactoryImpl;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import sheet.api.Sheet;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/*
+The read paths that build a whole sheet for the client: its DTO, a sort of the whole sheet by column A,
+and a filter of the whole sheet keeping the rows whose B is one of two of its ten values.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ReadBenchmark {
+
+    private final DTOFactory dtoFactory = new DTOFactoryImpl();
+    private String wholeSheet;
+    private List<String> filterValues;
+
+    @Setup(Level.Trial)
+    public void prepare(SheetShape shape) {
+        wholeSheet = SyntheticSheets.wholeSheet(shape.rows, shape.depth);
+        // taken from the sheet itself, so they match how its values are shown
+        List<String> values = shape.sheet.getUniqueValuesInRangeColumn(wholeSheet, "B");
+        filterValues = values.subList(0, Math.min(2, values.size()));
+    }
+
+    @Benchmark
+    public SheetDTO createSheetDTO(SheetShape shape) {
+        return dtoFactory.createSheetDTO(shape.sheet);
+    }
+
+    @Benchmark
+    public Sheet sortSheet(SheetShape shape) {
+        return shape.sheet.sortSheet(wholeSheet, new String[]{"A"});
+    }
+
+    @Benchmark
+    public Sheet filterSheetByValues(SheetShape shape) {
+        return shape.sheet.filterSheetByValues(wholeSheet, "B", filterValues);
+    }
+}
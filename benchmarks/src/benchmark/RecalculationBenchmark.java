@@ -0,0 +1,62 @@
+package benchmark;
+
+import cell.api.Cell;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import sheet.api.Sheet;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/*
+The write path of a cell edit: the copy-on-write update with its recalculation, the copy it starts from,
+and the full calculation order a loaded sheet is calculated in.
+Every update is applied to the same loaded sheet, which updates never change, so each measures one edit.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class RecalculationBenchmark {
+
+    // cycled through so every edit changes the cell's value
+    private static final String[] VALUES = {"3", "5", "8", "13", "21", "34", "55", "89"};
+
+    private int edit;
+
+    // A1 starts a formula chain and is in the range every sum covers
+    @Benchmark
+    public Sheet updateRootCell(SheetShape shape) {
+        return shape.sheet.updateCellValueAndCalculate("A1", nextValue(), SyntheticSheets.OWNER);
+    }
+
+    // B of the last row is read by no formula
+    @Benchmark
+    public Sheet updateLeafCell(SheetShape shape) {
+        return shape.sheet.updateCellValueAndCalculate(SyntheticSheets.cellId(shape.rows, 2), nextValue(), SyntheticSheets.OWNER);
+    }
+
+    @Benchmark
+    public Sheet copySheet(SheetShape shape) {
+        return shape.sheet.copySheet();
+    }
+
+    @Benchmark
+    public List<Cell> orderCellsForCalculation(SheetShape shape) {
+        return shape.sheet.orderCellsForCalculation();
+    }
+
+    private String nextValue() {
+        edit = (edit + 1) % VALUES.length;
+        return VALUES[edit];
+    }
+}
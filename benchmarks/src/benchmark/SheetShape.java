@@ -0,0 +1,33 @@
+package benchmark;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import sheet.api.Sheet;
+
+/*
+A synthetic sheet shared by the benchmarks, loaded once per trial.
+rows is the sheet's size, depth the length of the formula chain in every row, and fanOut the number of cells
+in the range every tenth row sums; see SyntheticSheets for the layout.
+ */
+@State(Scope.Benchmark)
+public class SheetShape {
+
+    @Param({"100", "1000", "5000"})
+    public int rows;
+
+    @Param({"1", "10"})
+    public int depth;
+
+    @Param({"10", "100"})
+    public int fanOut;
+
+    public Sheet sheet;
+
+    @Setup(Level.Trial)
+    public void load() {
+        sheet = SyntheticSheets.load("bench", rows, depth, fanOut);
+    }
+}
@@ -0,0 +1,116 @@
+package benchmark;
+
+import engine.file.FileLoader;
+import sheet.api.Sheet;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+/*
+Builds sheets of a chosen shape as STL XML, so benchmarks and load tests load them the way an upload is loaded.
+Every row holds:
+  A - a number, different in every row
+  B - one of ten numbers, for filtering
+  the next `depth` columns - a chain of formulas, each adding 1 to the cell on its left, starting from A
+  the last column - in every tenth row, the sum of the range "fan", which covers the first `fanOut` cells of column A
+So an edit of A1 recalculates a chain of `depth` formulas and every range sum, and an edit of B in the last row
+recalculates nothing else.
+ */
+public final class SyntheticSheets {
+
+    public static final String OWNER = "owner";
+    public static final String FAN_RANGE = "fan";
+    public static final int FILTER_VALUES = 10;
+    // every this many rows sum the fan range
+    private static final int SUM_ROW_INTERVAL = 10;
+
+    private SyntheticSheets() {
+    }
+
+    public static int columns(int depth) {
+        return depth + 3;
+    }
+
+    // The cell id of the given row and 1-based column, such as "AB12"
+    public static String cellId(int row, int column) {
+        return columnName(column) + row;
+    }
+
+    // The whole sheet, from its first cell to its last, as a range such as "A1..K1000"
+    public static String wholeSheet(int rows, int depth) {
+        return "A1.." + cellId(rows, columns(depth));
+    }
+
+    public static String columnName(int column) {
+        StringBuilder name = new StringBuilder();
+        for (int remaining = column; remaining > 0; remaining = (remaining - 1) / 26) {
+            name.insert(0, (char) ('A' + (remaining - 1) % 26));
+        }
+        return name.toString();
+    }
+
+    public static Sheet load(String name, int rows, int depth, int fanOut) {
+        byte[] xml = xml(name, rows, depth, fanOut).getBytes(StandardCharsets.UTF_8);
+        try {
+            Sheet sheet = new FileLoader(rows, columns(depth)).loadSheetFromXML(new ByteArrayInputStream(xml), OWNER);
+            // as the engine does when a file is loaded
+            sheet.setSheetVersion(1);
+            sheet.setOwner(OWNER);
+            return sheet;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public static String xml(String name, int rows, int depth, int fanOut) {
+        StringWriter out = new StringWriter();
+        try {
+            writeXml(out, name, rows, depth, fanOut);
+        } catch (IOException e) {
+            // writing to memory does not fail
+            throw new UncheckedIOException(e);
+        }
+        return out.toString();
+    }
+
+    // Writes the sheet a row at a time, so a sheet of any size can be written straight to a file
+    public static void writeXml(Writer out, String name, int rows, int depth, int fanOut) throws IOException {
+        if (rows < 1 || depth < 0 || fanOut < 1) {
+            throw new IllegalArgumentException("A sheet needs at least one row and a range of at least one cell. Provided: "
+                    + rows + " rows, depth " + depth + ", fan-out " + fanOut + ".");
+        }
+        int columns = columns(depth);
+        out.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+        out.write("<STL-Sheet name=\"" + name + "\">\n");
+        out.write("  <STL-Layout rows=\"" + rows + "\" columns=\"" + columns + "\">\n");
+        out.write("    <STL-Size rows-height-units=\"2\" column-width-units=\"10\"/>\n");
+        out.write("  </STL-Layout>\n");
+        out.write("  <STL-Ranges>\n");
+        out.write("    <STL-Range name=\"" + FAN_RANGE + "\"><STL-Boundaries from=\"A1\" to=\"A" + Math.min(fanOut, rows) + "\"/></STL-Range>\n");
+        out.write("  </STL-Ranges>\n");
+        out.write("  <STL-Cells>\n");
+        for (int row = 1; row <= rows; row++) {
+            writeCell(out, row, 1, String.valueOf(row * 37 % 1000));
+            writeCell(out, row, 2, String.valueOf(row % FILTER_VALUES));
+            for (int link = 1; link <= depth; link++) {
+                int column = 2 + link;
+                String left = cellId(row, link == 1 ? 1 : column - 1);
+                writeCell(out, row, column, "{PLUS,{REF," + left + "},1}");
+            }
+            if (row % SUM_ROW_INTERVAL == 0) {
+                writeCell(out, row, columns, "{SUM," + FAN_RANGE + "}");
+            }
+        }
+        out.write("  </STL-Cells>\n");
+        out.write("</STL-Sheet>\n");
+    }
+
+    private static void writeCell(Writer out, int row, int column, String originalValue) throws IOException {
+        out.write("    <STL-Cell row=\"" + row + "\" column=\"" + columnName(column) + "\"><STL-Original-Value>"
+                + originalValue + "</STL-Original-Value></STL-Cell>\n");
+    }
+}
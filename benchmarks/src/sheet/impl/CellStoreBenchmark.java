@@ -0,0 +1,84 @@
+package sheet.impl;
+
+import benchmark.SyntheticSheets;
+import cell.api.Cell;
+import coordinate.Coordinate;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/*
+The cell stores on their own, holding every cell of a full synthetic sheet: the row-major grid such a sheet is kept in,
+the hash trie sparse sheets are kept in, and a HashMap as sheets were once kept in.
+lookup reads one cell at a random coordinate. copyOf builds the store from a HashMap of the cells; run it with
+-prof gc, and its gc.alloc.rate.norm divided by the number of cells is what the store itself takes per cell,
+the cells excluded. The trie is built a cell at a time, so its figure also counts the paths each cell replaced.
+It is in the engine's package since the stores are not public.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class CellStoreBenchmark {
+
+    private static final int LOOKUPS = 1 << 12;
+
+    @Param({"1000", "5000"})
+    public int rows;
+
+    @Param({"grid", "trie", "hashMap"})
+    public String store;
+
+    private int columns;
+    private Map<Coordinate, Cell> cells;
+    private Map<Coordinate, Cell> storedCells;
+    private Coordinate[] lookups;
+    private int lookup;
+
+    @Setup(Level.Trial)
+    public void prepare() {
+        int depth = 10;
+        columns = SyntheticSheets.columns(depth);
+        cells = new HashMap<>(SyntheticSheets.load("store", rows, depth, 10).getActiveCells());
+        storedCells = copyOf();
+
+        List<Coordinate> coordinates = new ArrayList<>(cells.keySet());
+        Collections.shuffle(coordinates, new Random(42));
+        lookups = coordinates.subList(0, LOOKUPS).toArray(new Coordinate[0]);
+    }
+
+    @Benchmark
+    public Cell lookup() {
+        lookup = (lookup + 1) & (LOOKUPS - 1);
+        return storedCells.get(lookups[lookup]);
+    }
+
+    @Benchmark
+    public Map<Coordinate, Cell> copyOf() {
+        return switch (store) {
+            case "grid" -> PersistentCellGrid.copyOf(cells, rows, columns);
+            case "trie" -> PersistentCellMap.copyOf(cells);
+            case "hashMap" -> new HashMap<>(cells);
+            default -> throw new IllegalArgumentException("Unknown store: " + store);
+        };
+    }
+}
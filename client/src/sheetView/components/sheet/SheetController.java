@@ -2,6 +2,7 @@ package sheetView.components.sheet;
 
 import dto.api.RangeDTO;
 import dto.api.SheetDTO;
+import dto.api.SheetDeltaDTO;
 import dto.impl.CellDTOImpl;
 import javafx.application.Platform;
 import javafx.fxml.FXML;
@@ -155,6 +156,17 @@ public class SheetController {
         populateSheetGrid(sheetDTO, numCols, numRows);
     }
 
+    // Applies the cells changed by an update to the current sheet and refreshes only their labels
+    public void updateSheet(SheetDeltaDTO sheetDelta) {
+        currentSheet.applyDelta(sheetDelta);
+
+        for (Map.Entry<String, CellDTOImpl> changedCell : sheetDelta.getCells().entrySet()) {
+            int row = extractRowFromCellId(changedCell.getKey());
+            int col = extractColumnFromCellId(changedCell.getKey());
+            processCell(changedCell.getValue(), row, col, row, col);
+        }
+    }
+
     private void addColumnAndRowConstraints(int numCols, double colWidth, int numRows, double rowHeight) {
         // Add ColumnConstraints (including header column at index 0)
         for (int i = 0; i <= numCols; i++) {
@@ -2,8 +2,10 @@ package sheetView.main;
 
 import com.google.gson.Gson;
 import dto.api.SheetDTO;
+import dto.api.SheetDeltaDTO;
 import dto.impl.CellDTOImpl;
 import dto.impl.SheetDTOImpl;
+import dto.impl.SheetDeltaDTOImpl;
 import javafx.application.Platform;
 import javafx.fxml.FXML;
 import javafx.fxml.FXMLLoader;
@@ -139,10 +141,10 @@ public class SheetViewMainController {
                 @Override
                 public void onResponse(@NotNull Call call, @NotNull Response response) throws IOException {
                     if (response.isSuccessful()) {
-                        String sheetJson = response.body().string();
-                        SheetDTOImpl updatedSheetDTO = new Gson().fromJson(sheetJson, SheetDTOImpl.class);
+                        String deltaJson = response.body().string();
+                        SheetDeltaDTOImpl sheetDelta = new Gson().fromJson(deltaJson, SheetDeltaDTOImpl.class);
                         Platform.runLater(() -> {
-                            updateCurrentSheet(updatedSheetDTO);
+                            applySheetDelta(sheetDelta);
                         });
                     } else {
                         Platform.runLater(() -> showErrorAlert("Failed to update cell: " + response.message()));
@@ -154,6 +156,45 @@ public class SheetViewMainController {
         }
     }
 
+    // Apply the changes of an update, or reload the sheet if other updates were made in between
+    private void applySheetDelta(SheetDeltaDTO sheetDelta) {
+        if (sheetDelta.getBaseVersion() != currentSheet.getVersion()) {
+            loadLatestSheet();
+            return;
+        }
+
+        sheetController.updateSheet(sheetDelta);
+        actionLineController.setVersionSelectorItems(currentSheet.getVersion());
+    }
+
+    // Fetch the whole current version of the sheet
+    private void loadLatestSheet() {
+        String finalUrl = HttpUrl
+                .parse(Constants.GET_SHEET)
+                .newBuilder()
+                .addQueryParameter("sheetName", currentSheet.getName())
+                .build()
+                .toString();
+
+        HttpClientUtil.runAsync(finalUrl, new Callback() {
+            @Override
+            public void onFailure(@NotNull Call call, @NotNull IOException e) {
+                Platform.runLater(() -> showErrorAlert("Failed to load sheet: " + e.getMessage()));
+            }
+
+            @Override
+            public void onResponse(@NotNull Call call, @NotNull Response response) throws IOException {
+                if (response.isSuccessful()) {
+                    String sheetJson = response.body().string();
+                    SheetDTOImpl latestSheetDTO = new Gson().fromJson(sheetJson, SheetDTOImpl.class);
+                    Platform.runLater(() -> updateCurrentSheet(latestSheetDTO));
+                } else {
+                    Platform.runLater(() -> showErrorAlert("Failed to load sheet: " + response.message()));
+                }
+            }
+        });
+    }
+
     // Check if the user is on the latest version of the sheet
     private boolean isOnLatestVersion(int currentVersion) {
         return currentVersion == versionRefresher.getLatestVersion();
@@ -14,12 +14,18 @@ import java.io.IOException;
 import java.util.Timer;
 import java.util.TimerTask;
 
+/*
+Keeps track of the latest version of the open sheet.
+Instead of asking every few seconds, it keeps one long-poll open: the server answers as soon as a newer version
+than the one we know is published (or after its timeout), and we immediately ask for the next one.
+ */
 public class VersionRefresher {
 
-    private static final String SERVER_URL = "http://localhost:8080/shticell";
     private final SheetViewMainController sheetViewMainController;
-    private Timer timer;
-    private int latestVersion;
+    private volatile boolean refreshing;
+    private volatile Call pendingCall;
+    private volatile int latestVersion;
+    private Timer retryTimer;
 
     public VersionRefresher(SheetViewMainController sheetViewMainController) {
         this.sheetViewMainController = sheetViewMainController;
@@ -27,13 +33,19 @@ public class VersionRefresher {
     }
 
     public void startRefreshing() {
-        timer = new Timer(true);
-        timer.schedule(new VersionCheckTask(), 0, 2000);  // בדיקה כל 2 שניות
+        refreshing = true;
+        retryTimer = new Timer(true);
+        waitForNextVersion();
     }
 
     public void stopRefreshing() {
-        if (timer != null) {
-            timer.cancel();
+        refreshing = false;
+        Call call = pendingCall;
+        if (call != null) {
+            call.cancel();
+        }
+        if (retryTimer != null) {
+            retryTimer.cancel();
         }
     }
 
@@ -41,38 +53,65 @@ public class VersionRefresher {
         return latestVersion;
     }
 
-    private class VersionCheckTask extends TimerTask {
-        @Override
-        public void run() {
-            String finalUrl = HttpUrl
-                    .parse(Constants.GET_LATEST_VERSION)
-                    .newBuilder()
-                    .addQueryParameter("sheetName", sheetViewMainController.getCurrentSheetName())
-                    .build()
-                    .toString();
+    private void waitForNextVersion() {
+        if (!refreshing) {
+            return;
+        }
 
-            HttpClientUtil.runAsync(finalUrl, new Callback() {
-                @Override
-                public void onFailure(@NotNull Call call, @NotNull IOException e) {
+        String finalUrl = HttpUrl
+                .parse(Constants.WAIT_FOR_VERSION)
+                .newBuilder()
+                .addQueryParameter("sheetName", sheetViewMainController.getCurrentSheetName())
+                .addQueryParameter("knownVersion", String.valueOf(latestVersion))
+                .build()
+                .toString();
+
+        pendingCall = HttpClientUtil.runLongPoll(finalUrl, new Callback() {
+            @Override
+            public void onFailure(@NotNull Call call, @NotNull IOException e) {
+                if (refreshing && !call.isCanceled()) {
                     Platform.runLater(() -> sheetViewMainController.showErrorAlert("Failed to check for new version: " + e.getMessage()));
+                    retryLater();
                 }
+            }
 
-                @Override
-                public void onResponse(@NotNull Call call, @NotNull Response response) throws IOException {
-                    if (response.isSuccessful()) {
-                        String latestVersionStr = response.body().string();
-                        int newLatestVersion = Integer.parseInt(latestVersionStr);
-                        SheetDTOImpl currentSheet = (SheetDTOImpl) sheetViewMainController.getCurrentSheet();
-                        latestVersion = newLatestVersion; // עדכון הגרסה האחרונה
+            @Override
+            public void onResponse(@NotNull Call call, @NotNull Response response) throws IOException {
+                if (!response.isSuccessful()) {
+                    response.close();
+                    retryLater();
+                    return;
+                }
 
-                        Platform.runLater(() -> {
-                            if (newLatestVersion > currentSheet.getVersion()) {
-                                sheetViewMainController.showVersionUpdateHint(latestVersion);
-                            }
-                        });
+                String latestVersionStr = response.body().string();
+                int newLatestVersion = Integer.parseInt(latestVersionStr.trim());
+                SheetDTOImpl currentSheet = (SheetDTOImpl) sheetViewMainController.getCurrentSheet();
+                latestVersion = newLatestVersion;
+
+                Platform.runLater(() -> {
+                    if (newLatestVersion > currentSheet.getVersion()) {
+                        sheetViewMainController.showVersionUpdateHint(newLatestVersion);
                     }
+                });
+                waitForNextVersion();
+            }
+        });
+    }
+
+    // Waits a little before asking again, so a server that is down is not flooded with requests
+    private void retryLater() {
+        if (!refreshing) {
+            return;
+        }
+        try {
+            retryTimer.schedule(new TimerTask() {
+                @Override
+                public void run() {
+                    waitForNextVersion();
                 }
-            });
+            }, Constants.REFRESH_RATE);
+        } catch (IllegalStateException e) {
+            // stopped while the request was failing
         }
     }
 }
@@ -3,9 +3,9 @@ package sheetsManagement.components.commands.chat.chatarea;
 import javafx.application.Platform;
 import javafx.beans.binding.Bindings;
 import javafx.beans.property.BooleanProperty;
-import javafx.beans.property.IntegerProperty;
+import javafx.beans.property.LongProperty;
 import javafx.beans.property.SimpleBooleanProperty;
-import javafx.beans.property.SimpleIntegerProperty;
+import javafx.beans.property.SimpleLongProperty;
 import javafx.event.ActionEvent;
 import javafx.fxml.FXML;
 import javafx.scene.control.Label;
@@ -23,9 +23,7 @@ import util.http.HttpClientUtil;
 
 import java.io.Closeable;
 import java.io.IOException;
-import java.util.Timer;
 import java.util.stream.Collectors;
-import static util.Constants.REFRESH_RATE;
 
 
 import static util.Constants.CHAT_LINE_FORMATTING;
@@ -33,12 +31,11 @@ import static util.Constants.CHAT_LINE_FORMATTING;
 
 public class ChatAreaController implements Closeable {
 
-    private final IntegerProperty chatVersion;
+    private final LongProperty chatVersion;
     private final BooleanProperty autoScroll;
     private final BooleanProperty autoUpdate;
     private HttpStatusUpdate httpStatusUpdate;
     private ChatAreaRefresher chatAreaRefresher;
-    private Timer timer;
 
     @FXML private ToggleButton autoScrollButton;
     @FXML private TextArea chatLineTextArea;
@@ -46,7 +43,7 @@ public class ChatAreaController implements Closeable {
     @FXML private Label chatVersionLabel;
 
     public ChatAreaController() {
-        chatVersion = new SimpleIntegerProperty();
+        chatVersion = new SimpleLongProperty();
         autoScroll = new SimpleBooleanProperty();
         autoUpdate = new SimpleBooleanProperty();
     }
@@ -125,17 +122,15 @@ public class ChatAreaController implements Closeable {
                 autoUpdate,
                 httpStatusUpdate::updateHttpLine,
                 this::updateChatLines);
-        timer = new Timer();
-        timer.schedule(chatAreaRefresher, REFRESH_RATE, REFRESH_RATE);
+        chatAreaRefresher.startRefreshing();
     }
 
     @Override
     public void close() throws IOException {
         chatVersion.set(0);
         chatLineTextArea.clear();
-        if (chatAreaRefresher != null && timer != null) {
-            chatAreaRefresher.cancel();
-            timer.cancel();
+        if (chatAreaRefresher != null) {
+            chatAreaRefresher.stopRefreshing();
         }
     }
 }
\ No newline at end of file
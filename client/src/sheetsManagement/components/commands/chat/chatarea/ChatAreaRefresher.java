@@ -3,7 +3,8 @@ package sheetsManagement.components.commands.chat.chatarea;
 
 import com.google.gson.Gson;
 import javafx.beans.property.BooleanProperty;
-import javafx.beans.property.IntegerProperty;
+import javafx.beans.property.LongProperty;
+import javafx.beans.value.ChangeListener;
 import okhttp3.Call;
 import okhttp3.Callback;
 import okhttp3.HttpUrl;
@@ -14,30 +15,60 @@ import util.Constants;
 import util.http.HttpClientUtil;
 
 import java.io.IOException;
+import java.util.Timer;
 import java.util.TimerTask;
 import java.util.function.Consumer;
 
-
-public class ChatAreaRefresher extends TimerTask {
+/*
+Keeps one long-poll open on the chat: the server answers as soon as there are lines after the version we have
+(or after its timeout), and we immediately ask for the next ones. A quiet chat room costs one held request, not a
+request every few seconds. Turning auto update off lets the pending request finish without asking again.
+ */
+public class ChatAreaRefresher {
 
     private final Consumer<String> httpRequestLoggerConsumer;
     private final Consumer<ChatLinesWithVersion> chatlinesConsumer;
-    private final IntegerProperty chatVersion;
     private final BooleanProperty shouldUpdate;
+    private final ChangeListener<Boolean> shouldUpdateListener = (observable, oldValue, newValue) -> {
+        if (newValue) {
+            waitForNextLines();
+        }
+    };
+    private volatile boolean refreshing;
+    private volatile long knownVersion;
+    private Call pendingCall;
+    private Timer retryTimer;
     private int requestNumber;
 
-    public ChatAreaRefresher(IntegerProperty chatVersion, BooleanProperty shouldUpdate, Consumer<String> httpRequestLoggerConsumer, Consumer<ChatLinesWithVersion> chatlinesConsumer) {
+    public ChatAreaRefresher(LongProperty chatVersion, BooleanProperty shouldUpdate, Consumer<String> httpRequestLoggerConsumer, Consumer<ChatLinesWithVersion> chatlinesConsumer) {
         this.httpRequestLoggerConsumer = httpRequestLoggerConsumer;
         this.chatlinesConsumer = chatlinesConsumer;
-        this.chatVersion = chatVersion;
+        this.knownVersion = chatVersion.get();
         this.shouldUpdate = shouldUpdate;
         requestNumber = 0;
     }
 
-    @Override
-    public void run() {
+    public void startRefreshing() {
+        refreshing = true;
+        retryTimer = new Timer(true);
+        shouldUpdate.addListener(shouldUpdateListener);
+        waitForNextLines();
+    }
+
+    public synchronized void stopRefreshing() {
+        refreshing = false;
+        shouldUpdate.removeListener(shouldUpdateListener);
+        if (pendingCall != null) {
+            pendingCall.cancel();
+        }
+        if (retryTimer != null) {
+            retryTimer.cancel();
+        }
+    }
 
-        if (!shouldUpdate.get()) {
+    // Asks for the lines after the version we have, unless a request is already waiting for them
+    private synchronized void waitForNextLines() {
+        if (!refreshing || !shouldUpdate.get() || pendingCall != null) {
             return;
         }
 
@@ -47,31 +78,61 @@ public class ChatAreaRefresher extends TimerTask {
         String finalUrl = HttpUrl
                 .parse(Constants.CHAT_LINES_LIST)
                 .newBuilder()
-                .addQueryParameter("chatversion", String.valueOf(chatVersion.get()))
+                .addQueryParameter("chatversion", String.valueOf(knownVersion))
                 .build()
                 .toString();
 
         httpRequestLoggerConsumer.accept("About to invoke: " + finalUrl + " | Chat Request # " + finalRequestNumber);
 
-        HttpClientUtil.runAsync(finalUrl, new Callback() {
+        pendingCall = HttpClientUtil.runLongPoll(finalUrl, new Callback() {
             @Override
             public void onFailure(@NotNull Call call, @NotNull IOException e) {
-                httpRequestLoggerConsumer.accept("Something went wrong with Chat Request # " + finalRequestNumber);
+                finished(call);
+                if (refreshing && !call.isCanceled()) {
+                    httpRequestLoggerConsumer.accept("Something went wrong with Chat Request # " + finalRequestNumber);
+                    retryLater();
+                }
             }
 
             @Override
             public void onResponse(@NotNull Call call, @NotNull Response response) throws IOException {
+                finished(call);
                 if (response.isSuccessful()) {
                     String rawBody = response.body().string();
-                    httpRequestLoggerConsumer.accept("Response of Chat Request # " + finalRequestNumber + ": " + rawBody);
                     ChatLinesWithVersion chatLinesWithVersion = new Gson().fromJson(rawBody, ChatLinesWithVersion.class);
+                    knownVersion = chatLinesWithVersion.getVersion();
                     chatlinesConsumer.accept(chatLinesWithVersion);
+                    waitForNextLines();
                 } else {
                     httpRequestLoggerConsumer.accept("Something went wrong with Request # " + finalRequestNumber + ". Code is " + response.code());
+                    response.close();
+                    retryLater();
                 }
             }
         });
+    }
+
+    private synchronized void finished(Call call) {
+        if (pendingCall == call) {
+            pendingCall = null;
+        }
+    }
 
+    // Waits a little before asking again, so a server that is down is not flooded with requests
+    private void retryLater() {
+        if (!refreshing) {
+            return;
+        }
+        try {
+            retryTimer.schedule(new TimerTask() {
+                @Override
+                public void run() {
+                    waitForNextLines();
+                }
+            }, Constants.REFRESH_RATE);
+        } catch (IllegalStateException e) {
+            // stopped while the request was failing
+        }
     }
 
 }
@@ -4,14 +4,14 @@ import java.util.List;
 
 public class ChatLinesWithVersion {
 
-    private int version;
+    private long version;
     private List<SingleChatLine> entries;
 
-    public int getVersion() {
+    public long getVersion() {
         return version;
     }
 
-    public void setVersion(int version) {
+    public void setVersion(long version) {
         this.version = version;
     }
 
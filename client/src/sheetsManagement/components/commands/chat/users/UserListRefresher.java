@@ -3,26 +3,42 @@ package sheetsManagement.components.commands.chat.users;
 
 import com.google.gson.Gson;
 import javafx.beans.property.BooleanProperty;
+import javafx.beans.value.ChangeListener;
 import okhttp3.Call;
 import okhttp3.Callback;
+import okhttp3.HttpUrl;
 import okhttp3.Response;
 import org.jetbrains.annotations.NotNull;
+import sheetsManagement.components.commands.chat.users.model.UsersWithVersion;
 import util.Constants;
 import util.http.HttpClientUtil;
 
 import java.io.IOException;
-import java.util.Arrays;
 import java.util.List;
+import java.util.Timer;
 import java.util.TimerTask;
 import java.util.function.Consumer;
 
-
-public class UserListRefresher extends TimerTask {
+/*
+Keeps one long-poll open on the users list: the server answers when the users differ from the version we have
+(or after its timeout), and we immediately ask again. Nothing is sent while nobody joins or leaves.
+ */
+public class UserListRefresher {
 
     private final Consumer<String> httpRequestLoggerConsumer;
     private final Consumer<List<String>> usersListConsumer;
-    private int requestNumber;
     private final BooleanProperty shouldUpdate;
+    private final ChangeListener<Boolean> shouldUpdateListener = (observable, oldValue, newValue) -> {
+        if (newValue) {
+            waitForUsersChange();
+        }
+    };
+    private volatile boolean refreshing;
+    // no users list has been received yet, so the first request is answered at once
+    private volatile int knownVersion = -1;
+    private Call pendingCall;
+    private Timer retryTimer;
+    private int requestNumber;
 
 
     public UserListRefresher(BooleanProperty shouldUpdate, Consumer<String> httpRequestLoggerConsumer, Consumer<List<String>> usersListConsumer) {
@@ -32,30 +48,91 @@ public class UserListRefresher extends TimerTask {
         requestNumber = 0;
     }
 
-    @Override
-    public void run() {
+    public void startRefreshing() {
+        refreshing = true;
+        retryTimer = new Timer(true);
+        shouldUpdate.addListener(shouldUpdateListener);
+        waitForUsersChange();
+    }
+
+    public synchronized void stopRefreshing() {
+        refreshing = false;
+        shouldUpdate.removeListener(shouldUpdateListener);
+        if (pendingCall != null) {
+            pendingCall.cancel();
+        }
+        if (retryTimer != null) {
+            retryTimer.cancel();
+        }
+    }
 
-        if (!shouldUpdate.get()) {
+    // Asks for the users once they change from the version we have, unless a request is already waiting for it
+    private synchronized void waitForUsersChange() {
+        if (!refreshing || !shouldUpdate.get() || pendingCall != null) {
             return;
         }
 
         final int finalRequestNumber = ++requestNumber;
-        httpRequestLoggerConsumer.accept("About to invoke: " + Constants.USERS_LIST + " | Users Request # " + finalRequestNumber);
-        HttpClientUtil.runAsync(Constants.USERS_LIST, new Callback() {
+
+        //noinspection ConstantConditions
+        String finalUrl = HttpUrl
+                .parse(Constants.USERS_LIST)
+                .newBuilder()
+                .addQueryParameter("usersversion", String.valueOf(knownVersion))
+                .build()
+                .toString();
+
+        httpRequestLoggerConsumer.accept("About to invoke: " + finalUrl + " | Users Request # " + finalRequestNumber);
+        pendingCall = HttpClientUtil.runLongPoll(finalUrl, new Callback() {
 
             @Override
             public void onFailure(@NotNull Call call, @NotNull IOException e) {
-                httpRequestLoggerConsumer.accept("Users Request # " + finalRequestNumber + " | Ended with failure...");
-
+                finished(call);
+                if (refreshing && !call.isCanceled()) {
+                    httpRequestLoggerConsumer.accept("Users Request # " + finalRequestNumber + " | Ended with failure...");
+                    retryLater();
+                }
             }
 
             @Override
             public void onResponse(@NotNull Call call, @NotNull Response response) throws IOException {
-                String jsonArrayOfUsersNames = response.body().string();
-                httpRequestLoggerConsumer.accept("Users Request # " + finalRequestNumber + " | Response: " + jsonArrayOfUsersNames);
-                String[] usersNames = new Gson().fromJson(jsonArrayOfUsersNames, String[].class);
-                usersListConsumer.accept(Arrays.asList(usersNames));
+                finished(call);
+                if (response.isSuccessful()) {
+                    UsersWithVersion usersWithVersion = new Gson().fromJson(response.body().string(), UsersWithVersion.class);
+                    if (usersWithVersion.getVersion() != knownVersion) {
+                        knownVersion = usersWithVersion.getVersion();
+                        usersListConsumer.accept(usersWithVersion.getUsers());
+                    }
+                    waitForUsersChange();
+                } else {
+                    httpRequestLoggerConsumer.accept("Users Request # " + finalRequestNumber + " | Ended with code " + response.code());
+                    response.close();
+                    retryLater();
+                }
             }
         });
     }
+
+    private synchronized void finished(Call call) {
+        if (pendingCall == call) {
+            pendingCall = null;
+        }
+    }
+
+    // Waits a little before asking again, so a server that is down is not flooded with requests
+    private void retryLater() {
+        if (!refreshing) {
+            return;
+        }
+        try {
+            retryTimer.schedule(new TimerTask() {
+                @Override
+                public void run() {
+                    waitForUsersChange();
+                }
+            }, Constants.REFRESH_RATE);
+        } catch (IllegalStateException e) {
+            // stopped while the request was failing
+        }
+    }
 }
@@ -14,16 +14,11 @@ import sheetsManagement.components.commands.chat.api.HttpStatusUpdate;
 
 import java.io.Closeable;
 import java.util.List;
-import java.util.Timer;
-import java.util.TimerTask;
-
-import static util.Constants.REFRESH_RATE;
 
 
 public class UsersListController implements Closeable {
 
-    private Timer timer;
-    private TimerTask listRefresher;
+    private UserListRefresher listRefresher;
     private final BooleanProperty autoUpdate;
     private final IntegerProperty totalUsers;
     private HttpStatusUpdate httpStatusUpdate;
@@ -63,17 +58,15 @@ public class UsersListController implements Closeable {
                 autoUpdate,
                 httpStatusUpdate::updateHttpLine,
                 this::updateUsersList);
-        timer = new Timer();
-        timer.schedule(listRefresher, REFRESH_RATE, REFRESH_RATE);
+        listRefresher.startRefreshing();
     }
 
     @Override
     public void close() {
         usersListView.getItems().clear();
         totalUsers.set(0);
-        if (listRefresher != null && timer != null) {
-            listRefresher.cancel();
-            timer.cancel();
+        if (listRefresher != null) {
+            listRefresher.stopRefreshing();
         }
     }
 }
@@ -0,0 +1,25 @@
+package sheetsManagement.components.commands.chat.users.model;
+
+import java.util.List;
+
+public class UsersWithVersion {
+
+    private int version;
+    private List<String> users;
+
+    public int getVersion() {
+        return version;
+    }
+
+    public void setVersion(int version) {
+        this.version = version;
+    }
+
+    public List<String> getUsers() {
+        return users;
+    }
+
+    public void setUsers(List<String> users) {
+        this.users = users;
+    }
+}
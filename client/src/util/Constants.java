@@ -21,6 +21,7 @@ public class Constants {
     public static final String GET_SHEET =  FULL_SERVER_PATH + "/getSheet" ;
     public static final String UPDATE_CELL =  FULL_SERVER_PATH + "/updateCell" ;
     public static final String GET_LATEST_VERSION =  FULL_SERVER_PATH + "/getLatestVersion" ;
+    public static final String WAIT_FOR_VERSION =  FULL_SERVER_PATH + "/waitForVersion" ;
 
     public static final String GET_UNIQUE_VALUES =  FULL_SERVER_PATH + "/getUniqueValues" ;
     public static final String FILTER_SHEET =  FULL_SERVER_PATH + "/filterSheet" ;
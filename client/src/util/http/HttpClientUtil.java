@@ -5,6 +5,7 @@ import okhttp3.Callback;
 import okhttp3.OkHttpClient;
 import okhttp3.Request;
 
+import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
 
 public class HttpClientUtil {
@@ -14,6 +15,11 @@ public class HttpClientUtil {
                     .cookieJar(simpleCookieManager)
                     .followRedirects(false)
                     .build();
+    // same cookies and connections, but willing to wait for a long-poll the server holds open
+    private final static OkHttpClient LONG_POLL_CLIENT =
+            HTTP_CLIENT.newBuilder()
+                    .readTimeout(60, TimeUnit.SECONDS)
+                    .build();
     public static void runAsync(Request request, Callback callback) {
         Call call = HTTP_CLIENT.newCall(request);
         call.enqueue(callback);
@@ -27,6 +33,15 @@ public class HttpClientUtil {
 
         call.enqueue(callback);
     }
+    public static Call runLongPoll(String finalUrl, Callback callback) {
+        Request request = new Request.Builder()
+                .url(finalUrl)
+                .build();
+
+        Call call = LONG_POLL_CLIENT.newCall(request);
+        call.enqueue(callback);
+        return call;
+    }
     public static OkHttpClient getHttpClient() {
         return HTTP_CLIENT;
     }
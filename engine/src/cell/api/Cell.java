@@ -1,6 +1,8 @@
 package cell.api;
 
 import coordinate.Coordinate;
+import expression.api.Expression;
+import sheet.api.SheetReadActions;
 
 import java.util.List;
 
@@ -15,12 +17,16 @@ import java.util.List;
         String getOriginalValue();
         String getChangedBy();
         EffectiveValue getEffectiveValue();
+        Expression getExpression();
         int getVersion();
-        List<Cell> getDependsOn();
-        List<Cell> getInfluencingOn();
+        List<Coordinate> getDependsOn();
+        List<Coordinate> getInfluencingOn();
         void updateVersion(int newVersion);
         boolean calculateEffectiveValue();
         void resetDependencies();
         void resetInfluences();
         void setOriginalValue(String value);
+        // versions share cells, so a cell may only be changed by the sheet it belongs to
+        boolean belongsTo(SheetReadActions sheet);
+        Cell copyForSheet(SheetReadActions sheet);
     }
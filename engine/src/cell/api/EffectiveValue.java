@@ -6,5 +6,7 @@ public interface EffectiveValue {
     CellType getCellType();
     Object getValue();
     <T> T extractValueWithExpectation(Class<T> type);
+    // The value as a plain double, NaN for any value that is not NUMERIC
+    double getNumericValue();
 }
 
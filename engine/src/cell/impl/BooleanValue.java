@@ -0,0 +1,70 @@
+package cell.impl;
+
+import cell.api.CellType;
+import cell.api.EffectiveValue;
+
+import java.io.Serializable;
+
+// A BOOLEAN effective value; there are only the two, so they are shared
+public final class BooleanValue implements EffectiveValue, Serializable {
+
+    public static final BooleanValue TRUE = new BooleanValue(true);
+    public static final BooleanValue FALSE = new BooleanValue(false);
+
+    private final boolean value;
+
+    private BooleanValue(boolean value) {
+        this.value = value;
+    }
+
+    public static BooleanValue of(boolean value) {
+        return value ? TRUE : FALSE;
+    }
+
+    // a value read back from a serialized sheet is replaced by the shared one
+    private Object readResolve() {
+        return of(value);
+    }
+
+    @Override
+    public CellType getCellType() {
+        return CellType.BOOLEAN;
+    }
+
+    @Override
+    public Object getValue() {
+        return value;
+    }
+
+    @Override
+    public <T> T extractValueWithExpectation(Class<T> type) {
+        return type == Boolean.class ? type.cast(value) : null;
+    }
+
+    @Override
+    public double getNumericValue() {
+        return Double.NaN;
+    }
+
+    public boolean isTrue() {
+        return value;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+
+        return value == ((BooleanValue) o).value;
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * CellType.BOOLEAN.hashCode() + Boolean.hashCode(value);
+    }
+
+    @Override
+    public String toString() {
+        return value ? "TRUE" : "FALSE";
+    }
+}
@@ -11,19 +11,23 @@ import sheet.api.SheetReadActions;
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Objects;
 
 public class CellImpl implements Cell , Serializable {
 
     private final Coordinate coordinate;
     private String originalValue;
-    private EffectiveValue effectiveValue;
+    // cells of one calculation level are evaluated on different threads and read by the next level
+    private volatile EffectiveValue effectiveValue;
     private int version;
     private String changedBy;
-    private final List<Cell> dependsOn;
-    private final List<Cell> influencingOn;
+    private final List<Coordinate> dependsOn;
+    private final List<Coordinate> influencingOn;
     private String backgroundColor;
     private String textColor;
     private SheetReadActions sheet;
+    // parsed form of originalValue, kept until the value changes
+    private transient Expression expression;
 
 //constructors
     public CellImpl(int row, int column, String originalValue, int version, String changedBy, SheetReadActions sheet )  {
@@ -51,6 +55,21 @@ public class CellImpl implements Cell , Serializable {
         this.sheet = sheet;
     }
 
+    // copies the cell into another sheet version, including its place in the dependency graph
+    private CellImpl(CellImpl other, SheetReadActions sheet) {
+        this.coordinate = other.coordinate;
+        this.originalValue = other.originalValue;
+        this.effectiveValue = other.effectiveValue;
+        this.version = other.version;
+        this.changedBy = other.changedBy;
+        this.dependsOn = new ArrayList<>(other.dependsOn);
+        this.influencingOn = new ArrayList<>(other.influencingOn);
+        this.backgroundColor = other.backgroundColor;
+        this.textColor = other.textColor;
+        this.expression = other.expression;
+        this.sheet = sheet;
+    }
+
     //getters
     @Override
     public String getBackgroundColor() {
@@ -91,6 +110,14 @@ public class CellImpl implements Cell , Serializable {
         return effectiveValue;
     }
 
+    @Override
+    public Expression getExpression() {
+        if (expression == null) {
+            expression = FunctionParser.parseExpression(originalValue);
+        }
+        return expression;
+    }
+
     @Override
     public void updateVersion(int newVersion){
         this.version = newVersion;
@@ -102,21 +129,20 @@ public class CellImpl implements Cell , Serializable {
     }
 
     @Override
-    public List<Cell> getDependsOn() {
+    public List<Coordinate> getDependsOn() {
         return dependsOn;
     }
 
     @Override
-    public List<Cell> getInfluencingOn() {
+    public List<Coordinate> getInfluencingOn() {
         return influencingOn;
     }
 
     // calculates and updates the effective value of a cell based on its original value
     @Override
     public boolean calculateEffectiveValue() {
-        Expression expression = FunctionParser.parseExpression(originalValue);
         // get the new effective value
-        EffectiveValue newEffectiveValue = expression.eval(sheet);
+        EffectiveValue newEffectiveValue = getExpression().eval(sheet);
         if (!newEffectiveValue.equals(effectiveValue)) {
             //update the effective value to the new one if they are different
             effectiveValue = newEffectiveValue;
@@ -139,7 +165,20 @@ public class CellImpl implements Cell , Serializable {
 
     @Override
     public void setOriginalValue(String value) {
-        this.originalValue = value;
+        if (!Objects.equals(this.originalValue, value)) {
+            this.originalValue = value;
+            this.expression = null;
+        }
+    }
+
+    @Override
+    public boolean belongsTo(SheetReadActions sheet) {
+        return this.sheet == sheet;
+    }
+
+    @Override
+    public Cell copyForSheet(SheetReadActions sheet) {
+        return new CellImpl(this, sheet);
     }
 
 
@@ -0,0 +1,20 @@
+package cell.impl;
+
+import cell.api.CellType;
+import cell.api.EffectiveValue;
+
+// Makes an effective value of the class that holds its type
+public class EffectiveValueFactory {
+
+    private EffectiveValueFactory() {
+    }
+
+    public static EffectiveValue createEffectiveValue(CellType cellType, Object value) {
+        return switch (cellType) {
+            case NUMERIC -> new NumericValue((Double) value);
+            case BOOLEAN -> BooleanValue.of((Boolean) value);
+            case STRING -> new StringValue((String) value);
+            default -> new EffectiveValueImpl(cellType, value);
+        };
+    }
+}
@@ -13,7 +13,11 @@ public class EffectiveValueImpl implements EffectiveValue , Serializable {
     private final Object value;
 
     //constructors
+    // numbers, booleans and strings have their own classes, so a value of each type always compares equal to its like
     public EffectiveValueImpl(CellType cellType, Object value) {
+        if (cellType == CellType.NUMERIC || cellType == CellType.BOOLEAN || cellType == CellType.STRING) {
+            throw new IllegalArgumentException("A " + cellType + " value is made by EffectiveValueFactory.");
+        }
         this.cellType = cellType;
         this.value = value;
     }
@@ -35,6 +39,11 @@ public class EffectiveValueImpl implements EffectiveValue , Serializable {
         }
         return null;
     }
+
+    @Override
+    public double getNumericValue() {
+        return Double.NaN;
+    }
     //check if two effective values equals
     @Override
     public boolean equals(Object o) {
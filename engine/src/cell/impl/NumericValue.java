@@ -0,0 +1,55 @@
+package cell.impl;
+
+import cell.api.CellType;
+import cell.api.EffectiveValue;
+
+import java.io.Serializable;
+
+// A NUMERIC effective value, kept as a plain double
+public final class NumericValue implements EffectiveValue, Serializable {
+
+    private final double value;
+
+    public NumericValue(double value) {
+        this.value = value;
+    }
+
+    @Override
+    public CellType getCellType() {
+        return CellType.NUMERIC;
+    }
+
+    @Override
+    public Object getValue() {
+        return value;
+    }
+
+    @Override
+    public <T> T extractValueWithExpectation(Class<T> type) {
+        return type == Double.class ? type.cast(value) : null;
+    }
+
+    @Override
+    public double getNumericValue() {
+        return value;
+    }
+
+    // compares as Double does, so NaN equals NaN and 0.0 differs from -0.0
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+
+        return Double.doubleToLongBits(value) == Double.doubleToLongBits(((NumericValue) o).value);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * CellType.NUMERIC.hashCode() + Double.hashCode(value);
+    }
+
+    @Override
+    public String toString() {
+        return Double.toString(value);
+    }
+}
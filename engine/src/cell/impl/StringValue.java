@@ -0,0 +1,57 @@
+package cell.impl;
+
+import cell.api.CellType;
+import cell.api.EffectiveValue;
+
+import java.io.Serializable;
+
+// A STRING effective value
+public final class StringValue implements EffectiveValue, Serializable {
+
+    private final String value;
+
+    public StringValue(String value) {
+        if (value == null) {
+            throw new IllegalArgumentException("A string value cannot be null.");
+        }
+        this.value = value;
+    }
+
+    @Override
+    public CellType getCellType() {
+        return CellType.STRING;
+    }
+
+    @Override
+    public Object getValue() {
+        return value;
+    }
+
+    @Override
+    public <T> T extractValueWithExpectation(Class<T> type) {
+        return type == String.class ? type.cast(value) : null;
+    }
+
+    @Override
+    public double getNumericValue() {
+        return Double.NaN;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+
+        return value.equals(((StringValue) o).value);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * CellType.STRING.hashCode() + value.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return value;
+    }
+}
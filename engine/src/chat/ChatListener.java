@@ -0,0 +1,6 @@
+package chat;
+
+// Notified after a chat line has been added, with the chat version that includes it
+public interface ChatListener {
+    void onNewChatEntry(long version);
+}
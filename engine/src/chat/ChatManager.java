@@ -4,33 +4,121 @@ package chat;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 /*
-This class is thread safe in the manner of adding\fetching new chat lines, but not in the manner of getting the size of the list
-if the use of getVersion is to be incorporated with other methods here - it should be synchronized from the user code
+The most recent chat lines, in a ring of fixed size, so a long-running server keeps a flat amount of chat in memory.
+Every line gets the next sequence number; the line with sequence s lives in slot s % capacity until it is overwritten
+by the line capacity places after it.
+Nothing here takes a lock: a writer claims its sequence number and fills its slot, and readers only read slots,
+so reading never holds up chatting. A slot only ever moves forward: a writer that was held up until the line capacity
+places after its own took the slot leaves it alone, since its line would already have been overwritten.
+Sequences are longs, so they do not wrap however long the server runs. The version is the number of lines whose slots are filled without gaps, and only grows.
+Listeners are told about every new line after it is readable, so a waiting reader can be woken up instead of asking again.
  */
 public class ChatManager {
 
-    private final List<SingleChatEntry> chatDataList;
+    public static final int DEFAULT_CAPACITY = 1000;
+
+    private final int capacity;
+    private final AtomicReferenceArray<SingleChatEntry> chatSlots;
+    // the sequence number the next line will get
+    private final AtomicLong nextSequence = new AtomicLong();
+    // every line before this one is in its slot (or was, before being overwritten)
+    private final AtomicLong version = new AtomicLong();
+    private final List<ChatListener> chatListeners = new CopyOnWriteArrayList<>();
 
     public ChatManager() {
-        chatDataList = new ArrayList<>();
+        this(DEFAULT_CAPACITY);
     }
 
-    public synchronized void addChatString(String chatString, String username) {
-        chatDataList.add(new SingleChatEntry(chatString, username));
+    public ChatManager(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Chat capacity must be positive. Provided: " + capacity);
+        }
+        this.capacity = capacity;
+        this.chatSlots = new AtomicReferenceArray<>(capacity);
     }
 
-    public synchronized List<SingleChatEntry> getChatEntries(int fromIndex){
-        if (fromIndex < 0 || fromIndex > chatDataList.size()) {
-            fromIndex = 0;
+    public void addChatListener(ChatListener listener) {
+        chatListeners.add(listener);
+    }
+
+    public void addChatString(String chatString, String username) {
+        long sequence = nextSequence.getAndIncrement();
+        fillSlot(new SingleChatEntry(chatString, username, sequence));
+        long currentVersion = advanceVersion();
+        for (ChatListener listener : chatListeners) {
+            listener.onNewChatEntry(currentVersion);
         }
-        return chatDataList.subList(fromIndex, chatDataList.size());
     }
 
-    public int getVersion() {
-        return chatDataList.size();
+    // Returns up to maxEntries lines starting at the given sequence number.
+    // Lines that were already overwritten are skipped, and a sequence the chat never reached (for example one kept by a
+    // client from before a restart) reads from the oldest line still kept.
+    public ChatPage getChatEntriesSince(long sequence, int maxEntries) {
+        if (maxEntries <= 0) {
+            throw new IllegalArgumentException("Page size must be positive. Provided: " + maxEntries);
+        }
+
+        long currentVersion = version.get();
+        long oldestKept = Math.max(0, currentVersion - capacity);
+        if (sequence < oldestKept || sequence > currentVersion) {
+            sequence = oldestKept;
+        }
+
+        List<SingleChatEntry> entries = new ArrayList<>((int) Math.min(maxEntries, currentVersion - sequence));
+        while (sequence < currentVersion && entries.size() < maxEntries) {
+            SingleChatEntry entry = chatSlots.get(slotOf(sequence));
+            if (entry.getSequence() == sequence) {
+                entries.add(entry);
+                sequence++;
+            } else {
+                // writers lapped us while reading; the slot holds a later line, so continue from the oldest line still there
+                sequence = Math.min(entry.getSequence() - capacity + 1, currentVersion);
+            }
+        }
+        return new ChatPage(entries, sequence);
     }
 
+    public long getVersion() {
+        return version.get();
+    }
 
-}
\ No newline at end of file
+    public int getCapacity() {
+        return capacity;
+    }
+
+    // Moves the version past every slot filled so far; any writer may move it past the others' lines as well as its own
+    private long advanceVersion() {
+        while (true) {
+            long currentVersion = version.get();
+            SingleChatEntry entry = chatSlots.get(slotOf(currentVersion));
+            // the line at currentVersion is not written yet; its writer will move the version when it is
+            if (entry == null || entry.getSequence() < currentVersion) {
+                return currentVersion;
+            }
+            version.compareAndSet(currentVersion, currentVersion + 1);
+        }
+    }
+
+    // Puts the line in its slot unless a later line already took it
+    private void fillSlot(SingleChatEntry entry) {
+        int slot = slotOf(entry.getSequence());
+        while (true) {
+            SingleChatEntry current = chatSlots.get(slot);
+            if (current != null && current.getSequence() > entry.getSequence()) {
+                return;
+            }
+            if (chatSlots.compareAndSet(slot, current, entry)) {
+                return;
+            }
+        }
+    }
+
+    private int slotOf(long sequence) {
+        return (int) (sequence % capacity);
+    }
+}
@@ -0,0 +1,26 @@
+package chat;
+
+import java.util.List;
+
+/*
+Chat lines read in one go, and the sequence to ask from next time.
+nextSequence is the chat version the reader has caught up to; when there were more lines than fit in the page it is
+still behind the chat's version, and asking again from it returns the rest.
+ */
+public class ChatPage {
+    private final List<SingleChatEntry> entries;
+    private final long nextSequence;
+
+    public ChatPage(List<SingleChatEntry> entries, long nextSequence) {
+        this.entries = entries;
+        this.nextSequence = nextSequence;
+    }
+
+    public List<SingleChatEntry> getEntries() {
+        return entries;
+    }
+
+    public long getNextSequence() {
+        return nextSequence;
+    }
+}
@@ -5,11 +5,13 @@ public class SingleChatEntry {
     private final String chatString;
     private final String username;
     private final long time;
+    private final long sequence;
 
-    public SingleChatEntry(String chatString, String username) {
+    public SingleChatEntry(String chatString, String username, long sequence) {
         this.chatString = chatString;
         this.username = username;
         this.time = System.currentTimeMillis();
+        this.sequence = sequence;
     }
 
     public String getChatString() {
@@ -24,6 +26,11 @@ public class SingleChatEntry {
         return username;
     }
 
+    // The position of the line in the chat since the server started; the first line is 0
+    public long getSequence() {
+        return sequence;
+    }
+
     @Override
     public String toString() {
         return (username != null ? username + ": " : "") + chatString;
@@ -1,12 +1,20 @@
 package coordinate;
 
-import java.util.HashMap;
-import java.util.Map;
-
-
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/*
+Hands out shared Coordinate instances.
+Coordinates inside the cached area live in a fixed table indexed by the packed (row, column), filled lazily
+with compare-and-set, so lookups from any number of threads neither lock nor allocate.
+Coordinates outside the area are created on demand; they are equal to each other by value like any other coordinate.
+ */
 public class CoordinateFactory {
 
-    private static final Map<String, Coordinate> cachedCoordinates = new HashMap<>();
+    private static final int CACHED_ROWS = 1024;
+    private static final int CACHED_COLUMNS = 64;
+
+    private static final AtomicReferenceArray<Coordinate> cachedCoordinates =
+            new AtomicReferenceArray<>(CACHED_ROWS * CACHED_COLUMNS);
 
     public static Coordinate createCoordinate(int row, int column) {
         if (row < 0) {
@@ -16,41 +24,71 @@ public class CoordinateFactory {
             throw new IllegalArgumentException("Column number must be positive. Provided: " + column);
         }
 
-        String key = row + ":" + column;
-        if (cachedCoordinates.containsKey(key)) {
-            return cachedCoordinates.get(key);
+        if (row >= CACHED_ROWS || column >= CACHED_COLUMNS) {
+            return new CoordinateImpl(row, column);
         }
 
-        CoordinateImpl coordinate = new CoordinateImpl(row, column);
-        cachedCoordinates.put(key, coordinate);
+        int index = row * CACHED_COLUMNS + column;
+        Coordinate coordinate = cachedCoordinates.get(index);
+        if (coordinate != null) {
+            return coordinate;
+        }
 
-        return coordinate;
+        // if another thread got there first, use its instance so every caller shares the same one
+        Coordinate newCoordinate = new CoordinateImpl(row, column);
+        Coordinate existing = cachedCoordinates.compareAndExchange(index, null, newCoordinate);
+        return existing != null ? existing : newCoordinate;
     }
 
+    // Parses a cell id such as "A1" or "AB12", column letters in either case
     public static Coordinate createCoordinate(String cellId) {
         if (cellId == null || cellId.isEmpty()) {
             throw new IllegalArgumentException("Cell ID cannot be null or empty.");
         }
 
-        String columnPart = cellId.substring(0, 1);
-        String rowPart = cellId.substring(1);
-
-        if (!columnPart.matches("[A-Za-z]")) {
+        int length = cellId.length();
+        int position = 0;
+        int column = 0;
+        while (position < length && isLetter(cellId.charAt(position))) {
+            int letter = Character.toUpperCase(cellId.charAt(position)) - 'A' + 1;
+            if (column > (Integer.MAX_VALUE - letter) / 26) {
+                throw new IllegalArgumentException("Invalid column letter in cell ID: " + cellId);
+            }
+            column = column * 26 + letter;
+            position++;
+        }
+        if (position == 0) {
             throw new IllegalArgumentException("Invalid column letter in cell ID: " + cellId);
         }
-        if (!rowPart.matches("\\d+")) {
+
+        if (position == length) {
             throw new IllegalArgumentException("Invalid row number in cell ID: " + cellId);
         }
-
-        int column = convertColumnLetterToNumber(columnPart);
-        int row = Integer.parseInt(rowPart);
+        int row = 0;
+        while (position < length) {
+            char digit = cellId.charAt(position);
+            if (digit < '0' || digit > '9') {
+                throw new IllegalArgumentException("Invalid row number in cell ID: " + cellId);
+            }
+            if (row > (Integer.MAX_VALUE - (digit - '0')) / 10) {
+                throw new IllegalArgumentException("Invalid row number in cell ID: " + cellId);
+            }
+            row = row * 10 + (digit - '0');
+            position++;
+        }
 
         return createCoordinate(row, column);
     }
 
     public static int convertColumnLetterToNumber(String columnLetter) {
-        return columnLetter.charAt(0) - 'A' + 1;
+        int column = 0;
+        for (int i = 0; i < columnLetter.length(); i++) {
+            column = column * 26 + (Character.toUpperCase(columnLetter.charAt(i)) - 'A' + 1);
+        }
+        return column;
     }
-}
-
 
+    private static boolean isLetter(char c) {
+        return (c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z');
+    }
+}
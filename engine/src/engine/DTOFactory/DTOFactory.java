@@ -2,15 +2,20 @@ package engine.DTOFactory;
 
 
 import cell.api.Cell;
+import coordinate.Coordinate;
 import dto.api.SheetDTO;
+import dto.api.SheetDeltaDTO;
 import dto.impl.CellDTOImpl;
 import dto.impl.RangeDTOImpl;
 import range.api.Range;
 import sheet.api.Sheet;
 
+import java.util.Collection;
+
 public interface DTOFactory {
     SheetDTO createSheetDTO(Sheet sheet);
-    CellDTOImpl createCellDTO(Cell cell);
+    SheetDeltaDTO createSheetDeltaDTO(Sheet baseSheet, Sheet sheet, Collection<Coordinate> changedCoordinates);
+    CellDTOImpl createCellDTO(Sheet sheet, Cell cell);
     CellDTOImpl createEmptyCellDTO(String identity);
     RangeDTOImpl createRangeDTO(Range range);
 }
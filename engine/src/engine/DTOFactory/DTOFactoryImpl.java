@@ -1,16 +1,17 @@
 package engine.DTOFactory;
 
 import cell.api.Cell;
+import coordinate.Coordinate;
+import dto.api.SheetDeltaDTO;
 import dto.impl.CellDTOImpl;
 import dto.impl.RangeDTOImpl;
 import dto.impl.SheetDTOImpl;
 import dto.api.SheetDTO;
+import dto.impl.SheetDeltaDTOImpl;
 import range.api.Range;
 import sheet.api.Sheet;
 
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Map;
+import java.util.*;
 import java.util.stream.Collectors;
 
 public class DTOFactoryImpl implements DTOFactory {
@@ -21,7 +22,7 @@ public class DTOFactoryImpl implements DTOFactory {
         Map<String, CellDTOImpl> cellDTOs = sheet.getActiveCells().entrySet().stream()
                 .collect(Collectors.toMap(
                         e -> e.getKey().toString(),
-                        e -> createCellDTO(e.getValue())
+                        e -> createCellDTO(sheet, e.getValue())
                 ));
 
         Map<String, RangeDTOImpl> rangeDTOs = sheet.getAllRanges().stream()
@@ -43,14 +44,33 @@ public class DTOFactoryImpl implements DTOFactory {
         );
     }
 
-    // Creates a CellDTOImpl for a given Cell with dependencies and influences
-    public CellDTOImpl createCellDTO(Cell cell) {
-        List<String> dependsOnIds = cell.getDependsOn().stream()
-                .map(depCell -> depCell.getCoordinate().toString())
+    // Creates the delta from baseSheet to sheet, given the cells that changed between them
+    @Override
+    public SheetDeltaDTO createSheetDeltaDTO(Sheet baseSheet, Sheet sheet, Collection<Coordinate> changedCoordinates) {
+        Map<String, CellDTOImpl> cellDTOs = new HashMap<>();
+        for (Coordinate coordinate : changedCoordinates) {
+            Cell cell = sheet.getCell(coordinate);
+            String cellId = coordinate.toString();
+            cellDTOs.put(cellId, cell != null ? createCellDTO(sheet, cell) : createEmptyCellDTO(cellId));
+        }
+
+        return new SheetDeltaDTOImpl(
+                sheet.getName(),
+                baseSheet.getVersion(),
+                sheet.getVersion(),
+                cellDTOs
+        );
+    }
+
+    // Creates a CellDTOImpl for a given Cell with dependencies and influences, including those through ranges
+    @Override
+    public CellDTOImpl createCellDTO(Sheet sheet, Cell cell) {
+        List<String> dependsOnIds = sheet.getDependsOn(cell).stream()
+                .map(Object::toString)
                 .collect(Collectors.toList());
 
-        List<String> influencingOnIds = cell.getInfluencingOn().stream()
-                .map(infCell -> infCell.getCoordinate().toString())
+        List<String> influencingOnIds = sheet.getInfluencingOn(cell).stream()
+                .map(Object::toString)
                 .collect(Collectors.toList());
 
         return new dto.impl.CellDTOImpl(
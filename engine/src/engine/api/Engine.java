@@ -5,6 +5,7 @@ import dto.impl.CellDTOImpl;
 import dto.api.PermissionRequestDTO;
 import dto.api.RangeDTO;
 import dto.api.SheetDTO;
+import dto.api.SheetDeltaDTO;
 import dto.impl.SheetSummaryDTO;
 import permission.PermissionRequest;
 import dto.permission.PermissionStatus;
@@ -20,7 +21,10 @@ public interface Engine {
 
     void loadFile(InputStream inputStream, String owner) throws Exception;
     int getCurrentSheetVersion(String sheetName);
-    void updateCell(String sheetName, String coordinate, String newValue, String userName);
+    void addVersionListener(SheetVersionListener listener);
+    SheetSnapshot getCurrentSheetSnapshot(String sheetName);
+    SheetSnapshot getSheetSnapshot(String sheetName, int versionNumber);
+    SheetDeltaDTO updateCell(String sheetName, String coordinate, String newValue, String userName);
     CellDTOImpl getCellInfo(String sheetName, String cellIdentifier);
     void addRangeToSheet(String sheetName, String name, String range);
     void deleteRangeFromSheet(String sheetName, String name);
@@ -30,6 +34,7 @@ public interface Engine {
     List<String> getUniqueValuesInRangeColumn(String sheetName, String range, String column);
     SheetDTO filterSheetByValues(String sheetName, String range, String column, List<String> selectedValues);
     SheetDTO getSheetDTOByVersion(String sheetName, int versionNumber);
+    VersionStoreStats getVersionStoreStats();
     SheetDTO getCurrentSheetDTO(String sheetName);
     void updateCellBackgroundColor(String sheetName, String cellId, String colorHex);
     void updateCellTextColor(String sheetName, String cellId, String colorHex);
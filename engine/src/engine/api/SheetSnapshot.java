@@ -0,0 +1,12 @@
+package engine.api;
+
+import dto.api.SheetDTO;
+
+// One published state of a sheet. Its tag changes whenever the content does, so it can serve as an HTTP ETag.
+// The tag is known at once, while toDTO may have to rebuild an old version, so compare tags before asking for content.
+public interface SheetSnapshot {
+    String getSheetName();
+    int getVersion();
+    String getTag();
+    SheetDTO toDTO();
+}
@@ -0,0 +1,6 @@
+package engine.api;
+
+// Notified after an update has published a new version of a sheet
+public interface SheetVersionListener {
+    void onNewVersion(String sheetName, int version);
+}
@@ -0,0 +1,41 @@
+package engine.api;
+
+// What the versions of the sheets take up: whole versions by their cells, older versions by the bytes of their deltas
+public class VersionStoreStats {
+    private final int sheets;
+    private final int materializedVersions;
+    private final long materializedCells;
+    private final int deltaVersions;
+    private final long deltaBytes;
+
+    public VersionStoreStats(int sheets, int materializedVersions, long materializedCells, int deltaVersions, long deltaBytes) {
+        this.sheets = sheets;
+        this.materializedVersions = materializedVersions;
+        this.materializedCells = materializedCells;
+        this.deltaVersions = deltaVersions;
+        this.deltaBytes = deltaBytes;
+    }
+
+    public int getSheets() {
+        return sheets;
+    }
+
+    // Versions kept whole, each with its own calculated cells
+    public int getMaterializedVersions() {
+        return materializedVersions;
+    }
+
+    // The cells of all whole versions together; versions share the cells they did not change, so fewer objects may exist
+    public long getMaterializedCells() {
+        return materializedCells;
+    }
+
+    // Versions kept only as a reverse delta, rebuilt when asked for
+    public int getDeltaVersions() {
+        return deltaVersions;
+    }
+
+    public long getDeltaBytes() {
+        return deltaBytes;
+    }
+}
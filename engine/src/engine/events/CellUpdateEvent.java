@@ -0,0 +1,31 @@
+package engine.events;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+// A cell edit from the permission check until the new version is published and logged
+@Name("spreadsheet.CellUpdate")
+@Label("Cell Update")
+@Category({"Spreadsheet", "Engine"})
+@Description("A cell edit: recalculating it, publishing the new version and waiting for its log record")
+public class CellUpdateEvent extends SheetEvent {
+
+    @Label("Cell")
+    private String cellId;
+
+    @Label("User")
+    private String userName;
+
+    @Label("Cells Sent")
+    @Description("Cells in the delta sent back: the edited cell, the cells whose value changed and the cells whose dependencies changed")
+    private int cellsSent;
+
+    public void set(String sheetName, int version, String cellId, String userName, int cellsSent) {
+        setSheet(sheetName, version);
+        this.cellId = cellId;
+        this.userName = userName;
+        this.cellsSent = cellsSent;
+    }
+}
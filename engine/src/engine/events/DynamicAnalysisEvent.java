@@ -0,0 +1,26 @@
+package engine.events;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+// A what-if recalculation of a copy of the sheet with some cells given other values
+@Name("spreadsheet.DynamicAnalysis")
+@Label("Dynamic Analysis")
+@Category({"Spreadsheet", "Engine"})
+@Description("A copy of the sheet recalculated with some cells given other values, and turned into a DTO")
+public class DynamicAnalysisEvent extends SheetEvent {
+
+    @Label("Cells Given")
+    private int cellsGiven;
+
+    @Label("Cells")
+    private int cells;
+
+    public void set(String sheetName, int version, int cellsGiven, int cells) {
+        setSheet(sheetName, version);
+        this.cellsGiven = cellsGiven;
+        this.cells = cells;
+    }
+}
@@ -0,0 +1,36 @@
+package engine.events;
+
+import jdk.jfr.Category;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+// The rows of a range kept by the values of one column, into a new sheet
+@Name("spreadsheet.Filter")
+@Label("Filter")
+@Category({"Spreadsheet", "Engine"})
+public class FilterEvent extends SheetEvent {
+
+    @Label("Range")
+    private String range;
+
+    @Label("Column")
+    private String column;
+
+    @Label("Rows Scanned")
+    private int rowsScanned;
+
+    @Label("Rows Kept")
+    private int rowsKept;
+
+    @Label("Cells")
+    private int cells;
+
+    public void set(String sheetName, int version, String range, String column, int rowsScanned, int rowsKept, int cells) {
+        setSheet(sheetName, version);
+        this.range = range;
+        this.column = column;
+        this.rowsScanned = rowsScanned;
+        this.rowsKept = rowsKept;
+        this.cells = cells;
+    }
+}
@@ -0,0 +1,31 @@
+package engine.events;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+// One pass of ordering and evaluating cells, after an edit or over a whole sheet just built
+@Name("spreadsheet.Recalculation")
+@Label("Recalculation")
+@Category({"Spreadsheet", "Engine"})
+@Description("Ordering and evaluating the cells of a sheet, either those an edit reaches or all of them")
+public class RecalculationEvent extends SheetEvent {
+
+    @Label("Whole Sheet")
+    @Description("Whether every cell was evaluated, as after loading a sheet, rather than those an edit reaches")
+    private boolean wholeSheet;
+
+    @Label("Cells Evaluated")
+    private int cellsEvaluated;
+
+    @Label("Cells Changed")
+    private int cellsChanged;
+
+    public void set(String sheetName, int version, boolean wholeSheet, int cellsEvaluated, int cellsChanged) {
+        setSheet(sheetName, version);
+        this.wholeSheet = wholeSheet;
+        this.cellsEvaluated = cellsEvaluated;
+        this.cellsChanged = cellsChanged;
+    }
+}
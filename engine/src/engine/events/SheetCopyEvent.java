@@ -0,0 +1,26 @@
+package engine.events;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+// A sheet copied into a new version, sharing its cells until they change
+@Name("spreadsheet.SheetCopy")
+@Label("Sheet Copy")
+@Category({"Spreadsheet", "Engine"})
+@Description("A sheet copied for an edit, a sort or an analysis")
+public class SheetCopyEvent extends SheetEvent {
+
+    @Label("Cells")
+    private int cells;
+
+    @Label("Ranges")
+    private int ranges;
+
+    public void set(String sheetName, int version, int cells, int ranges) {
+        setSheet(sheetName, version);
+        this.cells = cells;
+        this.ranges = ranges;
+    }
+}
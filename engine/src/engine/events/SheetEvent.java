@@ -0,0 +1,23 @@
+package engine.events;
+
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+
+/*
+What every sheet event carries: the sheet and the version the operation made or read.
+Events are filled in only when shouldCommit() says they will be recorded, so they cost next to nothing otherwise.
+ */
+abstract class SheetEvent extends Event {
+
+    // not private, since a recording leaves out the private fields of an event's superclasses
+    @Label("Sheet")
+    String sheetName;
+
+    @Label("Version")
+    int version;
+
+    void setSheet(String sheetName, int version) {
+        this.sheetName = sheetName;
+        this.version = version;
+    }
+}
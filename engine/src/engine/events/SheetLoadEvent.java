@@ -0,0 +1,34 @@
+package engine.events;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+// A sheet uploaded as XML: parsing, building and calculating it, then registering it
+@Name("spreadsheet.SheetLoad")
+@Label("Sheet Load")
+@Category({"Spreadsheet", "Engine"})
+@Description("An STL sheet read from XML, calculated and registered")
+public class SheetLoadEvent extends SheetEvent {
+
+    @Label("Owner")
+    private String owner;
+
+    @Label("Rows")
+    private int rows;
+
+    @Label("Columns")
+    private int columns;
+
+    @Label("Cells")
+    private int cells;
+
+    public void set(String sheetName, int version, String owner, int rows, int columns, int cells) {
+        setSheet(sheetName, version);
+        this.owner = owner;
+        this.rows = rows;
+        this.columns = columns;
+        this.cells = cells;
+    }
+}
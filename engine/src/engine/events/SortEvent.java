@@ -0,0 +1,32 @@
+package engine.events;
+
+import jdk.jfr.Category;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+// The rows of a range sorted by some of its columns, into a copy of the sheet
+@Name("spreadsheet.Sort")
+@Label("Sort")
+@Category({"Spreadsheet", "Engine"})
+public class SortEvent extends SheetEvent {
+
+    @Label("Range")
+    private String range;
+
+    @Label("Columns")
+    private String columns;
+
+    @Label("Rows")
+    private int rows;
+
+    @Label("Cells")
+    private int cells;
+
+    public void set(String sheetName, int version, String range, String columns, int rows, int cells) {
+        setSheet(sheetName, version);
+        this.range = range;
+        this.columns = columns;
+        this.rows = rows;
+        this.cells = cells;
+    }
+}
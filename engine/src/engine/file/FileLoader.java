@@ -3,98 +3,222 @@ package engine.file;
 import cell.api.Cell;
 import cell.impl.CellImpl;
 import coordinate.Coordinate;
-import coordinate.CoordinateImpl;
+import coordinate.CoordinateFactory;
 import coordinate.CoordinateUtils;
-import generated.*;
-import jakarta.xml.bind.JAXBContext;
-import jakarta.xml.bind.JAXBException;
-import jakarta.xml.bind.Unmarshaller;
 import sheet.api.Sheet;
+import sheet.impl.CellCalculator;
 import sheet.impl.SheetImpl;
 
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
 import java.io.IOException;
 import java.io.InputStream;
-
+import java.util.ArrayList;
+import java.util.Collection;
+
+/*
+Loads a sheet from its STL XML.
+The XML is read as a stream: the layout, ranges and <STL-Cell>s are applied as they are read, so no object tree of
+the whole file is ever built and only the sheet itself grows. A cell given twice keeps its last value.
+Once the whole file is read, the formulas of the cells the sheet kept are parsed, on worker threads for a large sheet,
+so a formula that was given again later is never parsed. Wiring the dependency graph and calculating stay ordered.
+The largest sheet accepted is set per loader; the defaults can be changed with the sheet.load.maxRows and
+sheet.load.maxColumns system properties, up to the largest sheet SheetImpl can store.
+ */
 public class FileLoader {
 
-    private static final int MAX_ROWS = 50;
-    private static final int MAX_COLS = 20;
+    public static final int DEFAULT_MAX_ROWS = 50;
+    public static final int DEFAULT_MAX_COLS = 20;
+    public static final String MAX_ROWS_PROPERTY = "sheet.load.maxRows";
+    public static final String MAX_COLS_PROPERTY = "sheet.load.maxColumns";
+
+    // sheets with fewer cells have their formulas parsed on the loading thread
+    private static final int PARALLEL_PARSE_THRESHOLD = 512;
+
+    // configured once and shared by every load
+    private static final XMLInputFactory XML_INPUT_FACTORY = createInputFactory();
+
+    private final int maxRows;
+    private final int maxCols;
+
+    public FileLoader() {
+        this(Integer.getInteger(MAX_ROWS_PROPERTY, DEFAULT_MAX_ROWS), Integer.getInteger(MAX_COLS_PROPERTY, DEFAULT_MAX_COLS));
+    }
+
+    public FileLoader(int maxRows, int maxCols) {
+        if (maxRows < 1 || maxCols < 1) {
+            throw new IllegalArgumentException("Sheet size limits must be at least 1. Provided: " + maxRows + " rows, " + maxCols + " columns.");
+        }
+        if (maxRows > SheetImpl.MAX_ROWS || maxCols > SheetImpl.MAX_COLS) {
+            throw new IllegalArgumentException("Sheet size limits cannot exceed " + SheetImpl.MAX_ROWS + " rows and " + SheetImpl.MAX_COLS
+                    + " columns, the largest sheet that can be stored. Provided: " + maxRows + " rows, " + maxCols + " columns.");
+        }
+        this.maxRows = maxRows;
+        this.maxCols = maxCols;
+    }
 
     public Sheet loadSheetFromXML(InputStream inputStream, String owner) throws IOException {
-        STLSheet stlSheet = loadXMLFile(inputStream);
-        validateSheet(stlSheet);
-        return convertSTLSheetToSheet(stlSheet, owner);
+        Sheet newSheet = readSheet(inputStream, owner);
+        parseFormulas(newSheet);
+        CellCalculator.calculateNewSheet(newSheet);
+        return newSheet;
     }
 
-    private STLSheet loadXMLFile(InputStream inputStream) throws IOException {
+    // Reads the XML into a new sheet, cell by cell, checking the layout and every cell against it on the way
+    private Sheet readSheet(InputStream inputStream, String owner) throws IOException {
+        Sheet newSheet = new SheetImpl();
+        boolean hasLayout = false;
+        boolean hasSize = false;
+        String rangeName = null;
+
         try {
-            JAXBContext context = JAXBContext.newInstance(STLSheet.class);
-            Unmarshaller unmarshaller = context.createUnmarshaller();
-            return (STLSheet) unmarshaller.unmarshal(inputStream);
-        } catch (JAXBException e) {
+            XMLStreamReader reader = XML_INPUT_FACTORY.createXMLStreamReader(inputStream);
+            try {
+                while (reader.hasNext()) {
+                    if (reader.next() != XMLStreamConstants.START_ELEMENT) {
+                        continue;
+                    }
+                    switch (reader.getLocalName()) {
+                        case "STL-Sheet" -> newSheet.setName(requiredAttribute(reader, "name"));
+                        case "STL-Layout" -> {
+                            readLayout(reader, newSheet);
+                            hasLayout = true;
+                        }
+                        case "STL-Size" -> {
+                            newSheet.setRowHeight(intAttribute(reader, "rows-height-units"));
+                            newSheet.setColWidth(intAttribute(reader, "column-width-units"));
+                            hasSize = true;
+                        }
+                        case "STL-Range" -> rangeName = requiredAttribute(reader, "name");
+                        case "STL-Boundaries" -> {
+                            requireLayout(hasLayout);
+                            if (rangeName == null) {
+                                throw new IllegalArgumentException("Range boundaries found outside of a range.");
+                            }
+                            newSheet.addRange(rangeName, requiredAttribute(reader, "from") + ".." + requiredAttribute(reader, "to"));
+                            rangeName = null;
+                        }
+                        case "STL-Cell" -> {
+                            requireLayout(hasLayout);
+                            readCell(reader, newSheet, owner);
+                        }
+                        default -> {
+                        }
+                    }
+                }
+            } finally {
+                reader.close();
+            }
+        } catch (XMLStreamException e) {
             throw new IOException("An error occurred while loading the XML file.", e);
         }
+
+        requireLayout(hasLayout);
+        if (!hasSize) {
+            throw new IllegalArgumentException("Invalid sheet layout: The sheet has no row height and column width.");
+        }
+        if (newSheet.getName() == null) {
+            throw new IllegalArgumentException("The sheet has no name.");
+        }
+        return newSheet;
     }
 
-    private void validateSheet(STLSheet sheet) {
-        STLLayout layout = sheet.getSTLLayout();
-        if (layout.getRows() < 1 || layout.getRows() > MAX_ROWS ||
-                layout.getColumns() < 1 || layout.getColumns() > MAX_COLS) {
-            throw new IllegalArgumentException("Invalid sheet layout: Rows and columns must be within allowed range.");
+    private void readLayout(XMLStreamReader reader, Sheet newSheet) {
+        int rows = intAttribute(reader, "rows");
+        int columns = intAttribute(reader, "columns");
+        if (rows < 1 || rows > maxRows || columns < 1 || columns > maxCols) {
+            throw new IllegalArgumentException("Invalid sheet layout: Rows must be between 1 and " + maxRows +
+                    " and columns between 1 and " + maxCols + ".");
         }
+        newSheet.setRows(rows);
+        newSheet.setCols(columns);
+    }
 
-        for (STLCell cell : sheet.getSTLCells().getSTLCell()) {
-            int row = cell.getRow();
-            String column = cell.getColumn();
-            int columnIndex = CoordinateUtils.convertColumnToIndex(column);
+    // Reads one <STL-Cell> up to its end and puts it in the sheet, in place of any cell given before at its coordinate
+    private void readCell(XMLStreamReader reader, Sheet newSheet, String owner) throws XMLStreamException {
+        int row = intAttribute(reader, "row");
+        String column = requiredAttribute(reader, "column");
+        int col = CoordinateUtils.convertColumnToIndex(column);
+        if (row < 1 || row > newSheet.getRows() || col < 1 || col > newSheet.getCols()) {
+            throw new IllegalArgumentException("Invalid cell location: Cell at row " + row + ", column " + column + " is out of bounds.");
+        }
 
-            if (row < 1 || row > layout.getRows() || columnIndex < 1 || columnIndex > layout.getColumns()) {
-                throw new IllegalArgumentException("Invalid cell location: Cell at row " + row + ", column " + column + " is out of bounds.");
+        String originalValue = null;
+        while (reader.nextTag() == XMLStreamConstants.START_ELEMENT) {
+            if (reader.getLocalName().equals("STL-Original-Value")) {
+                originalValue = reader.getElementText();
+            } else {
+                skipElement(reader);
             }
         }
+        if (originalValue == null) {
+            throw new IllegalArgumentException("Cell at row " + row + ", column " + column + " has no original value.");
+        }
+
+        Coordinate coordinate = CoordinateFactory.createCoordinate(row, col);
+        newSheet.addCell(coordinate, new CellImpl(coordinate, originalValue, 1, owner, newSheet));
     }
-    //  Converts an STLSheet object into a Sheet object.
-    private Sheet convertSTLSheetToSheet(STLSheet stlSheet, String owner) {
-        Sheet newSheet = new SheetImpl();
-        newSheet.setName(stlSheet.getName());
-
-        STLLayout layout = stlSheet.getSTLLayout();
-        newSheet.setRows(layout.getRows());
-        newSheet.setCols(layout.getColumns());
-        STLSize size = layout.getSTLSize();
-        newSheet.setRowHeight(size.getRowsHeightUnits());
-        newSheet.setColWidth(size.getColumnWidthUnits());
-
-        // Process ranges
-        if (stlSheet.getSTLRanges() != null && stlSheet.getSTLRanges().getSTLRange() != null) {
-            for (STLRange range : stlSheet.getSTLRanges().getSTLRange()) {
-                String name = range.getName();
-                String from = range.getSTLBoundaries().getFrom();
-                String to = range.getSTLBoundaries().getTo();
-                newSheet.addRange(name, from + ".." + to);
-            }
+
+    // Parses the formula of every cell ahead of the calculation, so that the sheet's formulas are parsed in parallel.
+    // A formula that cannot be parsed is left for the calculation, which parses it again and reports the error.
+    private static void parseFormulas(Sheet sheet) {
+        Collection<Cell> cells = sheet.getActiveCells().values();
+        if (cells.size() < PARALLEL_PARSE_THRESHOLD) {
+            return;
         }
+        new ArrayList<>(cells).parallelStream().forEach(cell -> {
+            try {
+                cell.getExpression();
+            } catch (RuntimeException e) {
+                // reported by the calculation
+            }
+        });
+    }
 
-        // Process cells
-        for (STLCell stlCell : stlSheet.getSTLCells().getSTLCell()) {
-            String originalValue = stlCell.getSTLOriginalValue();
-            int row = stlCell.getRow();
-            String column = stlCell.getColumn();
-            int col = CoordinateUtils.convertColumnToIndex(column);
+    private static void skipElement(XMLStreamReader reader) throws XMLStreamException {
+        int depth = 1;
+        while (depth > 0) {
+            int event = reader.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                depth++;
+            } else if (event == XMLStreamConstants.END_ELEMENT) {
+                depth--;
+            }
+        }
+    }
 
-            Coordinate coordinate = new CoordinateImpl(row, col);
-            Cell cell = new CellImpl(row, col, originalValue, 1, owner, newSheet);
-            newSheet.addCell(coordinate, cell);
+    private static void requireLayout(boolean hasLayout) {
+        if (!hasLayout) {
+            throw new IllegalArgumentException("Invalid sheet layout: The layout must come before the ranges and cells.");
         }
+    }
 
-        newSheet.updateDependenciesAndInfluences();
+    private static String requiredAttribute(XMLStreamReader reader, String name) {
+        String value = reader.getAttributeValue(null, name);
+        if (value == null) {
+            throw new IllegalArgumentException("Missing attribute '" + name + "' in <" + reader.getLocalName() + ">.");
+        }
+        return value.trim();
+    }
 
-        // Calculate the effective values for each cell
-        for (Cell cell : newSheet.orderCellsForCalculation()) {
-            cell.calculateEffectiveValue();
-            newSheet.addCellThatChanged(cell);
+    private static int intAttribute(XMLStreamReader reader, String name) {
+        String value = requiredAttribute(reader, name);
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Attribute '" + name + "' in <" + reader.getLocalName() + "> must be a whole number. Provided: " + value);
         }
+    }
 
-        return newSheet;
+    // Uploaded files come from users, so they may not pull in DTDs or external entities
+    private static XMLInputFactory createInputFactory() {
+        XMLInputFactory factory = XMLInputFactory.newFactory();
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        factory.setProperty(XMLInputFactory.IS_COALESCING, true);
+        return factory;
     }
+
 }
@@ -6,6 +6,7 @@ import coordinate.CoordinateUtils;
 import dto.api.PermissionRequestDTO;
 import dto.api.RangeDTO;
 import dto.api.SheetDTO;
+import dto.api.SheetDeltaDTO;
 import dto.impl.CellDTOImpl;
 import dto.impl.PermissionRequestDTOImpl;
 import dto.impl.SheetSummaryDTO;
@@ -14,7 +15,18 @@ import dto.permission.PermissionType;
 import engine.DTOFactory.DTOFactory;
 import engine.DTOFactory.DTOFactoryImpl;
 import engine.api.Engine;
+import engine.api.SheetSnapshot;
+import engine.api.SheetVersionListener;
+import engine.api.VersionStoreStats;
+import engine.events.CellUpdateEvent;
+import engine.events.DynamicAnalysisEvent;
+import engine.events.SheetLoadEvent;
 import engine.file.FileLoader;
+import engine.metrics.EngineMetrics;
+import engine.metrics.MetricsRegistry;
+import engine.storage.LogRecord;
+import engine.storage.SnapshotFile;
+import engine.storage.WriteAheadLog;
 import permission.PermissionRequest;
 import permission.PermissionsManager;
 import range.impl.RangeManager;
@@ -22,45 +34,294 @@ import sheet.api.Sheet;
 import sheet.impl.DynamicAnalysisService;
 import sheet.impl.SheetManager;
 
+import java.io.Closeable;
+import java.io.IOException;
 import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.function.Consumer;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
-public class EngineImpl implements Engine {
+/*
+Without a data directory the engine lives only in memory.
+With one, every change is kept in a write-ahead log there, and a snapshot of every sheet is written there periodically.
+Opening the engine loads the last snapshot and replays only the log written after it; the log before it is deleted
+once the snapshot is safely on disk. Closing it writes a last snapshot and closes the log, so another engine may then
+open the same directory; changes made after that fail.
+Every change holds the log's change lock while it is made and appended, taken before any lock of the sheet or its permissions.
+A change becomes visible only once its record is on disk: until then a new sheet, or a sheet's changed permissions, are
+only staged, where a checkpoint still finds them. If the log cannot be written, the staged change is dropped.
+A permission change holds its sheet's permission lock, taken before the change lock, until it is published,
+so the next change to the same permissions starts from it.
+ */
+public class EngineImpl implements Engine, Closeable {
 
     private final DTOFactory dtoFactory;
     private final FileLoader fileLoader;
     private final SheetManager sheetManager;
+    // what readers see; a sheet's manager is replaced by a changed copy, never changed once published
     private final Map<String, PermissionsManager> permissionsManagers;
+    // sheets registered and permissions changed whose record is appended but not yet on disk
+    private final Map<String, Sheet> stagedSheets = new ConcurrentHashMap<>();
+    private final Map<String, PermissionsManager> stagedPermissionsManagers = new ConcurrentHashMap<>();
+    private final Map<String, Object> permissionLocks = new ConcurrentHashMap<>();
     private final DynamicAnalysisService dynamicAnalysisService;
     private final RangeManager rangeManager;
+    public static final String SNAPSHOT_INTERVAL_PROPERTY = "engine.snapshot.intervalSeconds";
+    public static final long DEFAULT_SNAPSHOT_INTERVAL_SECONDS = 300;
+    // the first log segment of a data directory that has no snapshot yet
+    private static final int FIRST_LOG_SEGMENT = 1;
+
+    private WriteAheadLog writeAheadLog;
+    private Path dataDirectory;
+    private ScheduledExecutorService snapshotScheduler;
+    // guarded by snapshotLock
+    private boolean closed;
+    // the log position the last snapshot was taken at, so an engine with no changes since is not written again
+    private long snapshotLogPosition;
+    private final Object snapshotLock = new Object();
+    // whether the last scheduled snapshot failed, so a failure that repeats is reported only when it starts
+    private boolean scheduledSnapshotFailing;
 
     public EngineImpl() {
         this.dtoFactory = new DTOFactoryImpl();
         this.fileLoader = new FileLoader();
         this.sheetManager = new SheetManager(dtoFactory);
-        this.permissionsManagers = new HashMap<>();
+        this.permissionsManagers = new ConcurrentHashMap<>();
         this.dynamicAnalysisService = new DynamicAnalysisService(dtoFactory);
         this.rangeManager = new RangeManager(dtoFactory);
+        this.writeAheadLog = WriteAheadLog.disabled();
     }
 
+    private EngineImpl(Path dataDirectory) {
+        this();
+        this.dataDirectory = dataDirectory;
+    }
+
+    // Rebuilds the state kept in the data directory and keeps every further change there until the engine is closed
+    public static EngineImpl open(Path dataDirectory) throws IOException {
+        EngineImpl engine = new EngineImpl(dataDirectory);
+        engine.restore();
+        return engine;
+    }
+
+    private void restore() throws IOException {
+        Files.createDirectories(dataDirectory);
+        int firstLogSegment = SnapshotFile.read(dataDirectory, FIRST_LOG_SEGMENT, this::restoreSheet);
+        // the log is attached only after replaying, so replayed changes are not logged again
+        WriteAheadLog openedLog = WriteAheadLog.open(dataDirectory, firstLogSegment, this::replay);
+        this.writeAheadLog = openedLog;
+        sheetManager.setWriteAheadLog(openedLog);
+
+        long interval = Long.getLong(SNAPSHOT_INTERVAL_PROPERTY, DEFAULT_SNAPSHOT_INTERVAL_SECONDS);
+        if (interval > 0) {
+            snapshotScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "engine-snapshot");
+                thread.setDaemon(true);
+                return thread;
+            });
+            snapshotScheduler.scheduleWithFixedDelay(this::writeScheduledSnapshot, interval, interval, TimeUnit.SECONDS);
+        }
+    }
+
+    // Stops the scheduled snapshots, writes a last one and closes the log; closing again does nothing
     @Override
-    public void loadFile(InputStream inputStream, String owner) throws Exception {
-        Sheet sheet = fileLoader.loadSheetFromXML(inputStream, owner);
-        String sheetName = sheet.getName();
+    public void close() throws IOException {
+        if (snapshotScheduler != null) {
+            // a snapshot already running finishes first, and one scheduled after finds the engine closed
+            snapshotScheduler.shutdown();
+        }
+        synchronized (snapshotLock) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            try {
+                if (dataDirectory != null) {
+                    writeSnapshotLocked();
+                }
+            } finally {
+                writeAheadLog.close();
+            }
+        }
+    }
+
+    // Reports this engine's version store in the registry, in place of any engine registered there before
+    public void registerGauges(MetricsRegistry registry) {
+        registry.gauge("engine_sheet_versions", "Versions held of each sheet, whole or as reverse deltas.",
+                "sheet", sheetManager::getVersionCounts);
+        registry.gauge("engine_version_store_materialized_cells", "Cells of all versions held whole.",
+                () -> sheetManager.getVersionStoreStats().getMaterializedCells());
+        registry.gauge("engine_version_store_delta_bytes", "Bytes of the reverse deltas older versions are held as.",
+                () -> sheetManager.getVersionStoreStats().getDeltaBytes());
+    }
+
+    // Writes a snapshot of every sheet and deletes the log it makes unnecessary; does nothing without a data directory.
+    // Returns false when nothing changed since the last snapshot.
+    public boolean writeSnapshot() throws IOException {
+        if (dataDirectory == null) {
+            return false;
+        }
+        // one snapshot at a time, so an older one never replaces a newer one
+        synchronized (snapshotLock) {
+            if (closed) {
+                return false;
+            }
+            return writeSnapshotLocked();
+        }
+    }
 
-        if (sheetManager.sheetExists(sheetName)) {
-            throw new IllegalArgumentException("A sheet with the name '" + sheetName + "' already exists.");
+    // Called holding snapshotLock
+    private boolean writeSnapshotLocked() throws IOException {
+        if (writeAheadLog.getAppendedPosition() == snapshotLogPosition) {
+            return false;
         }
+        // only references and copies are taken while changes wait; the file is written after they go on
+        WriteAheadLog.Checkpoint<EngineState> checkpoint = writeAheadLog.checkpoint(() ->
+                new EngineState(captureSheets(), copyPermissionsManagers(), writeAheadLog.getAppendedPosition()));
+        EngineState state = checkpoint.getState();
+        SnapshotFile.write(dataDirectory, checkpoint.getNextSegment(), state.sheets, state.permissionsManagers);
+        writeAheadLog.deleteSegmentsBefore(checkpoint.getNextSegment());
+        snapshotLogPosition = state.logPosition;
+        return true;
+    }
+
+    // Runs on the snapshot thread only
+    private void writeScheduledSnapshot() {
+        try {
+            writeSnapshot();
+            scheduledSnapshotFailing = false;
+        } catch (IOException | RuntimeException e) {
+            // the log still holds every change, so the next attempt loses nothing
+            EngineMetrics.SNAPSHOT_FAILURES.increment();
+            if (!scheduledSnapshotFailing) {
+                scheduledSnapshotFailing = true;
+                e.printStackTrace();
+            }
+        }
+    }
+
+    // The sheets as the log has them. Staged ones are read first: a sheet is published before it is unstaged,
+    // so none is missed, and a published sheet wins since it may already hold later changes.
+    private Map<String, Sheet> captureSheets() {
+        Map<String, Sheet> sheets = new LinkedHashMap<>(stagedSheets);
+        sheets.putAll(sheetManager.getCurrentSheets());
+        return sheets;
+    }
+
+    // Copies of the permissions as the log has them; staged ones win, and are read first for the same reason
+    private Map<String, PermissionsManager> copyPermissionsManagers() {
+        Map<String, PermissionsManager> copies = new HashMap<>();
+        stagedPermissionsManagers.forEach((sheetName, permissionsManager) -> copies.put(sheetName, permissionsManager.copy()));
+        permissionsManagers.forEach((sheetName, permissionsManager) -> copies.putIfAbsent(sheetName, permissionsManager.copy()));
+        return copies;
+    }
+
+    private void restoreSheet(Sheet sheet, PermissionsManager permissionsManager) {
+        permissionsManagers.put(sheet.getName(), permissionsManager);
+        sheetManager.restoreSheet(sheet.getName(), sheet);
+    }
+
+    @Override
+    public void loadFile(InputStream inputStream, String owner) throws Exception {
+        SheetLoadEvent event = new SheetLoadEvent();
+        event.begin();
+        Sheet sheet = fileLoader.loadSheetFromXML(inputStream, owner);
 
         sheet.setSheetVersion(1);
         sheet.setOwner(owner);
-        sheetManager.addSheet(sheetName, sheet);
+        registerSheet(sheet);
+        if (event.shouldCommit()) {
+            event.set(sheet.getName(), sheet.getVersion(), owner, sheet.getRows(), sheet.getCols(), sheet.getActiveCells().size());
+            event.commit();
+        }
+    }
 
+    private void registerSheet(Sheet sheet) {
+        String sheetName = sheet.getName();
+        long logPosition;
         // Initialize PermissionsManager for the new sheet
-        PermissionsManager permissionsManager = new PermissionsManager(owner);
+        PermissionsManager permissionsManager = new PermissionsManager(sheet.getOwner());
         // Owner has OWNER permission by default in PermissionsManager constructor
-        permissionsManagers.put(sheetName, permissionsManager);
+
+        Lock changeLock = writeAheadLog.changeLock();
+        changeLock.lock();
+        try {
+            // registering is quick, so one lock keeps two uploads of the same name from both taking it
+            synchronized (permissionsManagers) {
+                if (sheetManager.sheetExists(sheetName) || stagedSheets.containsKey(sheetName)) {
+                    throw new IllegalArgumentException("A sheet with the name '" + sheetName + "' already exists.");
+                }
+                logPosition = writeAheadLog.append(LogRecord.loadSheet(sheet));
+                stagedPermissionsManagers.put(sheetName, permissionsManager);
+                stagedSheets.put(sheetName, sheet);
+            }
+        } finally {
+            changeLock.unlock();
+        }
+
+        try {
+            writeAheadLog.awaitDurable(logPosition);
+            permissionsManagers.put(sheetName, permissionsManager);
+            sheetManager.addSheet(sheetName, sheet);
+        } finally {
+            stagedSheets.remove(sheetName, sheet);
+            stagedPermissionsManagers.remove(sheetName, permissionsManager);
+        }
+    }
+
+    // Makes a change to a copy of the sheet's permissions, logs it as the record the change returns,
+    // and publishes the copy once the record is on disk
+    private void changePermissions(String sheetName, Function<PermissionsManager, LogRecord> change) {
+        // one change at a time keeps the requests in the log in the order they were made, as handling refers to them by index
+        synchronized (permissionLocks.computeIfAbsent(sheetName, name -> new Object())) {
+            PermissionsManager changedPermissions;
+            long logPosition;
+            Lock changeLock = writeAheadLog.changeLock();
+            changeLock.lock();
+            try {
+                changedPermissions = getPermissionsManager(sheetName).copy();
+                LogRecord logRecord = change.apply(changedPermissions);
+                logPosition = writeAheadLog.append(logRecord);
+                stagedPermissionsManagers.put(sheetName, changedPermissions);
+            } finally {
+                changeLock.unlock();
+            }
+
+            try {
+                writeAheadLog.awaitDurable(logPosition);
+                permissionsManagers.put(sheetName, changedPermissions);
+            } finally {
+                stagedPermissionsManagers.remove(sheetName, changedPermissions);
+            }
+        }
+    }
+
+    // Applies a change read back from the write-ahead log; permissions were checked when it was first made
+    private void replay(LogRecord record) {
+        String sheetName = record.getSheetName();
+        switch (record.getType()) {
+            case LOAD_SHEET -> registerSheet(record.getSheet());
+            case UPDATE_CELL -> sheetManager.updateCell(sheetName, record.getArgument(0), record.getArgument(1), record.getArgument(2));
+            case ADD_RANGE -> addRangeToSheet(sheetName, record.getArgument(0), record.getArgument(1));
+            case DELETE_RANGE -> deleteRangeFromSheet(sheetName, record.getArgument(0));
+            case BACKGROUND_COLOR -> updateCellBackgroundColor(sheetName, record.getArgument(0), record.getArgument(1));
+            case TEXT_COLOR -> updateCellTextColor(sheetName, record.getArgument(0), record.getArgument(1));
+            case RESET_DESIGN -> resetCellDesign(sheetName, record.getArgument(0));
+            case PERMISSION_REQUEST -> submitPermissionRequest(sheetName, record.getArgument(0),
+                    PermissionType.valueOf(record.getArgument(1)));
+            case HANDLE_PERMISSION_REQUEST -> handlePermissionRequest(sheetName, Integer.parseInt(record.getArgument(0)),
+                    record.getArgument(1), PermissionStatus.valueOf(record.getArgument(2)));
+            case RESPOND_PERMISSION_REQUEST -> handleResponseRequest(sheetName, record.getArgument(0), record.getArgument(1),
+                    PermissionStatus.valueOf(record.getArgument(2)));
+        }
     }
 
     @Override
@@ -78,7 +339,7 @@ public class EngineImpl implements Engine {
     }
 
     @Override
-    public void updateCell(String sheetName, String coordinate, String newValue, String userName) {
+    public SheetDeltaDTO updateCell(String sheetName, String coordinate, String newValue, String userName) {
         // Permission check
         PermissionsManager permissionsManager = getPermissionsManager(sheetName);
         PermissionType userPermission = permissionsManager.getUserPermission(userName);
@@ -86,7 +347,14 @@ public class EngineImpl implements Engine {
             throw new IllegalArgumentException("User '" + userName + "' does not have permission to update cells in this sheet.");
         }
 
-        sheetManager.updateCell(sheetName, coordinate, newValue, userName);
+        CellUpdateEvent event = new CellUpdateEvent();
+        event.begin();
+        SheetDeltaDTO sheetDelta = sheetManager.updateCell(sheetName, coordinate, newValue, userName);
+        if (event.shouldCommit()) {
+            event.set(sheetName, sheetDelta.getVersion(), coordinate, userName, sheetDelta.getCells().size());
+            event.commit();
+        }
+        return sheetDelta;
     }
 
     @Override
@@ -96,14 +364,14 @@ public class EngineImpl implements Engine {
 
     @Override
     public void addRangeToSheet(String sheetName, String name, String range) {
-        Sheet sheet = sheetManager.getCurrentSheet(sheetName);
-        rangeManager.addRange(sheet, name, range);
+        sheetManager.updateCurrentSheet(sheetName, LogRecord.of(LogRecord.Type.ADD_RANGE, sheetName, name, range),
+                sheet -> rangeManager.addRange(sheet, name, range));
     }
 
     @Override
     public void deleteRangeFromSheet(String sheetName, String name) {
-        Sheet sheet = sheetManager.getCurrentSheet(sheetName);
-        rangeManager.deleteRange(sheet, name);
+        sheetManager.updateCurrentSheet(sheetName, LogRecord.of(LogRecord.Type.DELETE_RANGE, sheetName, name),
+                sheet -> rangeManager.deleteRange(sheet, name));
     }
 
     @Override
@@ -141,42 +409,63 @@ public class EngineImpl implements Engine {
         return sheetManager.getSheetDTOByVersion(sheetName, versionNumber);
     }
 
+    @Override
+    public VersionStoreStats getVersionStoreStats() {
+        return sheetManager.getVersionStoreStats();
+    }
+
     @Override
     public SheetDTO getCurrentSheetDTO(String sheetName) {
         return sheetManager.getCurrentSheetDTO(sheetName);
     }
 
+    @Override
+    public void addVersionListener(SheetVersionListener listener) {
+        sheetManager.addVersionListener(listener);
+    }
+
+    @Override
+    public SheetSnapshot getCurrentSheetSnapshot(String sheetName) {
+        return sheetManager.getCurrentSheetSnapshot(sheetName);
+    }
+
+    @Override
+    public SheetSnapshot getSheetSnapshot(String sheetName, int versionNumber) {
+        return sheetManager.getSheetSnapshot(sheetName, versionNumber);
+    }
+
     @Override
     public void updateCellBackgroundColor(String sheetName, String cellId, String colorHex) {
         // Permission check (if required)
-        Cell cell =updateCell(sheetName, cellId);
-        cell.setBackgroundColor(colorHex);
+        updateCell(sheetName, cellId, LogRecord.of(LogRecord.Type.BACKGROUND_COLOR, sheetName, cellId, colorHex),
+                cell -> cell.setBackgroundColor(colorHex));
     }
-private Cell updateCell(String sheetName, String cellId) {
-    Sheet sheet = sheetManager.getCurrentSheet(sheetName);
+private void updateCell(String sheetName, String cellId, LogRecord logRecord, Consumer<Cell> change) {
     Coordinate coordinate = CoordinateUtils.parseCellId(cellId);
-    CoordinateUtils.validateCoordinate(sheet, coordinate);
+    sheetManager.updateCurrentSheet(sheetName, logRecord, Set.of(coordinate), sheet -> {
+        CoordinateUtils.validateCoordinate(sheet, coordinate);
 
-    Cell cell = sheet.getCell(coordinate);
-    if (cell == null) {
-        throw new IllegalArgumentException("Cell " + cellId + " does not exist.");
-    }
-    return cell;
+        Cell cell = sheet.getCellForUpdate(coordinate);
+        if (cell == null) {
+            throw new IllegalArgumentException("Cell " + cellId + " does not exist.");
+        }
+        change.accept(cell);
+    });
 }
     @Override
     public void updateCellTextColor(String sheetName, String cellId, String colorHex) {
         // Permission check (if required)
-        Cell cell =updateCell(sheetName, cellId);
-
-        cell.setTextColor(colorHex);
+        updateCell(sheetName, cellId, LogRecord.of(LogRecord.Type.TEXT_COLOR, sheetName, cellId, colorHex),
+                cell -> cell.setTextColor(colorHex));
     }
 
     @Override
     public void resetCellDesign(String sheetName, String cellId) {
         // Permission check (if required)
-        Cell cell =updateCell(sheetName, cellId);
-        cell.setTextColor("#000000"); // Black text
-        cell.setBackgroundColor("#FFFFFF"); // White background
+        updateCell(sheetName, cellId, LogRecord.of(LogRecord.Type.RESET_DESIGN, sheetName, cellId), cell -> {
+            cell.setTextColor("#000000"); // Black text
+            cell.setBackgroundColor("#FFFFFF"); // White background
+        });
     }
 
     @Override
@@ -201,8 +490,10 @@ private Cell updateCell(String sheetName, String cellId) {
 
     @Override
     public void submitPermissionRequest(String sheetName, String requesterUsername, PermissionType requestedPermission) {
-        PermissionsManager permissionsManager = getPermissionsManager(sheetName);
-        permissionsManager.submitPermissionRequest(requesterUsername, requestedPermission);
+        changePermissions(sheetName, permissionsManager -> {
+            permissionsManager.submitPermissionRequest(requesterUsername, requestedPermission);
+            return LogRecord.of(LogRecord.Type.PERMISSION_REQUEST, sheetName, requesterUsername, requestedPermission.name());
+        });
     }
 
     @Override
@@ -213,33 +504,37 @@ private Cell updateCell(String sheetName, String cellId) {
 
     @Override
     public void handlePermissionRequest(String sheetName, int requestIndex, String approverUsername, PermissionStatus status) {
-        PermissionsManager permissionsManager = getPermissionsManager(sheetName);
-        permissionsManager.handlePermissionRequest(requestIndex, approverUsername, status);
+        changePermissions(sheetName, permissionsManager -> {
+            permissionsManager.handlePermissionRequest(requestIndex, approverUsername, status);
+            return LogRecord.of(LogRecord.Type.HANDLE_PERMISSION_REQUEST, sheetName,
+                    String.valueOf(requestIndex), approverUsername, status.name());
+        });
     }
 
     @Override
     public void handleResponseRequest(String sheetName, String requesterUsername, String approverUsername, PermissionStatus status) {
-        PermissionsManager permissionsManager = getPermissionsManager(sheetName);
-
-        List<PermissionRequest> requests = permissionsManager.getPermissionRequests();
-        Optional<PermissionRequest> requestOptional = requests.stream()
-                .filter(request -> request.getUsername().equals(requesterUsername) && request.getStatus() == PermissionStatus.PENDING)
-                .findFirst();
-
-        if (requestOptional.isEmpty()) {
-            throw new IllegalArgumentException("No pending request found for user '" + requesterUsername + "' in sheet '" + sheetName + "'.");
-        }
+        changePermissions(sheetName, permissionsManager -> {
+            List<PermissionRequest> requests = permissionsManager.getPermissionRequests();
+            Optional<PermissionRequest> requestOptional = requests.stream()
+                    .filter(request -> request.getUsername().equals(requesterUsername) && request.getStatus() == PermissionStatus.PENDING)
+                    .findFirst();
+
+            if (requestOptional.isEmpty()) {
+                throw new IllegalArgumentException("No pending request found for user '" + requesterUsername + "' in sheet '" + sheetName + "'.");
+            }
 
-        if (!approverUsername.equals(permissionsManager.getOwnerUsername())) {
-            throw new IllegalArgumentException("Only the owner can handle permission requests.");
-        }
+            if (!approverUsername.equals(permissionsManager.getOwnerUsername())) {
+                throw new IllegalArgumentException("Only the owner can handle permission requests.");
+            }
 
-        PermissionRequest request = requestOptional.get();
-        request.setStatus(status);
+            PermissionRequest request = requestOptional.get();
+            request.setStatus(status);
 
-        if (status == PermissionStatus.APPROVED) {
-            permissionsManager.grantPermission(requesterUsername, request.getRequestedPermission());
-        }
+            if (status == PermissionStatus.APPROVED) {
+                permissionsManager.grantPermission(requesterUsername, request.getRequestedPermission());
+            }
+            return LogRecord.of(LogRecord.Type.RESPOND_PERMISSION_REQUEST, sheetName, requesterUsername, approverUsername, status.name());
+        });
     }
 
     @Override
@@ -288,13 +583,41 @@ private Cell updateCell(String sheetName, String cellId) {
 
     @Override
     public SheetDTO performDynamicAnalysis(String sheetName, Map<String, Double> cellValues) {
+        DynamicAnalysisEvent event = new DynamicAnalysisEvent();
+        event.begin();
         Sheet sheet = sheetManager.getCurrentSheet(sheetName);
-        return dynamicAnalysisService.performDynamicAnalysis(sheet, cellValues);
+        SheetDTO analysedSheet = dynamicAnalysisService.performDynamicAnalysis(sheet, cellValues);
+        commitDynamicAnalysisEvent(event, sheet, cellValues.size());
+        return analysedSheet;
     }
 
     @Override
     public SheetDTO performSingleDynamicAnalysis(String sheetName, String cellId, String newValue) {
+        DynamicAnalysisEvent event = new DynamicAnalysisEvent();
+        event.begin();
         Sheet sheet = sheetManager.getCurrentSheet(sheetName);
-        return dynamicAnalysisService.performSingleDynamicAnalysis(sheet, cellId, newValue);
+        SheetDTO analysedSheet = dynamicAnalysisService.performSingleDynamicAnalysis(sheet, cellId, newValue);
+        commitDynamicAnalysisEvent(event, sheet, 1);
+        return analysedSheet;
+    }
+
+    private static void commitDynamicAnalysisEvent(DynamicAnalysisEvent event, Sheet sheet, int cellsGiven) {
+        if (event.shouldCommit()) {
+            event.set(sheet.getName(), sheet.getVersion(), cellsGiven, sheet.getActiveCells().size());
+            event.commit();
+        }
+    }
+
+    // What a snapshot is written from, captured while no change is being made
+    private static class EngineState {
+        private final Map<String, Sheet> sheets;
+        private final Map<String, PermissionsManager> permissionsManagers;
+        private final long logPosition;
+
+        private EngineState(Map<String, Sheet> sheets, Map<String, PermissionsManager> permissionsManagers, long logPosition) {
+            this.sheets = sheets;
+            this.permissionsManagers = permissionsManagers;
+            this.logPosition = logPosition;
+        }
     }
 }
@@ -0,0 +1,26 @@
+package engine.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+// A count that only goes up, such as edits made or cache hits
+public class Counter {
+    private final LongAdder count = new LongAdder();
+
+    Counter() {
+    }
+
+    public void increment() {
+        count.increment();
+    }
+
+    public void add(long amount) {
+        if (amount < 0) {
+            throw new IllegalArgumentException("A counter cannot go down. Provided: " + amount);
+        }
+        count.add(amount);
+    }
+
+    public long get() {
+        return count.sum();
+    }
+}
@@ -0,0 +1,45 @@
+package engine.metrics;
+
+/*
+The metrics of the engine and of the requests it serves, all in one registry.
+Sheets and the formula parser record into them wherever they run, since neither knows the engine it belongs to;
+the gauges of the version store are registered by whoever creates the engine, once it is constructed.
+ */
+public final class EngineMetrics {
+
+    public static final MetricsRegistry REGISTRY = new MetricsRegistry();
+
+    private static final double[] SECONDS = {
+            0.0001, 0.00025, 0.0005, 0.001, 0.0025, 0.005, 0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1, 2.5, 5, 10};
+    private static final double[] CELLS = {
+            1, 2, 5, 10, 25, 50, 100, 250, 500, 1000, 2500, 5000, 10_000, 25_000, 50_000, 100_000};
+    private static final double[] BYTES = {
+            256, 1024, 4096, 16_384, 65_536, 262_144, 1_048_576, 4_194_304, 16_777_216, 67_108_864};
+
+    public static final Histogram CELL_UPDATE_SECONDS = REGISTRY.histogram("engine_cell_update_seconds",
+            "Time to make a new sheet version from a cell edit: copying the sheet, rewiring the cell and recalculating.", SECONDS);
+    public static final Counter CELL_UPDATE_FAILURES = REGISTRY.counter("engine_cell_update_failures_total",
+            "Cell edits refused, such as ones that would make a circular dependency.");
+    public static final Histogram RECALCULATION_SECONDS = REGISTRY.histogram("engine_recalculation_seconds",
+            "Time to order and evaluate the cells a cell edit reaches.", SECONDS);
+    public static final Histogram CELLS_EVALUATED_PER_EDIT = REGISTRY.histogram("engine_cells_evaluated_per_edit",
+            "Cells evaluated after a cell edit: the edited cell and every cell calculated from it.", CELLS);
+    public static final Histogram CELLS_CHANGED_PER_EDIT = REGISTRY.histogram("engine_cells_changed_per_edit",
+            "Cells whose value changed after a cell edit.", CELLS);
+    public static final Histogram SHEET_COPY_SECONDS = REGISTRY.histogram("engine_sheet_copy_seconds",
+            "Time to copy a sheet into a new version, for an edit, a sort or an analysis.", SECONDS);
+    public static final Counter SNAPSHOT_FAILURES = REGISTRY.counter("engine_snapshot_failures_total",
+            "Scheduled snapshots that failed; the log keeps every change until one succeeds.");
+    public static final Counter PARSE_CACHE_HITS = REGISTRY.counter("engine_parse_cache_hits_total",
+            "Formulas found already parsed.");
+    public static final Counter PARSE_CACHE_MISSES = REGISTRY.counter("engine_parse_cache_misses_total",
+            "Formulas parsed because they were not in the cache.");
+
+    private EngineMetrics() {
+    }
+
+    // The size of the serialized responses of one endpoint
+    public static Histogram responseBytes(String endpoint) {
+        return REGISTRY.histogram("http_response_bytes", "Bytes of serialized JSON sent in responses.", "endpoint", endpoint, BYTES);
+    }
+}
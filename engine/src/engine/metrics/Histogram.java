@@ -0,0 +1,70 @@
+package engine.metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+
+/*
+Observed values counted into buckets by their upper bound, together with their sum, as in a Prometheus histogram.
+Observing takes no lock, so it is cheap enough for every edit and every response.
+ */
+public class Histogram {
+    private final double[] upperBounds;
+    // one count per bound and a last one for values above every bound; not cumulative until read
+    private final LongAdder[] bucketCounts;
+    private final DoubleAdder sum = new DoubleAdder();
+
+    Histogram(double[] upperBounds) {
+        for (int i = 1; i < upperBounds.length; i++) {
+            if (upperBounds[i] <= upperBounds[i - 1]) {
+                throw new IllegalArgumentException("Histogram bounds must increase. Provided: " + upperBounds[i - 1] + " then " + upperBounds[i]);
+            }
+        }
+        this.upperBounds = upperBounds.clone();
+        this.bucketCounts = new LongAdder[upperBounds.length + 1];
+        for (int i = 0; i < bucketCounts.length; i++) {
+            bucketCounts[i] = new LongAdder();
+        }
+    }
+
+    public void observe(double value) {
+        int bucket = 0;
+        while (bucket < upperBounds.length && value > upperBounds[bucket]) {
+            bucket++;
+        }
+        bucketCounts[bucket].increment();
+        sum.add(value);
+    }
+
+    // Observes a duration measured with System.nanoTime(), in seconds
+    public void observeNanos(long nanos) {
+        observe((double) nanos / TimeUnit.SECONDS.toNanos(1));
+    }
+
+    double[] getUpperBounds() {
+        return upperBounds;
+    }
+
+    // The number of values at or below each bound, and last of all values
+    long[] getCumulativeCounts() {
+        long[] counts = new long[bucketCounts.length];
+        long total = 0;
+        for (int i = 0; i < bucketCounts.length; i++) {
+            total += bucketCounts[i].sum();
+            counts[i] = total;
+        }
+        return counts;
+    }
+
+    public double getSum() {
+        return sum.sum();
+    }
+
+    public long getCount() {
+        long count = 0;
+        for (LongAdder bucketCount : bucketCounts) {
+            count += bucketCount.sum();
+        }
+        return count;
+    }
+}
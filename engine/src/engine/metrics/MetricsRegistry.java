@@ -0,0 +1,159 @@
+package engine.metrics;
+
+import java.math.BigDecimal;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.DoubleSupplier;
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
+
+/*
+Counters, histograms and gauges by name, written out in the Prometheus text format.
+Asking for a counter or histogram that already exists returns it, so code can ask again rather than keep it.
+A name holds one kind of metric, optionally split by a single label; gauges are read only when written out,
+and a gauge that cannot be read is left out of that scrape and counted in metrics_gauge_errors_total.
+ */
+public class MetricsRegistry {
+
+    private static final Pattern NAME = Pattern.compile("[a-zA-Z_:][a-zA-Z0-9_:]*");
+    private static final String COUNTER = "counter";
+    private static final String HISTOGRAM = "histogram";
+    private static final String GAUGE = "gauge";
+    // the label value of metrics that have no label
+    private static final String NO_LABEL = "";
+
+    private final Map<String, Family> families = new ConcurrentSkipListMap<>();
+    private final Counter gaugeErrors;
+
+    public MetricsRegistry() {
+        gaugeErrors = (Counter) family("metrics_gauge_errors_total", "Gauges left out of a scrape because reading them failed.", COUNTER, null)
+                .series.computeIfAbsent(NO_LABEL, value -> new Counter());
+    }
+
+    public Counter counter(String name, String help) {
+        return (Counter) family(name, help, COUNTER, null).series.computeIfAbsent(NO_LABEL, value -> new Counter());
+    }
+
+    public Histogram histogram(String name, String help, double... upperBounds) {
+        return histogram(name, help, null, NO_LABEL, upperBounds);
+    }
+
+    // The histogram of one value of the label, made the first time that value is asked for
+    public Histogram histogram(String name, String help, String labelName, String labelValue, double... upperBounds) {
+        return (Histogram) family(name, help, HISTOGRAM, labelName).series.computeIfAbsent(labelValue, value -> new Histogram(upperBounds));
+    }
+
+    // Registers a gauge, replacing the one of the same name
+    public void gauge(String name, String help, DoubleSupplier value) {
+        family(name, help, GAUGE, null).gaugeValues = () -> Map.of(NO_LABEL, value.getAsDouble());
+    }
+
+    // Registers a gauge with a value for each value of the label, replacing the one of the same name
+    public void gauge(String name, String help, String labelName, Supplier<Map<String, ? extends Number>> values) {
+        family(name, help, GAUGE, labelName).gaugeValues = values;
+    }
+
+    private Family family(String name, String help, String type, String labelName) {
+        if (!NAME.matcher(name).matches() || (labelName != null && !NAME.matcher(labelName).matches())) {
+            throw new IllegalArgumentException("Invalid metric or label name: " + name + (labelName != null ? ", " + labelName : ""));
+        }
+        Family family = families.computeIfAbsent(name, key -> new Family(help, type, labelName));
+        if (!family.type.equals(type) || (family.labelName == null ? labelName != null : !family.labelName.equals(labelName))) {
+            throw new IllegalArgumentException("Metric " + name + " is already registered as a " + family.type
+                    + (family.labelName != null ? " by " + family.labelName : "") + ".");
+        }
+        return family;
+    }
+
+    // Every metric in the Prometheus text exposition format, version 0.0.4
+    public String scrape() {
+        StringBuilder out = new StringBuilder();
+        families.forEach((name, family) -> {
+            out.append("# HELP ").append(name).append(' ').append(family.help.replace("\\", "\\\\").replace("\n", "\\n")).append('\n');
+            out.append("# TYPE ").append(name).append(' ').append(family.type).append('\n');
+            if (family.type.equals(GAUGE)) {
+                writeGauge(out, name, family);
+                return;
+            }
+            family.series.forEach((labelValue, metric) -> {
+                if (metric instanceof Counter counter) {
+                    writeSample(out, name, family.labelName, labelValue, null, Long.toString(counter.get()));
+                } else {
+                    writeHistogram(out, name, family.labelName, labelValue, (Histogram) metric);
+                }
+            });
+        });
+        return out.toString();
+    }
+
+    private void writeGauge(StringBuilder out, String name, Family family) {
+        Supplier<Map<String, ? extends Number>> gaugeValues = family.gaugeValues;
+        if (gaugeValues == null) {
+            return;
+        }
+        Map<String, ? extends Number> values;
+        try {
+            values = gaugeValues.get();
+        } catch (RuntimeException e) {
+            // one gauge that cannot be read leaves the rest of the scrape intact
+            gaugeErrors.increment();
+            return;
+        }
+        values.forEach((labelValue, value) -> writeSample(out, name, family.labelName, labelValue, null, format(value.doubleValue())));
+    }
+
+    private static void writeHistogram(StringBuilder out, String name, String labelName, String labelValue, Histogram histogram) {
+        double[] upperBounds = histogram.getUpperBounds();
+        long[] counts = histogram.getCumulativeCounts();
+        for (int i = 0; i < upperBounds.length; i++) {
+            writeSample(out, name + "_bucket", labelName, labelValue, format(upperBounds[i]), Long.toString(counts[i]));
+        }
+        writeSample(out, name + "_bucket", labelName, labelValue, "+Inf", Long.toString(counts[upperBounds.length]));
+        writeSample(out, name + "_sum", labelName, labelValue, null, format(histogram.getSum()));
+        writeSample(out, name + "_count", labelName, labelValue, null, Long.toString(counts[upperBounds.length]));
+    }
+
+    private static void writeSample(StringBuilder out, String name, String labelName, String labelValue, String upperBound, String value) {
+        out.append(name);
+        if (labelName != null || upperBound != null) {
+            out.append('{');
+            if (labelName != null) {
+                out.append(labelName).append("=\"").append(escapeLabelValue(labelValue)).append('"');
+            }
+            if (upperBound != null) {
+                out.append(labelName != null ? "," : "").append("le=\"").append(upperBound).append('"');
+            }
+            out.append('}');
+        }
+        out.append(' ').append(value).append('\n');
+    }
+
+    private static String escapeLabelValue(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+
+    private static String format(double value) {
+        if (Double.isNaN(value)) {
+            return "NaN";
+        }
+        if (Double.isInfinite(value)) {
+            return value > 0 ? "+Inf" : "-Inf";
+        }
+        return BigDecimal.valueOf(value).stripTrailingZeros().toPlainString();
+    }
+
+    private static class Family {
+        private final String help;
+        private final String type;
+        private final String labelName;
+        // counters and histograms by label value, in order so scrapes list them alike
+        private final Map<String, Object> series = new ConcurrentSkipListMap<>();
+        private volatile Supplier<Map<String, ? extends Number>> gaugeValues;
+
+        private Family(String help, String type, String labelName) {
+            this.help = help;
+            this.type = type;
+            this.labelName = labelName;
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package engine.storage;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/*
+Syncs a directory, so the files created, renamed or deleted in it stay that way after a crash.
+Syncing a file only keeps its contents; its name is an entry of the directory, which is synced on its own.
+Windows cannot open a directory as a file, and keeps directory entries on disk without being asked.
+ */
+final class DirectorySync {
+
+    private static final boolean SUPPORTED = !System.getProperty("os.name", "").startsWith("Windows");
+
+    private DirectorySync() {
+    }
+
+    static void force(Path directory) throws IOException {
+        if (!SUPPORTED) {
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        }
+    }
+}
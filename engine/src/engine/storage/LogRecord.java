@@ -0,0 +1,119 @@
+package engine.storage;
+
+import sheet.api.Sheet;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+
+/*
+One change to the engine's state, as kept in the write-ahead log.
+A record names its sheet and carries the arguments of the change as strings; a loaded sheet is carried whole.
+Types are written by their code, never by their order, so codes must not be reused.
+ */
+public class LogRecord {
+
+    public enum Type {
+        LOAD_SHEET(1),
+        UPDATE_CELL(2),
+        ADD_RANGE(3),
+        DELETE_RANGE(4),
+        BACKGROUND_COLOR(5),
+        TEXT_COLOR(6),
+        RESET_DESIGN(7),
+        PERMISSION_REQUEST(8),
+        HANDLE_PERMISSION_REQUEST(9),
+        RESPOND_PERMISSION_REQUEST(10);
+
+        private final int code;
+
+        Type(int code) {
+            this.code = code;
+        }
+
+        private static Type fromCode(int code) throws IOException {
+            for (Type type : values()) {
+                if (type.code == code) {
+                    return type;
+                }
+            }
+            throw new IOException("Unknown log record type: " + code);
+        }
+    }
+
+    private final Type type;
+    private final String sheetName;
+    private final String[] arguments;
+    private final Sheet sheet;
+
+    private LogRecord(Type type, String sheetName, Sheet sheet, String... arguments) {
+        this.type = type;
+        this.sheetName = sheetName;
+        this.arguments = arguments;
+        this.sheet = sheet;
+    }
+
+    public static LogRecord of(Type type, String sheetName, String... arguments) {
+        if (type == Type.LOAD_SHEET) {
+            throw new IllegalArgumentException("A loaded sheet is logged with its content.");
+        }
+        return new LogRecord(type, sheetName, null, arguments);
+    }
+
+    public static LogRecord loadSheet(Sheet sheet) {
+        return new LogRecord(Type.LOAD_SHEET, sheet.getName(), sheet);
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public String getSheetName() {
+        return sheetName;
+    }
+
+    public String getArgument(int index) {
+        return arguments[index];
+    }
+
+    public Sheet getSheet() {
+        return sheet;
+    }
+
+    public byte[] toBytes() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(type.code);
+            SheetCodec.writeString(out, sheetName);
+            out.writeShort(arguments.length);
+            for (String argument : arguments) {
+                SheetCodec.writeString(out, argument);
+            }
+            if (sheet != null) {
+                SheetCodec.write(out, sheet);
+            }
+        } catch (IOException e) {
+            // writing to memory does not fail
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    public static LogRecord read(ByteBuffer in) throws IOException {
+        try {
+            Type type = Type.fromCode(Byte.toUnsignedInt(in.get()));
+            String sheetName = SheetCodec.readString(in);
+            String[] arguments = new String[Short.toUnsignedInt(in.getShort())];
+            for (int i = 0; i < arguments.length; i++) {
+                arguments[i] = SheetCodec.readString(in);
+            }
+            Sheet sheet = type == Type.LOAD_SHEET ? SheetCodec.read(in) : null;
+            return new LogRecord(type, sheetName, sheet, arguments);
+        } catch (BufferUnderflowException e) {
+            throw new IOException("Log record ends before its content does.", e);
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package engine.storage;
+
+import cell.api.Cell;
+import cell.impl.CellImpl;
+import coordinate.Coordinate;
+import coordinate.CoordinateFactory;
+import range.api.Range;
+import sheet.api.Sheet;
+import sheet.impl.CellCalculator;
+import sheet.impl.SheetImpl;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+/*
+Writes a sheet version as compact binary and builds it back.
+Only what cannot be calculated is written: the layout, the ranges, and for every cell its original value, styles,
+version and last editor. Reading builds a new sheet from those and calculates it, as loading a file does.
+Reading is done from a ByteBuffer, so a mapped file is read in place without copying it first.
+ */
+public class SheetCodec {
+
+    private SheetCodec() {
+    }
+
+    public static void write(DataOutput out, Sheet sheet) throws IOException {
+        writeString(out, sheet.getName());
+        writeString(out, sheet.getOwner());
+        out.writeInt(sheet.getVersion());
+        out.writeInt(sheet.getRows());
+        out.writeInt(sheet.getCols());
+        out.writeInt(sheet.getRowHeight());
+        out.writeInt(sheet.getColWidth());
+
+        out.writeInt(sheet.getAllRanges().size());
+        for (Range range : sheet.getAllRanges()) {
+            writeString(out, range.getName());
+            writeString(out, range.getFrom());
+            writeString(out, range.getTo());
+        }
+
+        Map<Coordinate, Cell> cells = sheet.getActiveCells();
+        out.writeInt(cells.size());
+        for (Cell cell : cells.values()) {
+            out.writeInt(cell.getCoordinate().getRow());
+            out.writeInt(cell.getCoordinate().getColumn());
+            writeString(out, cell.getOriginalValue());
+            out.writeInt(cell.getVersion());
+            writeString(out, cell.getChangedBy());
+            writeString(out, cell.getBackgroundColor());
+            writeString(out, cell.getTextColor());
+        }
+    }
+
+    public static Sheet read(ByteBuffer in) throws IOException {
+        Sheet sheet = new SheetImpl();
+        sheet.setName(readString(in));
+        sheet.setOwner(readString(in));
+        sheet.setSheetVersion(in.getInt());
+        sheet.setRows(in.getInt());
+        sheet.setCols(in.getInt());
+        sheet.setRowHeight(in.getInt());
+        sheet.setColWidth(in.getInt());
+
+        int rangeCount = in.getInt();
+        for (int i = 0; i < rangeCount; i++) {
+            String name = readString(in);
+            sheet.addRange(name, readString(in) + ".." + readString(in));
+        }
+
+        int cellCount = in.getInt();
+        for (int i = 0; i < cellCount; i++) {
+            Coordinate coordinate = CoordinateFactory.createCoordinate(in.getInt(), in.getInt());
+            String originalValue = readString(in);
+            int version = in.getInt();
+            String changedBy = readString(in);
+            Cell cell = new CellImpl(coordinate, originalValue, version, changedBy, sheet);
+            cell.setBackgroundColor(readString(in));
+            cell.setTextColor(readString(in));
+            sheet.addCell(coordinate, cell);
+        }
+
+        CellCalculator.calculateNewSheet(sheet);
+        return sheet;
+    }
+
+    // Strings are written as their UTF-8 length and bytes, so they are not limited to 64K like writeUTF; -1 is null
+    public static void writeString(DataOutput out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    public static String readString(ByteBuffer in) throws IOException {
+        int length = in.getInt();
+        if (length < -1 || length > in.remaining()) {
+            throw new IOException("Invalid string length: " + length);
+        }
+        if (length == -1) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,171 @@
+package engine.storage;
+
+import dto.permission.PermissionStatus;
+import dto.permission.PermissionType;
+import permission.PermissionRequest;
+import permission.PermissionsManager;
+import sheet.api.Sheet;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.zip.CRC32;
+
+/*
+The state of every sheet at a checkpoint: its current version (through SheetCodec) and its permissions,
+with the number of the first log segment that holds the changes made after it.
+The file starts with a magic number and a format version and ends with a CRC32 of everything before it.
+It is written next to the old one and moved over it only once complete and synced, so there is always one whole snapshot;
+the directory is synced after the move, so the log the snapshot replaces is never deleted while the move could still be lost.
+It is read through a memory mapping, so starting up does not copy the file before decoding it.
+ */
+public class SnapshotFile {
+
+    public static final String FILE_NAME = "engine.snapshot";
+    private static final String TEMPORARY_FILE_NAME = "engine.snapshot.tmp";
+    private static final int MAGIC = 0x53534E50;
+    private static final int FORMAT_VERSION = 1;
+
+    private SnapshotFile() {
+    }
+
+    public static void write(Path directory, int nextLogSegment, Map<String, Sheet> sheets,
+                             Map<String, PermissionsManager> permissionsManagers) throws IOException {
+        Path temporaryFile = directory.resolve(TEMPORARY_FILE_NAME);
+        try (FileChannel channel = FileChannel.open(temporaryFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            CRC32 crc = new CRC32();
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new ChecksummedOutputStream(Channels.newOutputStream(channel), crc), 1 << 16));
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            out.writeInt(nextLogSegment);
+            out.writeInt(sheets.size());
+            for (Map.Entry<String, Sheet> entry : sheets.entrySet()) {
+                SheetCodec.write(out, entry.getValue());
+                writePermissions(out, permissionsManagers.get(entry.getKey()));
+            }
+            out.flush();
+            // the checksum itself is not part of what it covers
+            ByteBuffer checksum = ByteBuffer.allocate(Integer.BYTES).putInt((int) crc.getValue()).flip();
+            while (checksum.hasRemaining()) {
+                channel.write(checksum);
+            }
+            channel.force(true);
+        }
+        Files.move(temporaryFile, directory.resolve(FILE_NAME), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        DirectorySync.force(directory);
+    }
+
+    // Hands every sheet in the snapshot to restore and returns the first log segment to replay after it,
+    // or the given default when there is no snapshot yet
+    public static int read(Path directory, int firstSegmentWithoutSnapshot, BiConsumer<Sheet, PermissionsManager> restore) throws IOException {
+        Path file = directory.resolve(FILE_NAME);
+        if (!Files.exists(file)) {
+            return firstSegmentWithoutSnapshot;
+        }
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() < Integer.BYTES * 3 || channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Snapshot file has an invalid size: " + channel.size());
+            }
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+
+            int contentLength = mapped.limit() - Integer.BYTES;
+            CRC32 crc = new CRC32();
+            crc.update(mapped.slice(0, contentLength));
+            if ((int) crc.getValue() != mapped.getInt(contentLength)) {
+                throw new IOException("Snapshot file is damaged.");
+            }
+
+            ByteBuffer in = mapped.slice(0, contentLength);
+            if (in.getInt() != MAGIC) {
+                throw new IOException("Not a snapshot file.");
+            }
+            int formatVersion = in.getInt();
+            if (formatVersion != FORMAT_VERSION) {
+                throw new IOException("Unsupported snapshot format: " + formatVersion);
+            }
+            int nextLogSegment = in.getInt();
+            int sheetCount = in.getInt();
+            for (int i = 0; i < sheetCount; i++) {
+                Sheet sheet = SheetCodec.read(in);
+                restore.accept(sheet, readPermissions(in));
+            }
+            return nextLogSegment;
+        } catch (BufferUnderflowException e) {
+            throw new IOException("Snapshot file ends before its content does.", e);
+        }
+    }
+
+    private static void writePermissions(DataOutputStream out, PermissionsManager permissionsManager) throws IOException {
+        SheetCodec.writeString(out, permissionsManager.getOwnerUsername());
+
+        Map<String, PermissionType> userPermissions = permissionsManager.getUserPermissions();
+        out.writeInt(userPermissions.size());
+        for (Map.Entry<String, PermissionType> entry : userPermissions.entrySet()) {
+            SheetCodec.writeString(out, entry.getKey());
+            SheetCodec.writeString(out, entry.getValue().name());
+        }
+
+        // kept in order, since requests are handled by their index
+        var requests = permissionsManager.getPermissionRequests();
+        out.writeInt(requests.size());
+        for (PermissionRequest request : requests) {
+            SheetCodec.writeString(out, request.getUsername());
+            SheetCodec.writeString(out, request.getRequestedPermission().name());
+            SheetCodec.writeString(out, request.getStatus().name());
+        }
+    }
+
+    private static PermissionsManager readPermissions(ByteBuffer in) throws IOException {
+        PermissionsManager permissionsManager = new PermissionsManager(SheetCodec.readString(in));
+
+        int userCount = in.getInt();
+        for (int i = 0; i < userCount; i++) {
+            String username = SheetCodec.readString(in);
+            permissionsManager.addPermission(username, PermissionType.valueOf(SheetCodec.readString(in)));
+        }
+
+        int requestCount = in.getInt();
+        for (int i = 0; i < requestCount; i++) {
+            String username = SheetCodec.readString(in);
+            PermissionType requestedPermission = PermissionType.valueOf(SheetCodec.readString(in));
+            PermissionStatus status = PermissionStatus.valueOf(SheetCodec.readString(in));
+            permissionsManager.restorePermissionRequest(new PermissionRequest(username, requestedPermission, status));
+        }
+        return permissionsManager;
+    }
+
+    // Passes bytes on while adding them to a checksum
+    private static class ChecksummedOutputStream extends java.io.FilterOutputStream {
+        private final CRC32 crc;
+
+        private ChecksummedOutputStream(java.io.OutputStream out, CRC32 crc) {
+            super(out);
+            this.crc = crc;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            crc.update(b);
+            out.write(b);
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) throws IOException {
+            crc.update(bytes, offset, length);
+            out.write(bytes, offset, length);
+        }
+    }
+}
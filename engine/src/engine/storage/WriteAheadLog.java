@@ -0,0 +1,343 @@
+package engine.storage;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.zip.CRC32;
+
+/*
+Append-only log of the changes made to the engine, replayed on startup to rebuild its state.
+A change is appended (to memory) while its sheet is still locked, so the log has the sheet's changes in the order
+they were made, and its caller then waits for the change to be on disk before answering.
+Writes are committed in groups: one waiting caller writes and syncs everything appended so far, and every caller
+whose record was in that group returns without a sync of its own.
+Each record is its length, a CRC32 of its bytes and the bytes; a record cut short by a crash is dropped on the next start.
+A log position counts the bytes appended since the log was opened, so it only grows.
+
+The log is kept in numbered segment files. A checkpoint starts a new segment at a moment no change is being made,
+so a snapshot taken at that moment together with the segments from the new one on holds the whole state,
+and the older segments can be deleted once the snapshot is safely written.
+ */
+public class WriteAheadLog implements Closeable {
+
+    private static final String SEGMENT_PREFIX = "engine-";
+    private static final String SEGMENT_SUFFIX = ".wal";
+    private static final int MAGIC = 0x5357414C;
+    private static final int FORMAT_VERSION = 1;
+    private static final int HEADER_SIZE = 8;
+
+    private final Path directory;
+    private final boolean enabled;
+    // changes hold the read lock while they are made and appended; a checkpoint holds the write lock
+    private final ReentrantReadWriteLock checkpointLock = new ReentrantReadWriteLock();
+    // the segment being written and its file, only changed while holding syncLock
+    private final Object syncLock = new Object();
+    private FileChannel channel;
+    private int segment;
+    // guarded by this
+    private final ByteArrayOutputStream pending = new ByteArrayOutputStream();
+    private final DataOutputStream pendingOut = new DataOutputStream(pending);
+    private long appendedPosition;
+    // everything up to here is on disk; only advanced while holding syncLock
+    private volatile long durablePosition;
+    private volatile IOException failure;
+
+    private WriteAheadLog(Path directory, FileChannel channel, int segment) {
+        this.directory = directory;
+        this.enabled = channel != null;
+        this.channel = channel;
+        this.segment = segment;
+    }
+
+    // A log that keeps nothing, for an engine that lives only in memory
+    public static WriteAheadLog disabled() {
+        return new WriteAheadLog(null, null, 0);
+    }
+
+    // Opens the log in the given directory, handing every record from firstSegment on to replay before anything is appended
+    public static WriteAheadLog open(Path directory, int firstSegment, Consumer<LogRecord> replay) throws IOException {
+        Files.createDirectories(directory);
+        List<Integer> segments = listSegments(directory, firstSegment);
+        if (segments.isEmpty()) {
+            return new WriteAheadLog(directory, createSegment(directory, firstSegment), firstSegment);
+        }
+
+        int lastSegment = segments.get(segments.size() - 1);
+        for (int segmentNumber : segments) {
+            if (segmentNumber != lastSegment) {
+                try (FileChannel segmentChannel = FileChannel.open(segmentPath(directory, segmentNumber), StandardOpenOption.READ)) {
+                    if (replay(segmentChannel, replay) != segmentChannel.size()) {
+                        throw new IOException("Log segment " + segmentNumber + " is damaged before its end.");
+                    }
+                }
+            }
+        }
+
+        FileChannel lastChannel = FileChannel.open(segmentPath(directory, lastSegment), StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            long validEnd = replay(lastChannel, replay);
+            // whatever follows the last whole record was cut short while being written
+            lastChannel.truncate(validEnd);
+            lastChannel.position(validEnd);
+            return new WriteAheadLog(directory, lastChannel, lastSegment);
+        } catch (IOException | RuntimeException e) {
+            lastChannel.close();
+            throw e;
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    // Held while a change is made and appended, so that a checkpoint sees each change together with its record or neither
+    public Lock changeLock() {
+        return checkpointLock.readLock();
+    }
+
+    // Adds a record to the next group and returns the position to wait for.
+    // Refuses it once a write has failed, so a change is never made in memory after the log stopped keeping them.
+    public long append(LogRecord record) {
+        if (!enabled) {
+            return 0;
+        }
+        if (failure != null) {
+            throw new IllegalStateException("The write-ahead log can no longer be written.", failure);
+        }
+        byte[] bytes = record.toBytes();
+        CRC32 crc = new CRC32();
+        crc.update(bytes);
+        synchronized (this) {
+            try {
+                pendingOut.writeInt(bytes.length);
+                pendingOut.writeInt((int) crc.getValue());
+                pendingOut.write(bytes);
+            } catch (IOException e) {
+                // writing to memory does not fail
+                throw new IllegalStateException(e);
+            }
+            appendedPosition += Integer.BYTES * 2 + bytes.length;
+            return appendedPosition;
+        }
+    }
+
+    // Returns once everything up to the given position is on disk, syncing it if no one else already has
+    public void awaitDurable(long position) {
+        if (!enabled || durablePosition >= position) {
+            return;
+        }
+        synchronized (syncLock) {
+            if (durablePosition >= position) {
+                return;
+            }
+            writePending();
+        }
+    }
+
+    // Captures the state while no change is being made, and starts a new segment for the changes after it.
+    // Returns the captured state and the number of the new segment; the segments before it are no longer needed
+    // once the captured state is saved.
+    public <T> Checkpoint<T> checkpoint(Supplier<T> capture) throws IOException {
+        checkpointLock.writeLock().lock();
+        try {
+            T state = capture.get();
+            if (!enabled) {
+                return new Checkpoint<>(state, 0);
+            }
+            synchronized (syncLock) {
+                writePending();
+                FileChannel nextChannel = createSegment(directory, segment + 1);
+                channel.close();
+                channel = nextChannel;
+                segment++;
+                return new Checkpoint<>(state, segment);
+            }
+        } finally {
+            checkpointLock.writeLock().unlock();
+        }
+    }
+
+    // Deletes the segments a saved snapshot has made unnecessary
+    public void deleteSegmentsBefore(int firstNeededSegment) throws IOException {
+        if (!enabled) {
+            return;
+        }
+        for (int segmentNumber : listSegments(directory, 0)) {
+            if (segmentNumber < firstNeededSegment) {
+                Files.deleteIfExists(segmentPath(directory, segmentNumber));
+            }
+        }
+    }
+
+    // Everything appended up to here is on disk
+    public long getDurablePosition() {
+        return durablePosition;
+    }
+
+    public long getAppendedPosition() {
+        synchronized (this) {
+            return appendedPosition;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (enabled) {
+            synchronized (syncLock) {
+                writePending();
+                channel.close();
+            }
+        }
+    }
+
+    // Writes and syncs every record appended so far; called holding syncLock
+    private void writePending() {
+        if (failure != null) {
+            throw new IllegalStateException("The write-ahead log can no longer be written.", failure);
+        }
+
+        byte[] group;
+        long groupEnd;
+        synchronized (this) {
+            group = pending.toByteArray();
+            groupEnd = appendedPosition;
+            pending.reset();
+        }
+        try {
+            ByteBuffer buffer = ByteBuffer.wrap(group);
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(false);
+        } catch (IOException e) {
+            // the log no longer matches what was appended, so nothing after this can be trusted to it
+            failure = e;
+            throw new IllegalStateException("Failed to write the write-ahead log.", e);
+        }
+        durablePosition = groupEnd;
+    }
+
+    private static FileChannel createSegment(Path directory, int segmentNumber) throws IOException {
+        FileChannel segmentChannel = FileChannel.open(segmentPath(directory, segmentNumber),
+                StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).putInt(MAGIC).putInt(FORMAT_VERSION).flip();
+        while (header.hasRemaining()) {
+            segmentChannel.write(header);
+        }
+        segmentChannel.force(true);
+        // a record synced into a segment whose directory entry is lost would be lost with it
+        try {
+            DirectorySync.force(directory);
+        } catch (IOException e) {
+            segmentChannel.close();
+            throw e;
+        }
+        return segmentChannel;
+    }
+
+    private static Path segmentPath(Path directory, int segmentNumber) {
+        return directory.resolve(String.format("%s%06d%s", SEGMENT_PREFIX, segmentNumber, SEGMENT_SUFFIX));
+    }
+
+    // The numbers of the segments in the directory from firstSegment on, in order
+    private static List<Integer> listSegments(Path directory, int firstSegment) throws IOException {
+        List<Integer> segments = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                String number = name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length());
+                try {
+                    int segmentNumber = Integer.parseInt(number);
+                    if (segmentNumber >= firstSegment) {
+                        segments.add(segmentNumber);
+                    }
+                } catch (NumberFormatException e) {
+                    // not one of ours
+                }
+            }
+        }
+        Collections.sort(segments);
+        return segments;
+    }
+
+    // Hands every whole record of a segment to replay and returns the offset after the last one
+    private static long replay(FileChannel segmentChannel, Consumer<LogRecord> replay) throws IOException {
+        segmentChannel.position(0);
+        DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(segmentChannel), 1 << 16));
+        long fileSize = segmentChannel.size();
+        if (fileSize < HEADER_SIZE || in.readInt() != MAGIC) {
+            throw new IOException("Not a write-ahead log file.");
+        }
+        int formatVersion = in.readInt();
+        if (formatVersion != FORMAT_VERSION) {
+            throw new IOException("Unsupported write-ahead log format: " + formatVersion);
+        }
+
+        long position = HEADER_SIZE;
+        CRC32 crc = new CRC32();
+        while (true) {
+            byte[] bytes;
+            try {
+                int length = in.readInt();
+                int expectedCrc = in.readInt();
+                if (length < 0 || length > fileSize - position) {
+                    return position;
+                }
+                bytes = new byte[length];
+                in.readFully(bytes);
+                crc.reset();
+                crc.update(bytes);
+                if ((int) crc.getValue() != expectedCrc) {
+                    return position;
+                }
+            } catch (EOFException e) {
+                return position;
+            }
+
+            LogRecord record = LogRecord.read(ByteBuffer.wrap(bytes));
+            try {
+                replay.accept(record);
+            } catch (RuntimeException e) {
+                throw new IllegalStateException("Failed to replay the write-ahead log record at offset " + position + ".", e);
+            }
+            position += Integer.BYTES * 2 + bytes.length;
+        }
+    }
+
+    // State captured at a checkpoint, and the first segment holding the changes made after it
+    public static class Checkpoint<T> {
+        private final T state;
+        private final int nextSegment;
+
+        private Checkpoint(T state, int nextSegment) {
+            this.state = state;
+            this.nextSegment = nextSegment;
+        }
+
+        public T getState() {
+            return state;
+        }
+
+        public int getNextSegment() {
+            return nextSegment;
+        }
+    }
+}
@@ -7,4 +7,15 @@ import sheet.api.SheetReadActions;
 public interface Expression {
     EffectiveValue eval(SheetReadActions sheet);
     CellType getFunctionResultType();
+    void accept(ExpressionVisitor visitor);
+
+    /*
+    The value as a plain double, for arithmetic that should not make a value object per step.
+    Any result other than NaN is exactly the number eval would give, as a NUMERIC value;
+    NaN gives no answer, and callers then use eval to learn the actual value and type.
+     */
+    default double evalNumber(SheetReadActions sheet) {
+        EffectiveValue value = eval(sheet);
+        return value != null ? value.getNumericValue() : Double.NaN;
+    }
 }
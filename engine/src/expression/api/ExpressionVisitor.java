@@ -0,0 +1,11 @@
+package expression.api;
+
+import coordinate.Coordinate;
+
+// Walks an expression tree and reports what the formula refers to, without evaluating it
+public interface ExpressionVisitor {
+
+    void visitReference(Coordinate coordinate);
+
+    void visitRange(String rangeName);
+}
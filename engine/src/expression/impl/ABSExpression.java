@@ -2,8 +2,9 @@ package expression.impl;
 
 import cell.api.CellType;
 import cell.api.EffectiveValue;
-import cell.impl.EffectiveValueImpl;
+import cell.impl.NumericValue;
 import expression.api.Expression;
+import expression.api.ExpressionVisitor;
 import sheet.api.SheetReadActions;
 
 public class ABSExpression implements Expression {
@@ -16,6 +17,10 @@ public class ABSExpression implements Expression {
 
     @Override
     public EffectiveValue eval(SheetReadActions sheet) {
+        double number = evalNumber(sheet);
+        if (!Double.isNaN(number)) {
+            return new NumericValue(number);
+        }
         EffectiveValue expressionEffectiveValue = exp.eval(sheet);
         // Extract numeric value from the operand
         Double val = expressionEffectiveValue.extractValueWithExpectation(Double.class);
@@ -23,7 +28,12 @@ public class ABSExpression implements Expression {
 
         double result = Math.abs(val);
         // Return the result as an EffectiveValue
-        return new EffectiveValueImpl(CellType.NUMERIC, result);
+        return new NumericValue(result);
+    }
+
+    @Override
+    public double evalNumber(SheetReadActions sheet) {
+        return Math.abs(exp.evalNumber(sheet));
     }
 
 
@@ -31,4 +41,9 @@ public class ABSExpression implements Expression {
     public CellType getFunctionResultType() {
         return CellType.NUMERIC;
     }
+
+    @Override
+    public void accept(ExpressionVisitor visitor) {
+        exp.accept(visitor);
+    }
 }
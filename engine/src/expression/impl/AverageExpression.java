@@ -1,15 +1,14 @@
 package expression.impl;
 
-import cell.api.Cell;
 import cell.api.CellType;
 import cell.api.EffectiveValue;
 import cell.impl.EffectiveValueImpl;
+import cell.impl.NumericValue;
 import expression.api.Expression;
+import expression.api.ExpressionVisitor;
 import range.api.Range;
 import sheet.api.SheetReadActions;
 
-import java.util.List;
-
 public class AverageExpression implements Expression {
     private String range;
 
@@ -19,31 +18,20 @@ public class AverageExpression implements Expression {
 
     @Override
     public EffectiveValue eval(SheetReadActions sheet) {
-        int counter = 0;
         Range range = sheet.getRange(this.range);
         if (range == null) {
             return new EffectiveValueImpl(CellType.INVALID, Double.NaN);
         }
-        double sum = 0;
-        List<Cell> cellsInRange = sheet.getCellsInRange(range);
-        for (Cell cell : cellsInRange) {
-            EffectiveValue cellValue = cell.getEffectiveValue();
-            // Extract numeric value
-            if (cellValue == null) {
-                sum += 0;
-            } else {
-                if(cellValue.getCellType() == CellType.NUMERIC) {
-                    counter++;
-                    Double numericValue = cellValue.extractValueWithExpectation(Double.class);
-                        sum += numericValue; // Add to sum if it's a valid number
-
-                }
-            }
+        // the range keeps the sum and count of its numeric cells up to date as they change
+        double res = range.getSum() / range.getNumericCount();
+        return new NumericValue(res);
 
-        }
-        double res = sum /counter;
-        return new EffectiveValueImpl(CellType.NUMERIC, res);
+    }
 
+    @Override
+    public double evalNumber(SheetReadActions sheet) {
+        Range range = sheet.getRange(this.range);
+        return range != null ? range.getSum() / range.getNumericCount() : Double.NaN;
     }
 
     @Override
@@ -51,5 +39,9 @@ public class AverageExpression implements Expression {
         return CellType.NUMERIC;
     }
 
-}
+    @Override
+    public void accept(ExpressionVisitor visitor) {
+        visitor.visitRange(range);
+    }
 
+}
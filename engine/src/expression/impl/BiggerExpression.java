@@ -3,7 +3,8 @@ package expression.impl;
 import expression.api.Expression;
 import cell.api.CellType;
 import cell.api.EffectiveValue;
-import cell.impl.EffectiveValueImpl;
+import cell.impl.BooleanValue;
+import sheet.api.SheetReadActions;
 
 public class BiggerExpression extends BinaryExpression {
 
@@ -11,20 +12,31 @@ public class BiggerExpression extends BinaryExpression {
         super(left, right);
     }
 
+    // two numbers are compared without making a value for either of them
+    @Override
+    public EffectiveValue eval(SheetReadActions sheet) {
+        double leftValue = getLeft().evalNumber(sheet);
+        double rightValue = Double.isNaN(leftValue) ? Double.NaN : getRight().evalNumber(sheet);
+        if (Double.isNaN(leftValue) || Double.isNaN(rightValue)) {
+            return super.eval(sheet);
+        }
+        return BooleanValue.of(leftValue >= rightValue);
+    }
+
     @Override
     public EffectiveValue eval(EffectiveValue left, EffectiveValue right) {
         if (left == null || right == null || left.getCellType() != CellType.NUMERIC || right.getCellType() != CellType.NUMERIC) {
-            return new EffectiveValueImpl(CellType.BOOLEAN, false);
+            return BooleanValue.FALSE;
         }
 
         Double leftValue = left.extractValueWithExpectation(Double.class);
         Double rightValue = right.extractValueWithExpectation(Double.class);
 
         if (leftValue == null || rightValue == null) {
-            return new EffectiveValueImpl(CellType.BOOLEAN, false);
+            return BooleanValue.FALSE;
         }
 
-        return new EffectiveValueImpl(CellType.BOOLEAN, leftValue >= rightValue);
+        return BooleanValue.of(leftValue >= rightValue);
     }
 
     @Override
@@ -1,6 +1,7 @@
 package expression.impl;
 
 import expression.api.Expression;
+import expression.api.ExpressionVisitor;
 import sheet.api.SheetReadActions;
 import cell.api.EffectiveValue;
 
@@ -20,5 +21,19 @@ public abstract class BinaryExpression implements Expression {
         return eval( leftValue , rightValue);
     }
 
+    protected Expression getLeft() {
+        return left;
+    }
+
+    protected Expression getRight() {
+        return right;
+    }
+
+    @Override
+    public void accept(ExpressionVisitor visitor) {
+        left.accept(visitor);
+        right.accept(visitor);
+    }
+
     protected abstract EffectiveValue eval(EffectiveValue arg1, EffectiveValue arg2);
 }
\ No newline at end of file
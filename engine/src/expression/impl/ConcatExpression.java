@@ -6,6 +6,8 @@ import expression.api.Expression;
 import cell.api.CellType;
 import cell.api.EffectiveValue;
 import cell.impl.EffectiveValueImpl;
+import cell.impl.NumericValue;
+import cell.impl.StringValue;
 
 
 public class ConcatExpression extends BinaryExpression{
@@ -27,11 +29,11 @@ public class ConcatExpression extends BinaryExpression{
         String  value1 = left.extractValueWithExpectation(String .class);
         String  value2 = right.extractValueWithExpectation(String .class);
         if (value1 == null || value2 == null) {
-            return new EffectiveValueImpl(CellType.NUMERIC, Double.NaN);
+            return new NumericValue(Double.NaN);
         }
         String res = value1 + value2;
         // Return the result as an EffectiveValue
-        return new EffectiveValueImpl(CellType.STRING, res);
+        return new StringValue(res);
     }
 
     @Override
@@ -4,8 +4,9 @@ import expression.api.Expression;
 import cell.api.CellType;
 import cell.api.EffectiveValue;
 import cell.impl.EffectiveValueImpl;
+import cell.impl.NumericValue;
 
-public class DivideExpression extends BinaryExpression{
+public class DivideExpression extends NumericBinaryExpression {
 
         public DivideExpression(Expression left, Expression right) {
             super(left, right);
@@ -25,7 +26,12 @@ public class DivideExpression extends BinaryExpression{
             }
             double res = leftValue / rightValue;
             // Return the result as an EffectiveValue
-            return new EffectiveValueImpl(CellType.NUMERIC, res);
+            return new NumericValue(res);
+        }
+
+        @Override
+        protected double apply(double left, double right) {
+            return left / right;
         }
 
         @Override
@@ -3,7 +3,7 @@ package expression.impl;
 import expression.api.Expression;
 import cell.api.CellType;
 import cell.api.EffectiveValue;
-import cell.impl.EffectiveValueImpl;
+import cell.impl.BooleanValue;
 
 public class EqualExpression extends BinaryExpression {
 
@@ -14,12 +14,12 @@ public class EqualExpression extends BinaryExpression {
     @Override
     public EffectiveValue eval(EffectiveValue left, EffectiveValue right) {
         if (left == null || right == null) {
-            return new EffectiveValueImpl(CellType.BOOLEAN, false);
+            return BooleanValue.FALSE;
         }
 
         // Check for type mismatch
         if (left.getCellType() != right.getCellType()) {
-            return new EffectiveValueImpl(CellType.BOOLEAN, false);
+            return BooleanValue.FALSE;
         }
 
         // Compare values based on type
@@ -27,26 +27,26 @@ public class EqualExpression extends BinaryExpression {
             Double leftValue = left.extractValueWithExpectation(Double.class);
             Double rightValue = right.extractValueWithExpectation(Double.class);
             if (leftValue == null || rightValue == null) {
-                return new EffectiveValueImpl(CellType.BOOLEAN, false);
+                return BooleanValue.FALSE;
             }
-            return new EffectiveValueImpl(CellType.BOOLEAN, leftValue.equals(rightValue));
+            return BooleanValue.of(leftValue.equals(rightValue));
         } else if (left.getCellType() == CellType.STRING) {
             String leftValue = left.extractValueWithExpectation(String.class);
             String rightValue = right.extractValueWithExpectation(String.class);
             if (leftValue == null || rightValue == null) {
-                return new EffectiveValueImpl(CellType.BOOLEAN, false);
+                return BooleanValue.FALSE;
             }
-            return new EffectiveValueImpl(CellType.BOOLEAN, leftValue.equals(rightValue));
+            return BooleanValue.of(leftValue.equals(rightValue));
         } else if (left.getCellType() == CellType.BOOLEAN) {
             Boolean leftValue = left.extractValueWithExpectation(Boolean.class);
             Boolean rightValue = right.extractValueWithExpectation(Boolean.class);
             if (leftValue == null || rightValue == null) {
-                return new EffectiveValueImpl(CellType.BOOLEAN, false);
+                return BooleanValue.FALSE;
             }
-            return new EffectiveValueImpl(CellType.BOOLEAN, leftValue.equals(rightValue));
+            return BooleanValue.of(leftValue.equals(rightValue));
         }
 
-        return new EffectiveValueImpl(CellType.BOOLEAN, false);
+        return BooleanValue.FALSE;
     }
 
     @Override
@@ -2,28 +2,40 @@ package expression.impl;
 
 
 import expression.api.Expression;
+import expression.api.ExpressionVisitor;
 import cell.api.CellType;
 import cell.api.EffectiveValue;
-import cell.impl.EffectiveValueImpl;
+import cell.impl.EffectiveValueFactory;
 import sheet.api.SheetReadActions;
 
 public class IdentityExpression implements Expression {
 
-    private final Object value;
     private final CellType type;
+    // a literal is the same value every time, so it is made once
+    private final EffectiveValue effectiveValue;
 
     public IdentityExpression(Object value, CellType type) {
-        this.value = value;
         this.type = type;
+        this.effectiveValue = EffectiveValueFactory.createEffectiveValue(type, value);
     }
 
     @Override
     public EffectiveValue eval(SheetReadActions sheet) {
-        return new EffectiveValueImpl(type, value);
+        return effectiveValue;
+    }
+
+    @Override
+    public double evalNumber(SheetReadActions sheet) {
+        return effectiveValue.getNumericValue();
     }
 
     @Override
     public CellType getFunctionResultType() {
         return type;
     }
+
+    @Override
+    public void accept(ExpressionVisitor visitor) {
+        // a literal value refers to nothing
+    }
 }
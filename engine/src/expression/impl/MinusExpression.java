@@ -4,10 +4,10 @@ package expression.impl;
 import expression.api.Expression;
 import cell.api.CellType;
 import cell.api.EffectiveValue;
-import cell.impl.EffectiveValueImpl;
+import cell.impl.NumericValue;
 
 
-public class MinusExpression extends BinaryExpression{
+public class MinusExpression extends NumericBinaryExpression {
 
     public MinusExpression(Expression left, Expression right) {
         super(left, right);
@@ -17,17 +17,22 @@ public class MinusExpression extends BinaryExpression{
     public EffectiveValue eval(EffectiveValue left, EffectiveValue right) {
         // Check for null or unknown values
         if (left == null || right == null || left.getCellType() == CellType.UNKNOWN || right.getCellType() == CellType.UNKNOWN) {
-            return new EffectiveValueImpl(CellType.NUMERIC, Double.NaN);
+            return new NumericValue(Double.NaN);
         }
         // Extract numeric values from the operands
         Double leftValue = left.extractValueWithExpectation(Double.class);
         Double rightValue = right.extractValueWithExpectation(Double.class);
         if (leftValue == null || rightValue == null) {
-            return new EffectiveValueImpl(CellType.NUMERIC, Double.NaN);
+            return new NumericValue(Double.NaN);
         }
         double res = leftValue - rightValue;
         // Return the result as an EffectiveValue
-        return new EffectiveValueImpl(CellType.NUMERIC, res);
+        return new NumericValue(res);
+    }
+
+    @Override
+    protected double apply(double left, double right) {
+        return left - right;
     }
 
     @Override
@@ -2,8 +2,9 @@ package expression.impl;
 
 import cell.api.CellType;
 import cell.api.EffectiveValue;
-import cell.impl.EffectiveValueImpl;
+import cell.impl.BooleanValue;
 import expression.api.Expression;
+import expression.api.ExpressionVisitor;
 import sheet.api.SheetReadActions;
 
 public class NotExpression implements Expression {
@@ -18,19 +19,24 @@ public class NotExpression implements Expression {
     public EffectiveValue eval(SheetReadActions sheet) {
         EffectiveValue value = expression.eval(sheet);
         if (value == null || value.getCellType() != CellType.BOOLEAN) {
-            return new EffectiveValueImpl(CellType.BOOLEAN, false);
+            return BooleanValue.FALSE;
         }
 
         Boolean boolValue = value.extractValueWithExpectation(Boolean.class);
         if (boolValue == null) {
-            return new EffectiveValueImpl(CellType.BOOLEAN, false);
+            return BooleanValue.FALSE;
         }
 
-        return new EffectiveValueImpl(CellType.BOOLEAN, !boolValue);
+        return BooleanValue.of(!boolValue);
     }
 
     @Override
     public CellType getFunctionResultType() {
         return CellType.BOOLEAN;
     }
+
+    @Override
+    public void accept(ExpressionVisitor visitor) {
+        expression.accept(visitor);
+    }
 }
@@ -0,0 +1,44 @@
+package expression.impl;
+
+import cell.api.EffectiveValue;
+import cell.impl.NumericValue;
+import expression.api.Expression;
+import sheet.api.SheetReadActions;
+
+/*
+An arithmetic operator on two numbers.
+Nested arithmetic is worked out on doubles, making a value object only for the result of the whole formula.
+When an operand or the result is NaN, the operator is evaluated again on value objects,
+so invalid and unknown operands keep giving the same result they always did.
+ */
+public abstract class NumericBinaryExpression extends BinaryExpression {
+
+    public NumericBinaryExpression(Expression left, Expression right) {
+        super(left, right);
+    }
+
+    @Override
+    public EffectiveValue eval(SheetReadActions sheet) {
+        double result = evalNumber(sheet);
+        if (Double.isNaN(result)) {
+            return super.eval(sheet);
+        }
+        return new NumericValue(result);
+    }
+
+    @Override
+    public double evalNumber(SheetReadActions sheet) {
+        double leftValue = getLeft().evalNumber(sheet);
+        if (Double.isNaN(leftValue)) {
+            return Double.NaN;
+        }
+        double rightValue = getRight().evalNumber(sheet);
+        if (Double.isNaN(rightValue)) {
+            return Double.NaN;
+        }
+        return apply(leftValue, rightValue);
+    }
+
+    // The operator on two numbers, neither of them NaN
+    protected abstract double apply(double left, double right);
+}
@@ -3,7 +3,7 @@ package expression.impl;
 import expression.api.Expression;
 import cell.api.CellType;
 import cell.api.EffectiveValue;
-import cell.impl.EffectiveValueImpl;
+import cell.impl.BooleanValue;
 import sheet.api.SheetReadActions;
 
 public class OrExpression extends BinaryExpression {
@@ -15,17 +15,17 @@ public class OrExpression extends BinaryExpression {
     @Override
     protected EffectiveValue eval(EffectiveValue left, EffectiveValue right) {
         if (left.getCellType() != CellType.BOOLEAN || right.getCellType() != CellType.BOOLEAN) {
-            return new EffectiveValueImpl(CellType.BOOLEAN, false);
+            return BooleanValue.FALSE;
         }
 
         Boolean leftValue = left.extractValueWithExpectation(Boolean.class);
         Boolean rightValue = right.extractValueWithExpectation(Boolean.class);
 
         if (leftValue == null || rightValue == null) {
-            return new EffectiveValueImpl(CellType.BOOLEAN, false);
+            return BooleanValue.FALSE;
         }
 
-        return new EffectiveValueImpl(CellType.BOOLEAN, leftValue || rightValue);
+        return BooleanValue.of(leftValue || rightValue);
     }
 
     @Override
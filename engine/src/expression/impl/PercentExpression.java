@@ -3,9 +3,10 @@ package expression.impl;
 import cell.api.CellType;
 import cell.api.EffectiveValue;
 import cell.impl.EffectiveValueImpl;
+import cell.impl.NumericValue;
 import expression.api.Expression;
 
-public class PercentExpression  extends BinaryExpression{
+public class PercentExpression  extends NumericBinaryExpression {
 
         public PercentExpression(Expression left, Expression right) {
             super(left, right);
@@ -25,7 +26,12 @@ public class PercentExpression  extends BinaryExpression{
                 return new EffectiveValueImpl(CellType.INVALID, Double.NaN);
             }
             Double result = (leftValue * rightValue) / 100;
-            return new EffectiveValueImpl(CellType.NUMERIC, result);
+            return new NumericValue(result);
+        }
+
+        @Override
+        protected double apply(double left, double right) {
+            return (left * right) / 100;
         }
     @Override
     public CellType getFunctionResultType() {
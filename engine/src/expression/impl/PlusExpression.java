@@ -5,9 +5,10 @@ import expression.api.Expression;
 import cell.api.CellType;
 import cell.api.EffectiveValue;
 import cell.impl.EffectiveValueImpl;
+import cell.impl.NumericValue;
 
 
-public class PlusExpression extends BinaryExpression {
+public class PlusExpression extends NumericBinaryExpression {
 
 
     public PlusExpression(Expression left, Expression right) {
@@ -28,7 +29,12 @@ public class PlusExpression extends BinaryExpression {
         }
         double result = leftValue + rightValue;
         // Return the result as an EffectiveValue
-        return new EffectiveValueImpl(CellType.NUMERIC, result);
+        return new NumericValue(result);
+    }
+
+    @Override
+    protected double apply(double left, double right) {
+        return left + right;
     }
 
     @Override
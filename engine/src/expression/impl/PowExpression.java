@@ -5,10 +5,10 @@ package expression.impl;
 import expression.api.Expression;
 import cell.api.CellType;
 import cell.api.EffectiveValue;
-import cell.impl.EffectiveValueImpl;
+import cell.impl.NumericValue;
 
 
-public class PowExpression extends BinaryExpression {
+public class PowExpression extends NumericBinaryExpression {
 
     private Expression left;
     private Expression right;
@@ -21,18 +21,23 @@ public class PowExpression extends BinaryExpression {
     public EffectiveValue eval(EffectiveValue left, EffectiveValue right) {
         // Check for null or unknown values
         if (left == null || right == null || left.getCellType() == CellType.UNKNOWN || right.getCellType() == CellType.UNKNOWN) {
-            return new EffectiveValueImpl(CellType.NUMERIC, Double.NaN);
+            return new NumericValue(Double.NaN);
         }
         // Extract numeric values from the operands
         Double leftValue = left.extractValueWithExpectation(Double.class);
         Double rightValue = right.extractValueWithExpectation(Double.class);
         if (leftValue == null || rightValue == null) {
-            return new EffectiveValueImpl(CellType.NUMERIC, Double.NaN);
+            return new NumericValue(Double.NaN);
         }
         double result = Math.pow(leftValue, rightValue);
 
         // Return the result as an EffectiveValue
-        return new EffectiveValueImpl(CellType.NUMERIC, result);
+        return new NumericValue(result);
+    }
+
+    @Override
+    protected double apply(double left, double right) {
+        return Math.pow(left, right);
     }
 
     @Override
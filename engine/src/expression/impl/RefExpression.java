@@ -1,6 +1,7 @@
 package expression.impl;
 import cell.api.Cell;
 import expression.api.Expression;
+import expression.api.ExpressionVisitor;
 import cell.api.CellType;
 import cell.api.EffectiveValue;
 import sheet.api.SheetReadActions;
@@ -24,8 +25,20 @@ import coordinate.Coordinate;
             return sheet.getCell(coordinate).getEffectiveValue();
         }
 
+        @Override
+        public double evalNumber(SheetReadActions sheet) {
+            Cell cell = sheet.getCell(coordinate);
+            EffectiveValue value = cell != null ? cell.getEffectiveValue() : null;
+            return value != null ? value.getNumericValue() : Double.NaN;
+        }
+
         @Override
         public CellType getFunctionResultType() {
             return CellType.UNKNOWN;
         }
+
+        @Override
+        public void accept(ExpressionVisitor visitor) {
+            visitor.visitReference(coordinate);
+        }
     }
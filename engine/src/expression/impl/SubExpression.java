@@ -5,6 +5,7 @@ import expression.api.Expression;
 import cell.api.CellType;
 import cell.api.EffectiveValue;
 import cell.impl.EffectiveValueImpl;
+import cell.impl.StringValue;
 
 public class SubExpression extends TernaryExpression {
 
@@ -35,7 +36,7 @@ public class SubExpression extends TernaryExpression {
         String result = extractSource.substring(start, end + 1);
 
         // Return the result as an EffectiveValue
-        return new EffectiveValueImpl(CellType.STRING, result);
+        return new StringValue(result);
     }
 
     public static boolean isInteger(double number) {
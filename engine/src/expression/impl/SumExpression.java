@@ -1,14 +1,13 @@
 package expression.impl;
 
-import cell.api.Cell;
 import cell.api.CellType;
 import cell.api.EffectiveValue;
 import cell.impl.EffectiveValueImpl;
+import cell.impl.NumericValue;
 import expression.api.Expression;
+import expression.api.ExpressionVisitor;
 import range.api.Range;
-import range.impl.RangeImpl;
 import sheet.api.SheetReadActions;
-import java.util.*;
 
 
 public class SumExpression implements Expression {
@@ -24,25 +23,15 @@ public class SumExpression implements Expression {
         if (range == null) {
             return new EffectiveValueImpl(CellType.INVALID, Double.NaN);
         }
-        double sum = 0;
-        List<Cell> cellsInRange = sheet.getCellsInRange(range);
-
-        for (Cell cell : cellsInRange) {
-            EffectiveValue cellValue = cell.getEffectiveValue();
-            // Extract numeric value
-            if (cellValue == null) {
-                sum += 0;
-            } else {
-                if(cellValue.getCellType() == CellType.NUMERIC) {
-                    Double numericValue = cellValue.extractValueWithExpectation(Double.class);
-                    sum += numericValue; // Add to sum if it's a valid number
-
-                }
-            }
+        // the range keeps the sum of its numeric cells up to date as they change
+        return new NumericValue(range.getSum());
 
-        }
-        return new EffectiveValueImpl(CellType.NUMERIC, sum);
+    }
 
+    @Override
+    public double evalNumber(SheetReadActions sheet) {
+        Range range = sheet.getRange(this.range);
+        return range != null ? range.getSum() : Double.NaN;
     }
 
     @Override
@@ -50,5 +39,9 @@ public class SumExpression implements Expression {
         return CellType.NUMERIC;
     }
 
-}
+    @Override
+    public void accept(ExpressionVisitor visitor) {
+        visitor.visitRange(range);
+    }
 
+}
@@ -1,6 +1,7 @@
 package expression.impl;
 
 import expression.api.Expression;
+import expression.api.ExpressionVisitor;
 import sheet.api.SheetReadActions;
 import cell.api.EffectiveValue;
 
@@ -25,5 +26,12 @@ public abstract class TernaryExpression implements Expression {
         );
     }
 
+    @Override
+    public void accept(ExpressionVisitor visitor) {
+        argument1.accept(visitor);
+        argument2.accept(visitor);
+        argument3.accept(visitor);
+    }
+
     protected abstract EffectiveValue eval(EffectiveValue arg1, EffectiveValue arg2, EffectiveValue arg3);
 }
\ No newline at end of file
@@ -2,12 +2,11 @@ package expression.parser;
 
 import cell.api.CellType;
 import coordinate.Coordinate;
+import engine.metrics.EngineMetrics;
 import expression.api.Expression;
 import expression.impl.*;
 
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Stack;
+import java.util.*;
 
 import static coordinate.CoordinateFactory.createCoordinate;
 
@@ -429,7 +428,25 @@ public enum FunctionParser {
 
     abstract public Expression parse(List<String> arguments);
 
+    private static final int PARSED_EXPRESSIONS_CAPACITY = 10_000;
+
+    // Expressions hold no state, so identical formulas in any cell or sheet can share one parsed tree.
+    // The formulas least used lately are dropped once the cache is full.
+    private static final ParsedExpressionCache parsedExpressions = new ParsedExpressionCache(PARSED_EXPRESSIONS_CAPACITY);
+
     public static Expression parseExpression(String input) {
+        Expression expression = parsedExpressions.get(input);
+        if (expression == null) {
+            EngineMetrics.PARSE_CACHE_MISSES.increment();
+            expression = parseNewExpression(input);
+            parsedExpressions.put(input, expression);
+        } else {
+            EngineMetrics.PARSE_CACHE_HITS.increment();
+        }
+        return expression;
+    }
+
+    private static Expression parseNewExpression(String input) {
 
         if (input.startsWith("{") && input.endsWith("}")) {
 
@@ -0,0 +1,52 @@
+package expression.parser;
+
+import expression.api.Expression;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/*
+Parsed expressions by formula, read by any number of threads without a shared lock.
+New formulas go into the current generation. Once it holds half the capacity it becomes the previous generation and
+the one before it is dropped, so a formula not used for a whole generation is let go. A formula found only in the
+previous generation is put back into the current one, so the formulas in use stay.
+ */
+class ParsedExpressionCache {
+
+    private final int generationCapacity;
+    private volatile Map<String, Expression> current = new ConcurrentHashMap<>();
+    private volatile Map<String, Expression> previous = new ConcurrentHashMap<>();
+
+    ParsedExpressionCache(int capacity) {
+        if (capacity < 2) {
+            throw new IllegalArgumentException("The cache must hold at least 2 expressions. Provided: " + capacity);
+        }
+        this.generationCapacity = capacity / 2;
+    }
+
+    // Returns the parsed expression of the formula, or null if it is not kept
+    Expression get(String formula) {
+        Expression expression = current.get(formula);
+        if (expression == null) {
+            expression = previous.get(formula);
+            if (expression != null) {
+                put(formula, expression);
+            }
+        }
+        return expression;
+    }
+
+    void put(String formula, Expression expression) {
+        Map<String, Expression> generation = current;
+        generation.put(formula, expression);
+        if (generation.size() >= generationCapacity) {
+            // only the thread that fills a generation takes the lock, and only to start the next one
+            synchronized (this) {
+                if (current == generation) {
+                    previous = generation;
+                    current = new ConcurrentHashMap<>();
+                }
+            }
+        }
+    }
+}
@@ -44,6 +44,14 @@ public class PermissionsManager {
         permissionRequests.add(request);
     }
 
+    // Puts back a request as it was saved, whatever its status.
+    public synchronized void restorePermissionRequest(PermissionRequest request) {
+        if (request == null) {
+            throw new IllegalArgumentException("Permission request cannot be null.");
+        }
+        permissionRequests.add(request);
+    }
+
     public synchronized List<PermissionRequest> getPermissionRequests() {
         // Return a copy to prevent external modification.
         return new ArrayList<>(permissionRequests);
@@ -85,4 +93,14 @@ public class PermissionsManager {
         // Return a copy to prevent external modification.
         return new HashMap<>(userPermissions);
     }
+
+    // Returns a copy that later changes to this manager or its requests do not reach.
+    public synchronized PermissionsManager copy() {
+        PermissionsManager copy = new PermissionsManager(ownerUsername);
+        copy.userPermissions.putAll(userPermissions);
+        for (PermissionRequest request : permissionRequests) {
+            copy.permissionRequests.add(new PermissionRequest(request.getUsername(), request.getRequestedPermission(), request.getStatus()));
+        }
+        return copy;
+    }
 }
@@ -2,6 +2,7 @@ package range.api;
 
 import cell.api.Cell;
 import cell.api.EffectiveValue;
+import coordinate.Coordinate;
 import sheet.api.Sheet;
 
 import java.util.List;
@@ -14,5 +15,13 @@ public interface Range {
 
     String getTo();
 
+    Coordinate getFromCoordinate();
+
+    Coordinate getToCoordinate();
+
     List<Cell> getCells();
+
+    double getSum();
+
+    int getNumericCount();
 }
\ No newline at end of file
@@ -1,6 +1,8 @@
 package range.impl;
 
 import cell.api.Cell;
+import cell.api.CellType;
+import cell.api.EffectiveValue;
 import cell.impl.CellImpl;
 import coordinate.Coordinate;
 import coordinate.CoordinateFactory;
@@ -11,12 +13,25 @@ import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.List;
 
+/*
+A named rectangle of cells.
+The range keeps a running sum and count of the numeric values in it, updated by the sheet with the old and new
+value whenever a cell in the range changes, so SUM and AVERAGE read it without visiting the cells.
+The sum is compensated (Neumaier) so that adding and removing values does not drift, and infinities and NaN
+are counted apart since they cannot be subtracted back out.
+ */
 public class RangeImpl implements Range, Serializable {
 
     private final String name;
     private final Coordinate fromCoordinate;
     private final Coordinate toCoordinate;
     private final List<Cell> cells;
+    private double sum;
+    private double compensation;
+    private int numericCount;
+    private int nanCount;
+    private int positiveInfinityCount;
+    private int negativeInfinityCount;
 
     public RangeImpl(String name, String startCellId, String endCellId, Sheet sheet) {
         this.name = name;
@@ -34,6 +49,24 @@ public class RangeImpl implements Range, Serializable {
         this.cells = new ArrayList<>();
 }
 
+    // copies the range into another sheet version, including its running aggregates
+    private RangeImpl(RangeImpl other) {
+        this.name = other.name;
+        this.fromCoordinate = other.fromCoordinate;
+        this.toCoordinate = other.toCoordinate;
+        this.cells = other.cells;
+        this.sum = other.sum;
+        this.compensation = other.compensation;
+        this.numericCount = other.numericCount;
+        this.nanCount = other.nanCount;
+        this.positiveInfinityCount = other.positiveInfinityCount;
+        this.negativeInfinityCount = other.negativeInfinityCount;
+    }
+
+    public RangeImpl copy() {
+        return new RangeImpl(this);
+    }
+
 
         private void validateAndLoadRange(Sheet sheet) {
         // Get row and column limits of the range
@@ -72,8 +105,86 @@ public class RangeImpl implements Range, Serializable {
         return toCoordinate.toString();
     }
 
+    @Override
+    public Coordinate getFromCoordinate() {
+        return fromCoordinate;
+    }
+
+    @Override
+    public Coordinate getToCoordinate() {
+        return toCoordinate;
+    }
+
     @Override
     public List<Cell> getCells() {
         return cells;
     }
+
+    @Override
+    public double getSum() {
+        if (nanCount > 0 || (positiveInfinityCount > 0 && negativeInfinityCount > 0)) {
+            return Double.NaN;
+        }
+        if (positiveInfinityCount > 0) {
+            return Double.POSITIVE_INFINITY;
+        }
+        if (negativeInfinityCount > 0) {
+            return Double.NEGATIVE_INFINITY;
+        }
+        return sum + compensation;
+    }
+
+    @Override
+    public int getNumericCount() {
+        return numericCount;
+    }
+
+    // Recalculates the aggregates from the cells currently in the range
+    public void resetAggregates(List<Cell> cellsInRange) {
+        sum = 0;
+        compensation = 0;
+        numericCount = 0;
+        nanCount = 0;
+        positiveInfinityCount = 0;
+        negativeInfinityCount = 0;
+        for (Cell cell : cellsInRange) {
+            add(cell.getEffectiveValue(), 1);
+        }
+    }
+
+    // Replaces the contribution of a cell in the range, null standing for an empty or not yet calculated cell
+    public void applyValueChange(EffectiveValue oldValue, EffectiveValue newValue) {
+        add(oldValue, -1);
+        add(newValue, 1);
+    }
+
+    private void add(EffectiveValue value, int sign) {
+        if (value == null || value.getCellType() != CellType.NUMERIC) {
+            return;
+        }
+        double number = value.getNumericValue();
+
+        numericCount += sign;
+        if (Double.isNaN(number)) {
+            nanCount += sign;
+        } else if (number == Double.POSITIVE_INFINITY) {
+            positiveInfinityCount += sign;
+        } else if (number == Double.NEGATIVE_INFINITY) {
+            negativeInfinityCount += sign;
+        } else {
+            double term = sign * number;
+            double total = sum + term;
+            if (Math.abs(sum) >= Math.abs(term)) {
+                compensation += (sum - total) + term;
+            } else {
+                compensation += (term - total) + sum;
+            }
+            sum = total;
+        }
+        if (numericCount == 0) {
+            // nothing is left in the range, so drop whatever rounding residue the removals left behind
+            sum = 0;
+            compensation = 0;
+        }
+    }
 }
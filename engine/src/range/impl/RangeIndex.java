@@ -0,0 +1,118 @@
+package range.impl;
+
+import coordinate.Coordinate;
+import range.api.Range;
+
+import java.util.*;
+
+/*
+An immutable R-tree over the rectangles of a sheet's ranges, bulk loaded with Sort-Tile-Recursive packing.
+Answers "which ranges contain this cell" by descending only into the boxes that contain it.
+ */
+public class RangeIndex {
+
+    private static final int NODE_CAPACITY = 8;
+
+    private final Box root;
+
+    public RangeIndex(Collection<? extends Range> ranges) {
+        List<Box> boxes = new ArrayList<>(ranges.size());
+        for (Range range : ranges) {
+            Coordinate from = range.getFromCoordinate();
+            Coordinate to = range.getToCoordinate();
+            // a range written backwards covers no cells, just like when its cells are listed
+            if (from.getRow() <= to.getRow() && from.getColumn() <= to.getColumn()) {
+                boxes.add(new RangeBox(range, from, to));
+            }
+        }
+        this.root = boxes.isEmpty() ? null : pack(boxes);
+    }
+
+    public List<Range> getRangesContaining(Coordinate coordinate) {
+        if (root == null) {
+            return Collections.emptyList();
+        }
+        List<Range> found = new ArrayList<>();
+        collect(root, coordinate.getRow(), coordinate.getColumn(), found);
+        return found;
+    }
+
+    private static void collect(Box box, int row, int col, List<Range> found) {
+        if (!box.contains(row, col)) {
+            return;
+        }
+        if (box instanceof RangeBox rangeBox) {
+            found.add(rangeBox.range);
+            return;
+        }
+        for (Box child : ((NodeBox) box).children) {
+            collect(child, row, col, found);
+        }
+    }
+
+    // Packs one level at a time until a single node is left
+    private static Box pack(List<Box> boxes) {
+        while (boxes.size() > 1) {
+            boxes = packLevel(boxes);
+        }
+        return boxes.get(0);
+    }
+
+    private static List<Box> packLevel(List<Box> boxes) {
+        int nodeCount = (boxes.size() + NODE_CAPACITY - 1) / NODE_CAPACITY;
+        int sliceCount = (int) Math.ceil(Math.sqrt(nodeCount));
+        int sliceSize = sliceCount * NODE_CAPACITY;
+
+        boxes.sort(Comparator.comparingInt(box -> box.minRow + box.maxRow));
+        List<Box> parents = new ArrayList<>(nodeCount);
+        for (int sliceStart = 0; sliceStart < boxes.size(); sliceStart += sliceSize) {
+            List<Box> slice = new ArrayList<>(boxes.subList(sliceStart, Math.min(sliceStart + sliceSize, boxes.size())));
+            slice.sort(Comparator.comparingInt(box -> box.minCol + box.maxCol));
+            for (int nodeStart = 0; nodeStart < slice.size(); nodeStart += NODE_CAPACITY) {
+                parents.add(new NodeBox(slice.subList(nodeStart, Math.min(nodeStart + NODE_CAPACITY, slice.size()))));
+            }
+        }
+        return parents;
+    }
+
+    private abstract static class Box {
+        protected int minRow;
+        protected int maxRow;
+        protected int minCol;
+        protected int maxCol;
+
+        boolean contains(int row, int col) {
+            return row >= minRow && row <= maxRow && col >= minCol && col <= maxCol;
+        }
+    }
+
+    private static class RangeBox extends Box {
+        private final Range range;
+
+        private RangeBox(Range range, Coordinate from, Coordinate to) {
+            this.range = range;
+            this.minRow = from.getRow();
+            this.maxRow = to.getRow();
+            this.minCol = from.getColumn();
+            this.maxCol = to.getColumn();
+        }
+    }
+
+    private static class NodeBox extends Box {
+        private final Box[] children;
+
+        private NodeBox(List<Box> children) {
+            this.children = children.toArray(new Box[0]);
+            this.minRow = Integer.MAX_VALUE;
+            this.maxRow = Integer.MIN_VALUE;
+            this.minCol = Integer.MAX_VALUE;
+            this.maxCol = Integer.MIN_VALUE;
+            for (Box child : this.children) {
+                minRow = Math.min(minRow, child.minRow);
+                maxRow = Math.max(maxRow, child.maxRow);
+                minCol = Math.min(minCol, child.minCol);
+                maxCol = Math.max(maxCol, child.maxCol);
+            }
+        }
+    }
+}
@@ -2,6 +2,7 @@ package sheet.api;
 
 
 import cell.api.Cell;
+import cell.api.EffectiveValue;
 import coordinate.Coordinate;
 import range.api.Range;
 import sheet.impl.SheetImpl;
@@ -24,6 +25,8 @@ public interface Sheet extends SheetReadActions, SheetUpdateActions {
 
     void addCell(Coordinate coordinate, Cell cell);
 
+    Cell getCellForUpdate(Coordinate coordinate);
+
     void setSheetVersion(int loadVersion);
 
     String getName();
@@ -40,8 +43,12 @@ public interface Sheet extends SheetReadActions, SheetUpdateActions {
     Sheet updateCellValueAndCalculate(String cellId, String value, String userName);
 
     List<Cell> orderCellsForCalculation();
+    List<Cell> orderCellsForCalculation(Cell changedCell);
     Map<Coordinate, Cell> getActiveCells();
     void updateDependenciesAndInfluences();
+    List<Coordinate> getDependsOn(Cell cell);
+    List<Coordinate> getInfluencingOn(Cell cell);
+    void updateRangeAggregates(Coordinate coordinate, EffectiveValue oldValue, EffectiveValue newValue);
     void addRange(String name, String range);
     void deleteRange(String name);
     Collection<Range> getAllRanges();
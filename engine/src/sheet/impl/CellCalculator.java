@@ -0,0 +1,167 @@
+package sheet.impl;
+
+import cell.api.Cell;
+import cell.api.EffectiveValue;
+import coordinate.Coordinate;
+import engine.events.RecalculationEvent;
+import sheet.api.Sheet;
+
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/*
+Calculates effective values for cells given in topological order.
+Small batches run on the calling thread. Larger ones are split into levels, where a cell's level is one more
+than the deepest cell it depends on (directly or through a range), so the cells of a level never read each other and are evaluated in parallel.
+A level is only started after the previous one has completed, which also publishes its values to the next level.
+Range aggregates are updated on the calling thread: after each cell when sequential, after each level when parallel.
+ */
+public class CellCalculator {
+
+    private static final int DEFAULT_PARALLEL_THRESHOLD = 512;
+    private static final int CELLS_PER_TASK = 64;
+
+    private static volatile ForkJoinPool pool = ForkJoinPool.commonPool();
+    private static volatile int parallelThreshold = DEFAULT_PARALLEL_THRESHOLD;
+
+    private CellCalculator() {
+    }
+
+    public static void setPool(ForkJoinPool calculationPool) {
+        if (calculationPool == null) {
+            throw new IllegalArgumentException("Calculation pool cannot be null.");
+        }
+        pool = calculationPool;
+    }
+
+    // Number of cells from which a calculation is run level by level on the pool
+    public static void setParallelThreshold(int threshold) {
+        if (threshold < 1) {
+            throw new IllegalArgumentException("Parallel threshold must be at least 1.");
+        }
+        parallelThreshold = threshold;
+    }
+
+    // Wires and calculates every cell of a sheet that was just built cell by cell, as after loading it
+    public static void calculateNewSheet(Sheet sheet) {
+        RecalculationEvent event = new RecalculationEvent();
+        event.begin();
+        sheet.updateDependenciesAndInfluences();
+        List<Cell> orderedCells = sheet.orderCellsForCalculation();
+        List<Cell> changedCells = calculate(sheet, orderedCells);
+        orderedCells.forEach(sheet::addCellThatChanged);
+        if (event.shouldCommit()) {
+            event.set(sheet.getName(), sheet.getVersion(), true, orderedCells.size(), changedCells.size());
+            event.commit();
+        }
+    }
+
+    // Returns the cells whose effective value changed, in calculation order
+    public static List<Cell> calculate(Sheet sheet, List<Cell> orderedCells) {
+        if (orderedCells.size() < parallelThreshold) {
+            List<Cell> changedCells = new ArrayList<>();
+            for (Cell cell : orderedCells) {
+                EffectiveValue previousValue = cell.getEffectiveValue();
+                if (cell.calculateEffectiveValue()) {
+                    sheet.updateRangeAggregates(cell.getCoordinate(), previousValue, cell.getEffectiveValue());
+                    changedCells.add(cell);
+                }
+            }
+            return changedCells;
+        }
+
+        Cell[] cells = orderedCells.toArray(new Cell[0]);
+        EffectiveValue[] previousValues = new EffectiveValue[cells.length];
+        boolean[] changed = new boolean[cells.length];
+        for (int[] level : splitIntoLevels(sheet, cells)) {
+            LevelTask task = new LevelTask(cells, level, previousValues, changed, 0, level.length);
+            if (level.length <= CELLS_PER_TASK) {
+                task.compute();
+            } else {
+                pool.invoke(task);
+            }
+            for (int index : level) {
+                if (changed[index]) {
+                    sheet.updateRangeAggregates(cells[index].getCoordinate(), previousValues[index], cells[index].getEffectiveValue());
+                }
+            }
+        }
+
+        List<Cell> changedCells = new ArrayList<>();
+        for (int i = 0; i < cells.length; i++) {
+            if (changed[i]) {
+                changedCells.add(cells[i]);
+            }
+        }
+        return changedCells;
+    }
+
+    // Groups the indexes of the cells by their depth in the dependency graph
+    // Depths are pushed forward along the influence edges, so range users are reached without listing the range's cells
+    private static List<int[]> splitIntoLevels(Sheet sheet, Cell[] cells) {
+        Map<Coordinate, Integer> positions = new HashMap<>();
+        for (int i = 0; i < cells.length; i++) {
+            positions.put(cells[i].getCoordinate(), i);
+        }
+
+        int[] depths = new int[cells.length];
+        int maxDepth = 0;
+        for (int i = 0; i < cells.length; i++) {
+            maxDepth = Math.max(maxDepth, depths[i]);
+            for (Coordinate influenced : sheet.getInfluencingOn(cells[i])) {
+                Integer position = positions.get(influenced);
+                if (position != null) {
+                    depths[position] = Math.max(depths[position], depths[i] + 1);
+                }
+            }
+        }
+
+        int[] levelSizes = new int[maxDepth + 1];
+        for (int depth : depths) {
+            levelSizes[depth]++;
+        }
+        List<int[]> levels = new ArrayList<>(maxDepth + 1);
+        for (int size : levelSizes) {
+            levels.add(new int[size]);
+        }
+        int[] filled = new int[maxDepth + 1];
+        for (int i = 0; i < cells.length; i++) {
+            levels.get(depths[i])[filled[depths[i]]++] = i;
+        }
+        return levels;
+    }
+
+    private static class LevelTask extends RecursiveAction {
+        private final Cell[] cells;
+        private final int[] level;
+        private final EffectiveValue[] previousValues;
+        private final boolean[] changed;
+        private final int from;
+        private final int to;
+
+        private LevelTask(Cell[] cells, int[] level, EffectiveValue[] previousValues, boolean[] changed, int from, int to) {
+            this.cells = cells;
+            this.level = level;
+            this.previousValues = previousValues;
+            this.changed = changed;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= CELLS_PER_TASK) {
+                for (int i = from; i < to; i++) {
+                    int index = level[i];
+                    previousValues[index] = cells[index].getEffectiveValue();
+                    changed[index] = cells[index].calculateEffectiveValue();
+                }
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new LevelTask(cells, level, previousValues, changed, from, middle),
+                    new LevelTask(cells, level, previousValues, changed, middle, to));
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package sheet.impl;
+
+import cell.api.Cell;
+import coordinate.Coordinate;
+
+import java.io.Serializable;
+import java.util.AbstractMap;
+
+/*
+Immutable storage of a sheet's cells. Every change returns a new store that shares what it did not touch,
+so sheet versions can hold their cells without copying each other.
+Sparse sheets are kept in a hash trie, sheets filled past a quarter of their area in a row-major grid.
+ */
+abstract class CellStore extends AbstractMap<Coordinate, Cell> implements Serializable {
+
+    private static final int DENSE_FILL_DIVISOR = 4;
+
+    static CellStore empty() {
+        return PersistentCellMap.EMPTY;
+    }
+
+    // Picks the representation that suits a sheet of the given size holding these cells
+    static CellStore forSheet(CellStore cells, int rows, int cols) {
+        if (rows < 1 || cols < 1) {
+            return cells instanceof PersistentCellGrid ? PersistentCellMap.copyOf(cells) : cells;
+        }
+        if (cells instanceof PersistentCellGrid grid) {
+            return grid.hasSize(rows, cols) ? grid : forSheet(PersistentCellMap.copyOf(grid), rows, cols);
+        }
+        if ((long) cells.size() * DENSE_FILL_DIVISOR >= (long) rows * cols) {
+            return PersistentCellGrid.copyOf(cells, rows, cols);
+        }
+        return cells;
+    }
+
+    abstract CellStore with(Coordinate coordinate, Cell cell);
+
+    abstract CellStore without(Coordinate coordinate);
+}
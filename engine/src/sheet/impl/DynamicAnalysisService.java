@@ -27,7 +27,7 @@ public class DynamicAnalysisService {
                 Coordinate coordinate = CoordinateUtils.parseCellId(cellId);
                 CoordinateUtils.validateCoordinate(tempSheet, coordinate);
 
-                Cell cell = tempSheet.getCell(coordinate);
+                Cell cell = tempSheet.getCellForUpdate(coordinate);
                 if (cell == null) {
                     throw new IllegalArgumentException("Cell " + cellId + " does not exist in the sheet.");
                 } else {
@@ -39,9 +39,7 @@ public class DynamicAnalysisService {
             }
 
             tempSheet.updateDependenciesAndInfluences();
-            for (Cell c : tempSheet.orderCellsForCalculation()) {
-                c.calculateEffectiveValue();
-            }
+            CellCalculator.calculate(tempSheet, tempSheet.orderCellsForCalculation());
 
             return dtoFactory.createSheetDTO(tempSheet);
         } catch (Exception e) {
@@ -56,7 +54,7 @@ public class DynamicAnalysisService {
             Coordinate coordinate = CoordinateUtils.parseCellId(cellId);
             CoordinateUtils.validateCoordinate(tempSheet, coordinate);
 
-            Cell cell = tempSheet.getCell(coordinate);
+            Cell cell = tempSheet.getCellForUpdate(coordinate);
             if (cell == null) {
                 throw new IllegalArgumentException("Cell " + cellId + " does not exist in the sheet.");
             } else {
@@ -67,9 +65,7 @@ public class DynamicAnalysisService {
             }
 
             tempSheet.updateDependenciesAndInfluences();
-            for (Cell c : tempSheet.orderCellsForCalculation()) {
-                c.calculateEffectiveValue();
-            }
+            CellCalculator.calculate(tempSheet, tempSheet.orderCellsForCalculation());
 
             return dtoFactory.createSheetDTO(tempSheet);
         } catch (Exception e) {
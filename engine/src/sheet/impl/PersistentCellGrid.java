@@ -0,0 +1,181 @@
+package sheet.impl;
+
+import cell.api.Cell;
+import coordinate.Coordinate;
+import coordinate.CoordinateFactory;
+
+import java.util.*;
+
+/*
+An immutable row-major array of cells, where the cell at (row, col) lives at index (row - 1) * cols + (col - 1).
+The array is cut into a 32-way radix tree so that with() copies one short path instead of the whole grid,
+while a lookup is still only array indexing. On a full sheet it takes under 5 bytes per cell besides the cell itself,
+as CellStoreBenchmark in the benchmarks module measures.
+ */
+final class PersistentCellGrid extends CellStore {
+
+    private static final int BITS = 5;
+    private static final int WIDTH = 1 << BITS;
+    private static final int MASK = WIDTH - 1;
+
+    private final int rows;
+    private final int cols;
+    private final int shift;
+    private final Object[] root;
+    private final int size;
+
+    private PersistentCellGrid(int rows, int cols, int shift, Object[] root, int size) {
+        this.rows = rows;
+        this.cols = cols;
+        this.shift = shift;
+        this.root = root;
+        this.size = size;
+    }
+
+    static PersistentCellGrid copyOf(Map<Coordinate, Cell> cells, int rows, int cols) {
+        int shift = 0;
+        while ((long) rows * cols > 1L << (shift + BITS)) {
+            shift += BITS;
+        }
+        // the new grid is not shared yet, so it is filled in place
+        Object[] root = new Object[WIDTH];
+        for (Map.Entry<Coordinate, Cell> entry : cells.entrySet()) {
+            int index = indexOf(entry.getKey(), rows, cols);
+            Object[] node = root;
+            for (int level = shift; level > 0; level -= BITS) {
+                int slot = (index >>> level) & MASK;
+                if (node[slot] == null) {
+                    node[slot] = new Object[WIDTH];
+                }
+                node = (Object[]) node[slot];
+            }
+            node[index & MASK] = entry.getValue();
+        }
+        return new PersistentCellGrid(rows, cols, shift, root, cells.size());
+    }
+
+    boolean hasSize(int rows, int cols) {
+        return this.rows == rows && this.cols == cols;
+    }
+
+    @Override
+    PersistentCellGrid with(Coordinate coordinate, Cell cell) {
+        int index = indexOf(coordinate, rows, cols);
+        boolean exists = cellAt(index) != null;
+        return new PersistentCellGrid(rows, cols, shift, assoc(root, shift, index, cell), exists ? size : size + 1);
+    }
+
+    @Override
+    PersistentCellGrid without(Coordinate coordinate) {
+        if (!containsKey(coordinate)) {
+            return this;
+        }
+        int index = indexOf(coordinate, rows, cols);
+        return new PersistentCellGrid(rows, cols, shift, assoc(root, shift, index, null), size - 1);
+    }
+
+    @Override
+    public Cell get(Object key) {
+        if (!(key instanceof Coordinate coordinate) || !isInside(coordinate)) {
+            return null;
+        }
+        return cellAt(indexOf(coordinate, rows, cols));
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return get(key) != null;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public Set<Map.Entry<Coordinate, Cell>> entrySet() {
+        return new AbstractSet<>() {
+            @Override
+            public Iterator<Map.Entry<Coordinate, Cell>> iterator() {
+                return new EntryIterator();
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    private Cell cellAt(int index) {
+        Object[] leaf = leafFor(index);
+        return leaf != null ? (Cell) leaf[index & MASK] : null;
+    }
+
+    private Object[] leafFor(int index) {
+        Object[] node = root;
+        for (int level = shift; level > 0 && node != null; level -= BITS) {
+            node = (Object[]) node[(index >>> level) & MASK];
+        }
+        return node;
+    }
+
+    private static Object[] assoc(Object[] node, int level, int index, Object value) {
+        Object[] copy = node != null ? node.clone() : new Object[WIDTH];
+        int slot = (index >>> level) & MASK;
+        copy[slot] = level == 0 ? value : assoc((Object[]) copy[slot], level - BITS, index, value);
+        return copy;
+    }
+
+    private boolean isInside(Coordinate coordinate) {
+        return coordinate.getRow() >= 1 && coordinate.getRow() <= rows
+                && coordinate.getColumn() >= 1 && coordinate.getColumn() <= cols;
+    }
+
+    private static int indexOf(Coordinate coordinate, int rows, int cols) {
+        if (coordinate.getRow() < 1 || coordinate.getRow() > rows || coordinate.getColumn() < 1 || coordinate.getColumn() > cols) {
+            throw new IllegalArgumentException("Coordinate " + coordinate + " is out of bounds. Sheet size is " + rows + " rows and " + cols + " columns.");
+        }
+        return (coordinate.getRow() - 1) * cols + (coordinate.getColumn() - 1);
+    }
+
+    // Walks the grid leaf by leaf, skipping leaves that were never filled
+    private class EntryIterator implements Iterator<Map.Entry<Coordinate, Cell>> {
+        private final int capacity = rows * cols;
+        private int index = -1;
+
+        private EntryIterator() {
+            advance();
+        }
+
+        private void advance() {
+            index++;
+            while (index < capacity) {
+                Object[] leaf = leafFor(index);
+                if (leaf == null) {
+                    index = (index | MASK) + 1;
+                } else if (leaf[index & MASK] == null) {
+                    index++;
+                } else {
+                    return;
+                }
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return index < capacity;
+        }
+
+        @Override
+        public Map.Entry<Coordinate, Cell> next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            Coordinate coordinate = CoordinateFactory.createCoordinate(index / cols + 1, index % cols + 1);
+            Map.Entry<Coordinate, Cell> entry = new AbstractMap.SimpleImmutableEntry<>(coordinate, cellAt(index));
+            advance();
+            return entry;
+        }
+    }
+}
@@ -0,0 +1,300 @@
+package sheet.impl;
+
+import cell.api.Cell;
+import coordinate.Coordinate;
+
+import java.io.Serializable;
+import java.util.*;
+
+/*
+An immutable hash array mapped trie from coordinates to cells.
+with() and without() return a new map that shares every untouched node with this one,
+so a new sheet version only pays for the path to the cells it replaced.
+ */
+final class PersistentCellMap extends CellStore {
+
+    private static final int BITS = 5;
+    private static final int MASK = (1 << BITS) - 1;
+    // the largest row and column a key can hold
+    static final int MAX_ROW = (1 << 15) - 1;
+    static final int MAX_COLUMN = (1 << 16) - 1;
+
+    static final PersistentCellMap EMPTY = new PersistentCellMap(null, 0);
+
+    private final Node root;
+    private final int size;
+
+    private PersistentCellMap(Node root, int size) {
+        this.root = root;
+        this.size = size;
+    }
+
+    static PersistentCellMap copyOf(Map<Coordinate, Cell> cells) {
+        PersistentCellMap map = EMPTY;
+        for (Map.Entry<Coordinate, Cell> entry : cells.entrySet()) {
+            map = map.with(entry.getKey(), entry.getValue());
+        }
+        return map;
+    }
+
+    // Returns a map with the given cell stored at the coordinate
+    @Override
+    PersistentCellMap with(Coordinate coordinate, Cell cell) {
+        int key = keyOf(coordinate);
+        boolean exists = find(key) != null;
+        Entry entry = new Entry(key, coordinate, cell);
+        Node newRoot = root == null ? Node.single(entry, 0) : root.with(entry, 0);
+        return new PersistentCellMap(newRoot, exists ? size : size + 1);
+    }
+
+    // Returns a map without the cell at the coordinate
+    @Override
+    PersistentCellMap without(Coordinate coordinate) {
+        int key = keyOf(coordinate);
+        if (find(key) == null) {
+            return this;
+        }
+        return new PersistentCellMap(root.without(key, 0), size - 1);
+    }
+
+    @Override
+    public Cell get(Object key) {
+        if (!(key instanceof Coordinate coordinate)) {
+            return null;
+        }
+        Entry entry = find(keyOf(coordinate));
+        return entry != null ? entry.cell : null;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return key instanceof Coordinate coordinate && find(keyOf(coordinate)) != null;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public Set<Map.Entry<Coordinate, Cell>> entrySet() {
+        return new AbstractSet<>() {
+            @Override
+            public Iterator<Map.Entry<Coordinate, Cell>> iterator() {
+                return new EntryIterator(root);
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    private Entry find(int key) {
+        Node node = root;
+        int shift = 0;
+        while (node != null) {
+            int bit = bitFor(key, shift);
+            if ((node.bitmap & bit) == 0) {
+                return null;
+            }
+            Object slot = node.slots[node.indexOf(bit)];
+            if (slot instanceof Entry entry) {
+                return entry.key == key ? entry : null;
+            }
+            node = (Node) slot;
+            shift += BITS;
+        }
+        return null;
+    }
+
+    // Packs a coordinate into a unique int so that no two cells ever share a hash
+    private static int keyOf(Coordinate coordinate) {
+        int row = coordinate.getRow();
+        int column = coordinate.getColumn();
+        if (row < 0 || row > MAX_ROW || column < 0 || column > MAX_COLUMN) {
+            throw new IllegalArgumentException("Coordinate " + coordinate + " is out of the supported sheet size.");
+        }
+        return (row << 16) | column;
+    }
+
+    private static int bitFor(int key, int shift) {
+        return 1 << ((key >>> shift) & MASK);
+    }
+
+    private static final class Entry implements Map.Entry<Coordinate, Cell>, Serializable {
+        private final int key;
+        private final Coordinate coordinate;
+        private final Cell cell;
+
+        private Entry(int key, Coordinate coordinate, Cell cell) {
+            this.key = key;
+            this.coordinate = coordinate;
+            this.cell = cell;
+        }
+
+        @Override
+        public Coordinate getKey() {
+            return coordinate;
+        }
+
+        @Override
+        public Cell getValue() {
+            return cell;
+        }
+
+        @Override
+        public Cell setValue(Cell value) {
+            throw new UnsupportedOperationException("Sheet cells map is immutable.");
+        }
+    }
+
+    // Each slot holds either an Entry or a child Node, compressed by the bitmap
+    private static final class Node implements Serializable {
+        private final int bitmap;
+        private final Object[] slots;
+
+        private Node(int bitmap, Object[] slots) {
+            this.bitmap = bitmap;
+            this.slots = slots;
+        }
+
+        private static Node single(Entry entry, int shift) {
+            return new Node(bitFor(entry.key, shift), new Object[]{entry});
+        }
+
+        private int indexOf(int bit) {
+            return Integer.bitCount(bitmap & (bit - 1));
+        }
+
+        private Node with(Entry entry, int shift) {
+            int bit = bitFor(entry.key, shift);
+            int index = indexOf(bit);
+
+            if ((bitmap & bit) == 0) {
+                Object[] newSlots = new Object[slots.length + 1];
+                System.arraycopy(slots, 0, newSlots, 0, index);
+                newSlots[index] = entry;
+                System.arraycopy(slots, index, newSlots, index + 1, slots.length - index);
+                return new Node(bitmap | bit, newSlots);
+            }
+
+            Object slot = slots[index];
+            Object newSlot;
+            if (slot instanceof Node child) {
+                newSlot = child.with(entry, shift + BITS);
+            } else if (((Entry) slot).key == entry.key) {
+                newSlot = entry;
+            } else {
+                newSlot = merge((Entry) slot, entry, shift + BITS);
+            }
+            return replaceSlot(index, newSlot);
+        }
+
+        // Returns the node without the key, or null when nothing is left in it
+        private Node without(int key, int shift) {
+            int bit = bitFor(key, shift);
+            if ((bitmap & bit) == 0) {
+                return this;
+            }
+            int index = indexOf(bit);
+            Object slot = slots[index];
+
+            if (slot instanceof Entry entry) {
+                return entry.key == key ? removeSlot(bit, index) : this;
+            }
+
+            Node child = (Node) slot;
+            Node newChild = child.without(key, shift + BITS);
+            if (newChild == child) {
+                return this;
+            }
+            if (newChild == null) {
+                return removeSlot(bit, index);
+            }
+            if (newChild.slots.length == 1 && newChild.slots[0] instanceof Entry remaining) {
+                // pull a lone entry up so lookups stay as short as possible
+                return replaceSlot(index, remaining);
+            }
+            return replaceSlot(index, newChild);
+        }
+
+        private Node replaceSlot(int index, Object slot) {
+            Object[] newSlots = slots.clone();
+            newSlots[index] = slot;
+            return new Node(bitmap, newSlots);
+        }
+
+        private Node removeSlot(int bit, int index) {
+            if (slots.length == 1) {
+                return null;
+            }
+            Object[] newSlots = new Object[slots.length - 1];
+            System.arraycopy(slots, 0, newSlots, 0, index);
+            System.arraycopy(slots, index + 1, newSlots, index, slots.length - index - 1);
+            return new Node(bitmap & ~bit, newSlots);
+        }
+
+        private static Node merge(Entry first, Entry second, int shift) {
+            int firstBit = bitFor(first.key, shift);
+            int secondBit = bitFor(second.key, shift);
+            if (firstBit == secondBit) {
+                return new Node(firstBit, new Object[]{merge(first, second, shift + BITS)});
+            }
+            Object[] newSlots = Integer.compareUnsigned(firstBit, secondBit) < 0
+                    ? new Object[]{first, second}
+                    : new Object[]{second, first};
+            return new Node(firstBit | secondBit, newSlots);
+        }
+    }
+
+    private static final class EntryIterator implements Iterator<Map.Entry<Coordinate, Cell>> {
+        private final Deque<Node> nodes = new ArrayDeque<>();
+        private final Deque<Integer> positions = new ArrayDeque<>();
+        private Entry next;
+
+        private EntryIterator(Node root) {
+            if (root != null) {
+                nodes.push(root);
+                positions.push(0);
+            }
+            advance();
+        }
+
+        private void advance() {
+            next = null;
+            while (!nodes.isEmpty()) {
+                Node node = nodes.peek();
+                int position = positions.pop();
+                if (position == node.slots.length) {
+                    nodes.pop();
+                    continue;
+                }
+                positions.push(position + 1);
+                Object slot = node.slots[position];
+                if (slot instanceof Entry entry) {
+                    next = entry;
+                    return;
+                }
+                nodes.push((Node) slot);
+                positions.push(0);
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        @Override
+        public Map.Entry<Coordinate, Cell> next() {
+            if (next == null) {
+                throw new NoSuchElementException();
+            }
+            Entry current = next;
+            advance();
+            return current;
+        }
+    }
+}
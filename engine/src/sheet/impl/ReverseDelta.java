@@ -0,0 +1,231 @@
+package sheet.impl;
+
+import cell.api.Cell;
+import cell.impl.CellImpl;
+import coordinate.Coordinate;
+import coordinate.CoordinateFactory;
+import engine.storage.SheetCodec;
+import range.api.Range;
+import sheet.api.Sheet;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/*
+What turns a version of a sheet back into the version before it: the cells that differ, as they were before,
+and the ranges when they differ.
+Only what cannot be calculated is kept, encoded, so an old version costs a few bytes per changed cell;
+it is rebuilt and calculated again when it is asked for.
+It is built from the cells the edits of the newer version changed, so building it costs as much as those edits
+and not a pass over both versions' cells.
+ */
+class ReverseDelta {
+
+    private final int version;
+    private final long publication;
+    private final byte[] encoded;
+
+    private ReverseDelta(int version, long publication, byte[] encoded) {
+        this.version = version;
+        this.publication = publication;
+        this.encoded = encoded;
+    }
+
+    // The delta that turns newer back into older, which was published as the given publication.
+    // Only the given cells are compared, so they must hold every cell whose stored values differ between the two.
+    static ReverseDelta between(Sheet older, Sheet newer, Collection<Coordinate> changedCells, long publication) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            List<Coordinate> changed = new ArrayList<>();
+            Map<Coordinate, Cell> olderCells = older.getActiveCells();
+            Map<Coordinate, Cell> newerCells = newer.getActiveCells();
+            for (Coordinate coordinate : changedCells) {
+                Cell olderCell = olderCells.get(coordinate);
+                Cell newerCell = newerCells.get(coordinate);
+                if (olderCell == null ? newerCell != null : !sameStoredValues(olderCell, newerCell)) {
+                    changed.add(coordinate);
+                }
+            }
+
+            out.writeInt(changed.size());
+            for (Coordinate coordinate : changed) {
+                out.writeInt(coordinate.getRow());
+                out.writeInt(coordinate.getColumn());
+                Cell cell = olderCells.get(coordinate);
+                out.writeBoolean(cell != null);
+                if (cell != null) {
+                    SheetCodec.writeString(out, cell.getOriginalValue());
+                    out.writeInt(cell.getVersion());
+                    SheetCodec.writeString(out, cell.getChangedBy());
+                    SheetCodec.writeString(out, cell.getBackgroundColor());
+                    SheetCodec.writeString(out, cell.getTextColor());
+                }
+            }
+
+            List<StoredRange> olderRanges = StoredRange.of(older);
+            // ranges are kept by name, so their order says nothing
+            boolean rangesChanged = !new HashSet<>(olderRanges).equals(new HashSet<>(StoredRange.of(newer)));
+            out.writeBoolean(rangesChanged);
+            if (rangesChanged) {
+                out.writeInt(olderRanges.size());
+                for (StoredRange range : olderRanges) {
+                    SheetCodec.writeString(out, range.name);
+                    SheetCodec.writeString(out, range.from);
+                    SheetCodec.writeString(out, range.to);
+                }
+            }
+        } catch (IOException e) {
+            // writing to memory does not fail
+            throw new UncheckedIOException(e);
+        }
+        return new ReverseDelta(older.getVersion(), publication, bytes.toByteArray());
+    }
+
+    int getVersion() {
+        return version;
+    }
+
+    long getPublication() {
+        return publication;
+    }
+
+    // The bytes this delta keeps in memory
+    int getSize() {
+        return encoded.length;
+    }
+
+    // Builds the version of the first delta, starting from base and going back through the deltas, newest first
+    static Sheet rebuild(Sheet base, List<ReverseDelta> newestFirst) {
+        Map<Coordinate, StoredCell> cells = new HashMap<>();
+        for (Cell cell : base.getActiveCells().values()) {
+            cells.put(cell.getCoordinate(), new StoredCell(cell.getOriginalValue(), cell.getVersion(), cell.getChangedBy(),
+                    cell.getBackgroundColor(), cell.getTextColor()));
+        }
+        List<StoredRange> ranges = StoredRange.of(base);
+        for (ReverseDelta delta : newestFirst) {
+            ranges = delta.applyTo(cells, ranges);
+        }
+
+        Sheet sheet = new SheetImpl();
+        sheet.setName(base.getName());
+        sheet.setOwner(base.getOwner());
+        sheet.setSheetVersion(newestFirst.get(newestFirst.size() - 1).version);
+        sheet.setRows(base.getRows());
+        sheet.setCols(base.getCols());
+        sheet.setRowHeight(base.getRowHeight());
+        sheet.setColWidth(base.getColWidth());
+        for (StoredRange range : ranges) {
+            sheet.addRange(range.name, range.from + ".." + range.to);
+        }
+        for (Map.Entry<Coordinate, StoredCell> entry : cells.entrySet()) {
+            StoredCell stored = entry.getValue();
+            Cell cell = new CellImpl(entry.getKey(), stored.originalValue, stored.version, stored.changedBy, sheet);
+            cell.setBackgroundColor(stored.backgroundColor);
+            cell.setTextColor(stored.textColor);
+            sheet.addCell(entry.getKey(), cell);
+        }
+        CellCalculator.calculateNewSheet(sheet);
+        return sheet;
+    }
+
+    // Puts back the cells this delta holds and returns the ranges of its version
+    private List<StoredRange> applyTo(Map<Coordinate, StoredCell> cells, List<StoredRange> ranges) {
+        ByteBuffer in = ByteBuffer.wrap(encoded);
+        try {
+            int changedCount = in.getInt();
+            for (int i = 0; i < changedCount; i++) {
+                Coordinate coordinate = CoordinateFactory.createCoordinate(in.getInt(), in.getInt());
+                if (in.get() == 0) {
+                    cells.remove(coordinate);
+                } else {
+                    String originalValue = SheetCodec.readString(in);
+                    int cellVersion = in.getInt();
+                    cells.put(coordinate, new StoredCell(originalValue, cellVersion, SheetCodec.readString(in),
+                            SheetCodec.readString(in), SheetCodec.readString(in)));
+                }
+            }
+
+            if (in.get() == 0) {
+                return ranges;
+            }
+            int rangeCount = in.getInt();
+            List<StoredRange> olderRanges = new ArrayList<>(rangeCount);
+            for (int i = 0; i < rangeCount; i++) {
+                olderRanges.add(new StoredRange(SheetCodec.readString(in), SheetCodec.readString(in), SheetCodec.readString(in)));
+            }
+            return olderRanges;
+        } catch (IOException e) {
+            // only ever reads what this class wrote
+            throw new IllegalStateException("Version " + version + " could not be rebuilt.", e);
+        }
+    }
+
+    private static boolean sameStoredValues(Cell cell, Cell other) {
+        if (cell == other) {
+            return true;
+        }
+        return other != null
+                && cell.getVersion() == other.getVersion()
+                && Objects.equals(cell.getOriginalValue(), other.getOriginalValue())
+                && Objects.equals(cell.getChangedBy(), other.getChangedBy())
+                && Objects.equals(cell.getBackgroundColor(), other.getBackgroundColor())
+                && Objects.equals(cell.getTextColor(), other.getTextColor());
+    }
+
+    // What a cell keeps that cannot be calculated
+    private static class StoredCell {
+        private final String originalValue;
+        private final int version;
+        private final String changedBy;
+        private final String backgroundColor;
+        private final String textColor;
+
+        private StoredCell(String originalValue, int version, String changedBy, String backgroundColor, String textColor) {
+            this.originalValue = originalValue;
+            this.version = version;
+            this.changedBy = changedBy;
+            this.backgroundColor = backgroundColor;
+            this.textColor = textColor;
+        }
+    }
+
+    private static class StoredRange {
+        private final String name;
+        private final String from;
+        private final String to;
+
+        private StoredRange(String name, String from, String to) {
+            this.name = name;
+            this.from = from;
+            this.to = to;
+        }
+
+        private static List<StoredRange> of(Sheet sheet) {
+            List<StoredRange> ranges = new ArrayList<>();
+            for (Range range : sheet.getAllRanges()) {
+                ranges.add(new StoredRange(range.getName(), range.getFrom(), range.getTo()));
+            }
+            return ranges;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof StoredRange range && name.equals(range.name) && from.equals(range.from) && to.equals(range.to);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(name, from, to);
+        }
+    }
+}
@@ -1,22 +1,31 @@
 package sheet.impl;
 
 import cell.api.Cell;
+import cell.api.EffectiveValue;
 import cell.impl.CellImpl;
 import coordinate.Coordinate;
 import coordinate.CoordinateUtils;
+import engine.events.FilterEvent;
+import engine.events.RecalculationEvent;
+import engine.events.SheetCopyEvent;
+import engine.events.SortEvent;
+import engine.metrics.EngineMetrics;
+import expression.api.ExpressionVisitor;
 import range.api.Range;
 import range.impl.RangeImpl;
+import range.impl.RangeIndex;
 import sheet.api.Sheet;
 
-import java.io.*;
+import java.io.Serializable;
 import java.util.*;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
-import java.util.stream.Collectors;
 
 import static coordinate.CoordinateFactory.createCoordinate;
 
 public class SheetImpl implements Sheet, Serializable {
+    // the largest sheet its cells can be stored for; row and column numbers start at 1
+    public static final int MAX_ROWS = PersistentCellMap.MAX_ROW;
+    public static final int MAX_COLS = PersistentCellMap.MAX_COLUMN;
+
     private String name;
     private String owner;
     private int version;
@@ -24,14 +33,17 @@ public class SheetImpl implements Sheet, Serializable {
     private int cols;
     private int rowHeight;
     private int colWidth;
-    private final Map<Coordinate, Cell> activeCells;
+    private CellStore activeCells;
     private List<Cell> cellsThatHaveChanged;
-    private final Map<String, Range> ranges;
-    private Map<String, List<Cell>> rangeUsageMap;
+    private final Map<String, RangeImpl> ranges;
+    private Map<String, List<Coordinate>> rangeUsageMap;
+    // built on first use and dropped whenever the ranges change
+    // volatile since published sheets are read by many threads, any of which may build it
+    private transient volatile RangeIndex rangeIndex;
 
     // Constructors
     public SheetImpl() {
-        this.activeCells = new HashMap<>();
+        this.activeCells = CellStore.empty();
         this.cellsThatHaveChanged = new ArrayList<>();
         this.ranges = new HashMap<>();
         this.rangeUsageMap = new HashMap<>();
@@ -39,6 +51,24 @@ public class SheetImpl implements Sheet, Serializable {
 
     }
 
+    // New version of the given sheet that shares all of its cells until they are changed
+    private SheetImpl(SheetImpl other) {
+        this.name = other.name;
+        this.owner = other.owner;
+        this.version = other.version;
+        this.rows = other.rows;
+        this.cols = other.cols;
+        this.rowHeight = other.rowHeight;
+        this.colWidth = other.colWidth;
+        this.activeCells = other.activeCells;
+        this.cellsThatHaveChanged = new ArrayList<>(other.cellsThatHaveChanged);
+        this.ranges = new HashMap<>();
+        other.ranges.forEach((rangeName, range) -> this.ranges.put(rangeName, range.copy()));
+        this.rangeUsageMap = new HashMap<>();
+        other.rangeUsageMap.forEach((rangeName, usingCells) -> this.rangeUsageMap.put(rangeName, new ArrayList<>(usingCells)));
+        this.rangeIndex = other.rangeIndex;
+    }
+
     // Setters
     @Override
     public void setName(String name) {
@@ -57,18 +87,20 @@ public class SheetImpl implements Sheet, Serializable {
 
     @Override
     public void setRows(int rows) {
-        if (rows < 1) {
-            throw new IllegalArgumentException("Number of rows must be at least 1.");
+        if (rows < 1 || rows > MAX_ROWS) {
+            throw new IllegalArgumentException("Number of rows must be between 1 and " + MAX_ROWS + ". Provided: " + rows);
         }
         this.rows = rows;
+        this.activeCells = CellStore.forSheet(activeCells, rows, cols);
     }
 
     @Override
     public void setCols(int cols) {
-        if (cols < 1) {
-            throw new IllegalArgumentException("Number of columns must be at least 1.");
+        if (cols < 1 || cols > MAX_COLS) {
+            throw new IllegalArgumentException("Number of columns must be between 1 and " + MAX_COLS + ". Provided: " + cols);
         }
         this.cols = cols;
+        this.activeCells = CellStore.forSheet(activeCells, rows, cols);
     }
 
     @Override
@@ -154,6 +186,23 @@ public class SheetImpl implements Sheet, Serializable {
 
         return activeCells.get(coordinate);
     }
+
+    // Returns the cell at the coordinate, first copying it into this version if it is shared with another one
+    @Override
+    public Cell getCellForUpdate(Coordinate coordinate) {
+        return getCell(coordinate) != null ? ownedCell(coordinate) : null;
+    }
+
+    private Cell ownedCell(Coordinate coordinate) {
+        Cell cell = activeCells.get(coordinate);
+        if (cell == null || cell.belongsTo(this)) {
+            return cell;
+        }
+        Cell ownCell = cell.copyForSheet(this);
+        activeCells = activeCells.with(coordinate, ownCell);
+        return ownCell;
+    }
+
     @Override
     public void addCell(Coordinate coordinate, Cell cell) {
         if (coordinate == null) {
@@ -164,8 +213,20 @@ public class SheetImpl implements Sheet, Serializable {
 
         }
 
+        Cell replacedCell = activeCells.get(coordinate);
+        updateRangeAggregates(coordinate, replacedCell != null ? replacedCell.getEffectiveValue() : null, cell.getEffectiveValue());
+        activeCells = CellStore.forSheet(activeCells.with(coordinate, cell), rows, cols);
+    }
 
-        activeCells.put(coordinate, cell);
+    // Moves the value of a cell in the running aggregates of every range that covers it
+    @Override
+    public void updateRangeAggregates(Coordinate coordinate, EffectiveValue oldValue, EffectiveValue newValue) {
+        if (Objects.equals(oldValue, newValue)) {
+            return;
+        }
+        for (Range range : getRangeIndex().getRangesContaining(coordinate)) {
+            ranges.get(range.getName()).applyValueChange(oldValue, newValue);
+        }
     }
 
     public void addCellThatChanged(Cell cell) {
@@ -182,6 +243,7 @@ public class SheetImpl implements Sheet, Serializable {
             throw new IllegalArgumentException("Cell ID and value cannot be null.");
         }
 
+        long start = System.nanoTime();
         Coordinate coordinate = createCoordinate(cellId);
         SheetImpl newSheetVersion = copySheet();
         newSheetVersion.cellsThatHaveChanged.clear();
@@ -199,40 +261,96 @@ public class SheetImpl implements Sheet, Serializable {
         newCell.setTextColor(existingTextColor);
 
         // Add the updated cell to the activeCells map
-        newSheetVersion.activeCells.put(coordinate, newCell);
+        newSheetVersion.addCell(coordinate, newCell);
 
         try {
+            if (existingCell == null) {
+                newSheetVersion.connectNewCell(newCell);
+            } else {
+                newSheetVersion.replaceCellInGraph(existingCell, newCell);
+            }
 
-                newSheetVersion.updateDependenciesAndInfluences();
-
-
-            // Calculate effective values for cells that changed and update their versions
-            List<Cell> cellsThatHaveChanged = newSheetVersion.orderCellsForCalculation()
-                    .stream()
-                    .filter(Cell::calculateEffectiveValue)
-                    .collect(Collectors.toList());
+            // Recalculate only the cells reachable from the edited cell and keep the ones that changed
+            RecalculationEvent recalculationEvent = new RecalculationEvent();
+            recalculationEvent.begin();
+            long recalculationStart = System.nanoTime();
+            List<Cell> cellsToCalculate = newSheetVersion.orderCellsForCalculation(newCell);
+            List<Cell> cellsThatHaveChanged = CellCalculator.calculate(newSheetVersion, cellsToCalculate);
+            EngineMetrics.RECALCULATION_SECONDS.observeNanos(System.nanoTime() - recalculationStart);
+            EngineMetrics.CELLS_EVALUATED_PER_EDIT.observe(cellsToCalculate.size());
+            EngineMetrics.CELLS_CHANGED_PER_EDIT.observe(cellsThatHaveChanged.size());
 
             newSheetVersion.cellsThatHaveChanged = cellsThatHaveChanged;
             int newVersion = newSheetVersion.increaseVersion();
             cellsThatHaveChanged.forEach(cell -> cell.updateVersion(newVersion));
+            if (recalculationEvent.shouldCommit()) {
+                recalculationEvent.set(name, newVersion, false, cellsToCalculate.size(), cellsThatHaveChanged.size());
+                recalculationEvent.commit();
+            }
 
+            EngineMetrics.CELL_UPDATE_SECONDS.observeNanos(System.nanoTime() - start);
             return newSheetVersion;
         } catch (Exception e) {
+            EngineMetrics.CELL_UPDATE_FAILURES.increment();
             throw new IllegalStateException("Error updating cell value: " + e.getMessage());
         }
     }
 
+    // Swap the old cell for the new one in the dependency graph and wire the new cell's own references
+    private void replaceCellInGraph(Cell oldCell, Cell newCell) {
+        Coordinate coordinate = newCell.getCoordinate();
+        newCell.getInfluencingOn().addAll(oldCell.getInfluencingOn());
+
+        for (Coordinate dependency : oldCell.getDependsOn()) {
+            Cell dependencyCell = ownedCell(dependency);
+            if (dependencyCell != null) {
+                dependencyCell.getInfluencingOn().remove(coordinate);
+            }
+        }
+
+        for (List<Coordinate> usingCells : rangeUsageMap.values()) {
+            usingCells.removeIf(coordinate::equals);
+        }
+        rangeUsageMap.values().removeIf(List::isEmpty);
+
+        wireCellDependencies(newCell);
+    }
+
+    // Wire a cell placed on an empty coordinate: find the cells that already refer to it, then its own references.
+    // Cells using a range that covers the coordinate are found through the range index and need no edges.
+    private void connectNewCell(Cell newCell) {
+        Coordinate coordinate = newCell.getCoordinate();
+
+        for (Cell cell : activeCells.values()) {
+            if (cell == newCell) {
+                continue;
+            }
+            for (Coordinate reference : CellReferences.of(cell).coordinates) {
+                if (reference.equals(coordinate)) {
+                    connect(coordinate, cell.getCoordinate());
+                }
+            }
+        }
+
+        wireCellDependencies(newCell);
+    }
+
+    // Record that the cell at 'influenced' depends on the cell at 'dependency'
+    private void connect(Coordinate dependency, Coordinate influenced) {
+        ownedCell(dependency).getInfluencingOn().add(influenced);
+        ownedCell(influenced).getDependsOn().add(dependency);
+    }
 
     //order the cells to calculate the new effective values
     public List<Cell> orderCellsForCalculation() {
         List<Cell> orderedCells = new ArrayList<>();
-        Map<Cell, Boolean> visited = new HashMap<>();
+        Map<Coordinate, Boolean> visited = new HashMap<>();
 
         try {
             // perform topological sort to order cells
-            for (Cell cell : activeCells.values()) {
-                if (!visited.containsKey(cell)) {
-                    topologicalSort(cell, visited, orderedCells);
+            for (Coordinate coordinate : activeCells.keySet()) {
+                if (!visited.containsKey(coordinate)) {
+                    topologicalSort(ownedCell(coordinate), visited, orderedCells);
                 }
             }
         } catch (RuntimeException e) {
@@ -243,52 +361,50 @@ public class SheetImpl implements Sheet, Serializable {
         return orderedCells;
     }
 
-    private void topologicalSort(Cell cell, Map<Cell, Boolean> visited, List<Cell> orderedCells) {
-        visited.put(cell, true); // mark cell as visited
+    //order only the cells affected by a change in the given cell, starting with the cell itself
+    public List<Cell> orderCellsForCalculation(Cell changedCell) {
+        List<Cell> orderedCells = new ArrayList<>();
+
+        try {
+            topologicalSort(changedCell, new HashMap<>(), orderedCells);
+        } catch (RuntimeException e) {
+            throw new IllegalStateException("Error during cell calculation order: " + e.getMessage(), e);
+        }
+
+        Collections.reverse(orderedCells);
+        return orderedCells;
+    }
+
+    // cells are taken into this version as they are ordered, since ordering is always followed by calculation
+    private void topologicalSort(Cell cell, Map<Coordinate, Boolean> visited, List<Cell> orderedCells) {
+        visited.put(cell.getCoordinate(), true); // mark cell as visited
 
         // recursively sort the influencing cells
-        for (Cell neighbor : cell.getInfluencingOn()) {
+        for (Coordinate neighbor : getInfluencingOn(cell)) {
             if (!visited.containsKey(neighbor)) {
-                topologicalSort(neighbor, visited, orderedCells);
+                topologicalSort(ownedCell(neighbor), visited, orderedCells);
             } else if (visited.get(neighbor)) {
                 throw new IllegalStateException("Circular dependency detected involving cell: " + cell.getCoordinate().toString());
             }
         }
 
-        visited.put(cell, false);
+        visited.put(cell.getCoordinate(), false);
         orderedCells.add(cell);
     }
 
-    private List<Coordinate> extractRefs(String value) {
-        List<Coordinate> references = new ArrayList<>();
-        String upperValue = value.toUpperCase();
-
-        // Regular expression to match {REF,<cellId>}
-        Pattern pattern = Pattern.compile("\\{REF,\\s*([^,\\s}]+)\\s*}");
-        Matcher matcher = pattern.matcher(upperValue);
-
-        while (matcher.find()) {
-            String cellId = matcher.group(1).trim();
-            references.add(createCoordinate(cellId));
-        }
-
-        return references;
-    }
-
-    // Copy sheet to create a new version
+    // Copy sheet to create a new version, cells are copied only when the new version changes them
     @Override
     public SheetImpl copySheet() {
-        try {
-            ByteArrayOutputStream baos = new ByteArrayOutputStream();
-            ObjectOutputStream oos = new ObjectOutputStream(baos);
-            oos.writeObject(this);
-            oos.close();
-
-            ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(baos.toByteArray()));
-            return (SheetImpl) ois.readObject();
-        } catch (IOException | ClassNotFoundException e) {
-            throw new IllegalStateException("Error during sheet copy: " + e.getMessage(), e);
+        SheetCopyEvent event = new SheetCopyEvent();
+        event.begin();
+        long start = System.nanoTime();
+        SheetImpl copy = new SheetImpl(this);
+        EngineMetrics.SHEET_COPY_SECONDS.observeNanos(System.nanoTime() - start);
+        if (event.shouldCommit()) {
+            event.set(name, version, activeCells.size(), ranges.size());
+            event.commit();
         }
+        return copy;
     }
 
     private int increaseVersion() {
@@ -297,7 +413,8 @@ public class SheetImpl implements Sheet, Serializable {
 
     public void updateDependenciesAndInfluences() {
         // Reset dependencies and influences for all cells
-        for (Cell cell : activeCells.values()) {
+        for (Coordinate coordinate : activeCells.keySet()) {
+            Cell cell = ownedCell(coordinate);
             cell.resetDependencies();
             cell.resetInfluences();
         }
@@ -307,50 +424,93 @@ public class SheetImpl implements Sheet, Serializable {
 
         // Recalculate dependencies and influences
         for (Cell cell : activeCells.values()) {
-            String originalValue = cell.getOriginalValue();
-
-            // Extract individual cell references
-            List<Coordinate> influences = extractRefs(originalValue);
-
-            List<String> rangeNames = extractRangeRefs(originalValue);
-            for (String rangeName : rangeNames) {
-                Range range = getRange(rangeName);
-                if (range != null) {
-                    // Add the current cell to the list of cells using this range
-                    rangeUsageMap.computeIfAbsent(rangeName, k -> new ArrayList<>()).add(cell);
-
-                    // Add all cells within the range as dependencies (influences)
-                    List<Coordinate> rangeCoordinates = getRangeCoordinates(range);
-                    influences.addAll(rangeCoordinates);
-                } else {
-                    throw new IllegalArgumentException("Range " + rangeName + " not found.");
-                }
+            wireCellDependencies(cell);
+        }
+    }
+
+    // Connect a cell to the cells and ranges it refers to.
+    // A range is a single node in the graph: its users are kept in rangeUsageMap, not as edges from every cell it covers.
+    private void wireCellDependencies(Cell cell) {
+        CellReferences references = CellReferences.of(cell);
+
+        for (String rangeName : references.rangeNames) {
+            if (getRange(rangeName) == null) {
+                throw new IllegalArgumentException("Range " + rangeName + " not found.");
             }
+            // Add the current cell to the list of cells using this range
+            rangeUsageMap.computeIfAbsent(rangeName, k -> new ArrayList<>()).add(cell.getCoordinate());
+        }
 
-            // Every dependent cell becomes an influence on the current cell
-            for (Coordinate influenceCoordinate : influences) {
-                Cell influenceCell = activeCells.get(influenceCoordinate);
-                if (influenceCell != null) {
-                    influenceCell.getInfluencingOn().add(cell);
-                    cell.getDependsOn().add(influenceCell);
-                }
+        // Every referenced cell becomes an influence on the current cell
+        for (Coordinate influenceCoordinate : references.coordinates) {
+            if (activeCells.containsKey(influenceCoordinate)) {
+                connect(influenceCoordinate, cell.getCoordinate());
+            }
+        }
+    }
+
+    // Cells whose value is calculated from the given cell, directly or through a range covering it
+    @Override
+    public List<Coordinate> getInfluencingOn(Cell cell) {
+        List<Range> containingRanges = getRangeIndex().getRangesContaining(cell.getCoordinate());
+        if (containingRanges.isEmpty()) {
+            return cell.getInfluencingOn();
+        }
+
+        List<Coordinate> influenced = new ArrayList<>(cell.getInfluencingOn());
+        for (Range range : containingRanges) {
+            influenced.addAll(rangeUsageMap.getOrDefault(range.getName(), Collections.emptyList()));
+        }
+        return influenced;
+    }
+
+    // Cells the given cell is calculated from, directly or through the ranges it uses
+    @Override
+    public List<Coordinate> getDependsOn(Cell cell) {
+        List<String> rangeNames = CellReferences.of(cell).rangeNames;
+        if (rangeNames.isEmpty()) {
+            return cell.getDependsOn();
+        }
+
+        List<Coordinate> dependencies = new ArrayList<>(cell.getDependsOn());
+        for (String rangeName : rangeNames) {
+            Range range = getRange(rangeName);
+            if (range != null) {
+                getRangeCoordinates(range).stream()
+                        .filter(activeCells::containsKey)
+                        .forEach(dependencies::add);
             }
         }
+        return dependencies;
+    }
+
+    private RangeIndex getRangeIndex() {
+        if (rangeIndex == null) {
+            rangeIndex = new RangeIndex(ranges.values());
+        }
+        return rangeIndex;
     }
 
-    // Helper function to extract range references from cell value
-    private List<String> extractRangeRefs(String value) {
-        List<String> rangeRefs = new ArrayList<>();
+    // Collects the cells and ranges a cell's formula refers to in a single walk of its parsed expression
+    private static class CellReferences implements ExpressionVisitor {
+        private final List<Coordinate> coordinates = new ArrayList<>();
+        private final List<String> rangeNames = new ArrayList<>();
 
-        Pattern pattern = Pattern.compile("\\{(AVERAGE|SUM),\\s*([^,\\s}]+)\\s*}");
-        Matcher matcher = pattern.matcher(value);
+        private static CellReferences of(Cell cell) {
+            CellReferences references = new CellReferences();
+            cell.getExpression().accept(references);
+            return references;
+        }
 
-        while (matcher.find()) {
-            String rangeName = matcher.group(2).trim();
-            rangeRefs.add(rangeName);
+        @Override
+        public void visitReference(Coordinate coordinate) {
+            coordinates.add(coordinate);
         }
 
-        return rangeRefs;
+        @Override
+        public void visitRange(String rangeName) {
+            rangeNames.add(rangeName);
+        }
     }
 
     // Helper function to get all coordinates of cells within a range
@@ -392,7 +552,10 @@ public class SheetImpl implements Sheet, Serializable {
             throw new IllegalArgumentException("Range '" + name + "' is out of sheet bounds.");
         }
 
-        ranges.put(name, new RangeImpl(name, startCell, endCell));
+        RangeImpl newRange = new RangeImpl(name, startCell, endCell);
+        newRange.resetAggregates(getCellsInRange(newRange));
+        ranges.put(name, newRange);
+        rangeIndex = null;
     }
 
     @Override
@@ -424,6 +587,7 @@ public class SheetImpl implements Sheet, Serializable {
         }
 
         ranges.remove(name);
+        rangeIndex = null;
     }
 
 
@@ -434,7 +598,7 @@ public class SheetImpl implements Sheet, Serializable {
 
     @Override
     public Collection<Range> getAllRanges() {
-        return ranges.values();
+        return Collections.unmodifiableCollection(ranges.values());
     }
 
     // Extract the start and end cells
@@ -459,6 +623,9 @@ public class SheetImpl implements Sheet, Serializable {
     @Override
 
     public Sheet filterSheetByValues(String range, String column, List<String> selectedValues) {
+        FilterEvent event = new FilterEvent();
+        event.begin();
+        int rowsKept = 0;
         SheetImpl filteredSheet = new SheetImpl();
         filteredSheet.setName(this.name + " - Filtered");
         filteredSheet.setRowHeight(this.rowHeight);
@@ -482,6 +649,7 @@ public class SheetImpl implements Sheet, Serializable {
             if (cell != null) {
                 String value = cell.getEffectiveValue().toString();
                 if (selectedValues.contains(value)) {
+                    rowsKept++;
 
                     for (int col = startCol; col <= endCol; col++) {
                         Coordinate cellCoordinate = createCoordinate(row, col);
@@ -495,12 +663,18 @@ public class SheetImpl implements Sheet, Serializable {
             }
         }
 
+        if (event.shouldCommit()) {
+            event.set(name, version, range, column, endCell.getRow() - startCell.getRow() + 1, rowsKept, filteredSheet.activeCells.size());
+            event.commit();
+        }
         return filteredSheet;
     }
 
 
     @Override
     public Sheet sortSheet(String range, String[] columnsToSort) {
+        SortEvent event = new SortEvent();
+        event.begin();
         SheetImpl sortedSheet = copySheet();
 
         List<Coordinate> coordinates = extractCells(range);
@@ -557,6 +731,11 @@ public class SheetImpl implements Sheet, Serializable {
             }
         }
 
+        if (event.shouldCommit()) {
+            event.set(name, version, range, String.join(",", columnsToSort), endRow - startRow + 1,
+                    (endRow - startRow + 1) * (endCol - startCol + 1));
+            event.commit();
+        }
         return sortedSheet;
     }
 
@@ -4,32 +4,100 @@ import cell.api.Cell;
 import coordinate.Coordinate;
 import coordinate.CoordinateUtils;
 import dto.api.SheetDTO;
+import dto.api.SheetDeltaDTO;
 import dto.impl.CellDTOImpl;
 import engine.DTOFactory.DTOFactory;
+import engine.api.SheetSnapshot;
+import engine.api.SheetVersionListener;
+import engine.api.VersionStoreStats;
+import engine.storage.LogRecord;
+import engine.storage.WriteAheadLog;
 import sheet.api.Sheet;
 
-import java.util.HashMap;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
 
+/*
+Keeps the versions of every sheet.
+Each sheet has a single writer at a time: updates take the sheet's own lock, work on a new copy of the latest version
+and append the change to the write-ahead log. The copy becomes the latest version for the next writer at once, but it is
+published to readers only once its record is on disk, so a reader never sees a version a restart would lose.
+If the log cannot be written, the versions not yet on disk are dropped and the update fails; nothing is published after that.
+Readers only read the published version, so they never take a lock and never wait for a recalculation or a disk sync,
+and different sheets are updated independently.
+A published sheet is never changed again; even changes that keep the version number are made on a copy.
+Every publication gets a new snapshot tag, so a tag always identifies the same content.
+The log's change lock is taken before the sheet's own, so a checkpoint never sees a change without its record.
+Only the newest versions of a sheet are kept whole (sheet.versions.retained, 20 by default); each older one is kept as
+a reverse delta against the version after it and is rebuilt from the nearest version held whole when its content is asked for.
+Its tag is known without rebuilding it, so a client that already holds it costs nothing, and the last few rebuilt
+versions of each sheet are kept so that the same version is not rebuilt on every request.
+Each whole version remembers the cells its edits changed, so the delta is built from those cells alone.
+At least two versions are kept whole, so a delta is never taken against the current version, which changes that keep
+the version number (ranges, cell design) still replace.
+ */
 public class SheetManager {
     public static final int LOAD_VERSION = 1;
+    public static final String RETAINED_VERSIONS_PROPERTY = "sheet.versions.retained";
+    public static final int DEFAULT_RETAINED_VERSIONS = 20;
+    public static final int MIN_RETAINED_VERSIONS = 2;
+    // rebuilt versions kept of each sheet, least recently used out first
+    private static final int REBUILT_VERSIONS_KEPT = 4;
+    // keeps tags from an earlier run of the server from matching the content of this one
+    private static final String TAG_EPOCH = Long.toString(System.currentTimeMillis(), 36);
 
-    private Map<String, Map<Integer, Sheet>> allSheets = new HashMap<>();
-    private Map<String, Integer> currentSheetVersions = new HashMap<>();
+    private final Map<String, SheetHistory> allSheets = new ConcurrentHashMap<>();
+    private final List<SheetVersionListener> versionListeners = new CopyOnWriteArrayList<>();
     private DTOFactory dtoFactory;
+    private final int retainedVersions;
+    private volatile WriteAheadLog writeAheadLog = WriteAheadLog.disabled();
 
     public SheetManager(DTOFactory dtoFactory) {
+        this(dtoFactory, Integer.getInteger(RETAINED_VERSIONS_PROPERTY, DEFAULT_RETAINED_VERSIONS));
+    }
+
+    public SheetManager(DTOFactory dtoFactory, int retainedVersions) {
+        if (retainedVersions < MIN_RETAINED_VERSIONS) {
+            throw new IllegalArgumentException("At least the current version and the one before it must be kept whole. Provided: "
+                    + retainedVersions);
+        }
         this.dtoFactory = dtoFactory;
+        this.retainedVersions = retainedVersions;
     }
 
     public void addSheet(String sheetName, Sheet sheet) {
-        Map<Integer, Sheet> versionsMap = new HashMap<>();
         sheet.setSheetVersion(LOAD_VERSION);
-        versionsMap.put(LOAD_VERSION, sheet);
-        allSheets.put(sheetName, versionsMap);
-        currentSheetVersions.put(sheetName, LOAD_VERSION);
+        restoreSheet(sheetName, sheet);
+    }
 
+    // Adds a sheet read back from a snapshot, keeping the version it had; its earlier versions are not kept
+    public void restoreSheet(String sheetName, Sheet sheet) {
+        if (allSheets.putIfAbsent(sheetName, new SheetHistory(sheetName, sheet)) != null) {
+            throw new IllegalArgumentException("A sheet with the name '" + sheetName + "' already exists.");
+        }
+    }
+
+    // Changes made before this (such as replaying the log itself) are not logged
+    public void setWriteAheadLog(WriteAheadLog writeAheadLog) {
+        this.writeAheadLog = writeAheadLog;
+    }
+
+    public void addVersionListener(SheetVersionListener listener) {
+        versionListeners.add(listener);
     }
 
     public boolean sheetExists(String sheetName) {
@@ -37,23 +105,90 @@ public class SheetManager {
     }
 
     public Sheet getCurrentSheet(String sheetName) {
-        if (!allSheets.containsKey(sheetName)) {
-            throw new IllegalArgumentException("Sheet with name '" + sheetName + "' does not exist.");
+        return getHistory(sheetName).current.sheet;
+    }
+
+    public SheetSnapshot getCurrentSheetSnapshot(String sheetName) {
+        return getHistory(sheetName).current;
+    }
+
+    // A version kept only as a delta is rebuilt when the snapshot's content is first asked for, not here
+    public SheetSnapshot getSheetSnapshot(String sheetName, int versionNumber) {
+        SheetHistory history = getHistory(sheetName);
+        SheetSnapshot snapshot = history.versions.get(versionNumber);
+        if (snapshot != null) {
+            return snapshot;
         }
-        int currentVersion = currentSheetVersions.get(sheetName);
-        return allSheets.get(sheetName).get(currentVersion);
+        ReverseDelta delta = history.deltas.get(versionNumber);
+        if (delta == null) {
+            throw new IllegalArgumentException("Invalid version number: " + versionNumber);
+        }
+        return new CompactedSheet(history, versionNumber, delta.getPublication());
     }
 
-    public void updateCell(String sheetName, String coordinateStr, String newValue, String userName) {
-        Sheet currentSheet = getCurrentSheet(sheetName);
+    // Returns what changed from the version the update was applied to, so callers need not send the whole sheet
+    public SheetDeltaDTO updateCell(String sheetName, String coordinateStr, String newValue, String userName) {
+        SheetHistory history = getHistory(sheetName);
         Coordinate coordinate = CoordinateUtils.parseCellId(coordinateStr);
-        CoordinateUtils.validateCoordinate(currentSheet, coordinate);
+        Sheet currentSheet;
+        Sheet newSheet;
+        long logPosition;
+        Lock changeLock = writeAheadLog.changeLock();
+        changeLock.lock();
+        history.writeLock.lock();
+        try {
+            currentSheet = history.latest;
+            CoordinateUtils.validateCoordinate(currentSheet, coordinate);
+
+            newSheet = currentSheet.updateCellValueAndCalculate(coordinateStr, newValue, userName);
+            int newVersion = currentSheet.getVersion() + 1;
+            newSheet.setSheetVersion(newVersion);
+            // the edited cell and the cells the recalculation gave a new version are all the new version changed
+            Set<Coordinate> changedCells = new HashSet<>();
+            changedCells.add(coordinate);
+            for (Cell cell : newSheet.getCellsThatHaveChanged()) {
+                changedCells.add(cell.getCoordinate());
+            }
+            logPosition = writeAheadLog.append(LogRecord.of(LogRecord.Type.UPDATE_CELL, sheetName, coordinateStr, newValue, userName));
+            history.stage(newSheet, changedCells, logPosition);
+        } finally {
+            history.writeLock.unlock();
+            changeLock.unlock();
+        }
+        // waiting outside the lock lets the next updates of the sheet join the same disk sync
+        history.publishWhenDurable(logPosition);
+        // listeners run after the lock is released so that a slow one never holds up the next update
+        for (SheetVersionListener listener : versionListeners) {
+            listener.onNewVersion(sheetName, newSheet.getVersion());
+        }
+        // both versions are published and no longer change, so the delta is built outside the lock
+        return dtoFactory.createSheetDeltaDTO(currentSheet, newSheet, collectChangedCells(currentSheet, newSheet, coordinate));
+    }
+
+    // Applies a change that does not create a new version and changes no cell (ranges) to a copy of the current version,
+    // logging it as the given record
+    public void updateCurrentSheet(String sheetName, LogRecord logRecord, Consumer<Sheet> change) {
+        updateCurrentSheet(sheetName, logRecord, Collections.emptySet(), change);
+    }
 
-        Sheet newSheet = currentSheet.updateCellValueAndCalculate(coordinateStr, newValue, userName);
-        int newVersion = currentSheetVersions.get(sheetName) + 1;
-        newSheet.setSheetVersion(newVersion);
-        allSheets.get(sheetName).put(newVersion, newSheet);
-        currentSheetVersions.put(sheetName, newVersion);
+    // Applies a change that does not create a new version (ranges, cell design) to a copy of the current version,
+    // logging it as the given record; changedCells are the cells whose stored values the change may touch
+    public void updateCurrentSheet(String sheetName, LogRecord logRecord, Set<Coordinate> changedCells, Consumer<Sheet> change) {
+        SheetHistory history = getHistory(sheetName);
+        long logPosition;
+        Lock changeLock = writeAheadLog.changeLock();
+        changeLock.lock();
+        history.writeLock.lock();
+        try {
+            Sheet changedSheet = history.latest.copySheet();
+            change.accept(changedSheet);
+            logPosition = writeAheadLog.append(logRecord);
+            history.stage(changedSheet, changedCells, logPosition);
+        } finally {
+            history.writeLock.unlock();
+            changeLock.unlock();
+        }
+        history.publishWhenDurable(logPosition);
     }
 
     public CellDTOImpl getCellInfo(String sheetName, String cellIdentifier) {
@@ -62,7 +197,7 @@ public class SheetManager {
         CoordinateUtils.validateCoordinate(currentSheet, cellCoordinate);
         Cell cell = currentSheet.getCell(cellCoordinate);
         if (cell != null) {
-            return dtoFactory.createCellDTO(cell);
+            return dtoFactory.createCellDTO(currentSheet, cell);
         } else {
             return dtoFactory.createEmptyCellDTO(cellIdentifier);
         }
@@ -70,20 +205,291 @@ public class SheetManager {
     public Set<String> getAllSheetNames() {
         return allSheets.keySet();
     }
+
+    // The latest version of every sheet, including versions whose record is appended but not yet on disk,
+    // so it matches the log; consistent only while a checkpoint holds changes still
+    public Map<String, Sheet> getCurrentSheets() {
+        Map<String, Sheet> latestSheets = new LinkedHashMap<>();
+        allSheets.forEach((sheetName, history) -> latestSheets.put(sheetName, history.latest));
+        return latestSheets;
+    }
     public SheetDTO getCurrentSheetDTO(String sheetName) {
         Sheet currentSheet = getCurrentSheet(sheetName);
         return dtoFactory.createSheetDTO(currentSheet);
     }
 
     public int getCurrentSheetVersion(String sheetName) {
-        return currentSheetVersions.get(sheetName);
+        return getCurrentSheet(sheetName).getVersion();
     }
 
     public SheetDTO getSheetDTOByVersion(String sheetName, int versionNumber) {
-        if (!allSheets.get(sheetName).containsKey(versionNumber)) {
-            throw new IllegalArgumentException("Invalid version number: " + versionNumber);
+        return getSheetSnapshot(sheetName, versionNumber).toDTO();
+    }
+
+    public VersionStoreStats getVersionStoreStats() {
+        int sheets = 0;
+        int materializedVersions = 0;
+        long materializedCells = 0;
+        int deltaVersions = 0;
+        long deltaBytes = 0;
+        for (SheetHistory history : allSheets.values()) {
+            sheets++;
+            for (PublishedSheet published : history.versions.values()) {
+                materializedVersions++;
+                materializedCells += published.sheet.getActiveCells().size();
+            }
+            for (ReverseDelta delta : history.deltas.values()) {
+                deltaVersions++;
+                deltaBytes += delta.getSize();
+            }
+        }
+        return new VersionStoreStats(sheets, materializedVersions, materializedCells, deltaVersions, deltaBytes);
+    }
+
+    // The versions held of each sheet, whole or as deltas, by sheet name
+    public Map<String, Integer> getVersionCounts() {
+        Map<String, Integer> versionCounts = new TreeMap<>();
+        allSheets.forEach((sheetName, history) -> versionCounts.put(sheetName, history.versions.size() + history.deltas.size()));
+        return versionCounts;
+    }
+
+    // The updated cell, the cells whose value changed, and the cells it was or is now connected to,
+    // since those show different dependencies even when their value stayed the same
+    private Set<Coordinate> collectChangedCells(Sheet baseSheet, Sheet newSheet, Coordinate updatedCoordinate) {
+        Set<Coordinate> changedCells = new LinkedHashSet<>();
+        changedCells.add(updatedCoordinate);
+        for (Cell cell : newSheet.getCellsThatHaveChanged()) {
+            changedCells.add(cell.getCoordinate());
+        }
+
+        Cell oldCell = baseSheet.getCell(updatedCoordinate);
+        if (oldCell != null) {
+            changedCells.addAll(baseSheet.getDependsOn(oldCell));
+        }
+        changedCells.addAll(newSheet.getDependsOn(newSheet.getCell(updatedCoordinate)));
+        return changedCells;
+    }
+
+    private SheetHistory getHistory(String sheetName) {
+        SheetHistory history = allSheets.get(sheetName);
+        if (history == null) {
+            throw new IllegalArgumentException("Sheet with name '" + sheetName + "' does not exist.");
+        }
+        return history;
+    }
+
+    // The versions of one sheet and the lock its writers take
+    private class SheetHistory {
+        private final String sheetName;
+        private final ReentrantLock writeLock = new ReentrantLock();
+        // the newest versions, whole
+        private final Map<Integer, PublishedSheet> versions = new ConcurrentHashMap<>();
+        // the versions before those; a version is added here before it is removed from versions, so readers always find it
+        private final Map<Integer, ReverseDelta> deltas = new ConcurrentHashMap<>();
+        // written only while holding writeLock, read without it
+        private volatile PublishedSheet current;
+        // the version the next writer starts from, and the versions after current still waiting for their record
+        // to be on disk, oldest first; both guarded by writeLock
+        private Sheet latest;
+        private final ArrayDeque<StagedSheet> staged = new ArrayDeque<>();
+        private long publications;
+        private int oldestWholeVersion;
+        // versions kept as deltas that were rebuilt lately, least recently used first; guarded by itself
+        private final Map<Integer, Sheet> rebuiltVersions = new LinkedHashMap<>(16, 0.75f, true);
+
+        private SheetHistory(String sheetName, Sheet loadedSheet) {
+            this.sheetName = sheetName;
+            this.oldestWholeVersion = loadedSheet.getVersion();
+            publish(loadedSheet, Collections.emptySet());
+            this.latest = loadedSheet;
         }
-        return dtoFactory.createSheetDTO(allSheets.get(sheetName).get(versionNumber));
+
+        // Makes the sheet the latest version, to be published once the log is on disk up to logPosition;
+        // called holding writeLock
+        private void stage(Sheet sheet, Set<Coordinate> changedCells, long logPosition) {
+            staged.addLast(new StagedSheet(sheet, changedCells, logPosition));
+            latest = sheet;
+        }
+
+        // Waits for the record at logPosition to be on disk and publishes every staged version up to it.
+        // If it cannot be written, publishes what is on disk, drops the rest and rethrows.
+        private void publishWhenDurable(long logPosition) {
+            try {
+                writeAheadLog.awaitDurable(logPosition);
+            } catch (RuntimeException e) {
+                writeLock.lock();
+                try {
+                    publishStagedUpTo(writeAheadLog.getDurablePosition());
+                    staged.clear();
+                    latest = current.sheet;
+                } finally {
+                    writeLock.unlock();
+                }
+                throw e;
+            }
+            writeLock.lock();
+            try {
+                publishStagedUpTo(logPosition);
+            } finally {
+                writeLock.unlock();
+            }
+        }
+
+        // A record on disk means every record appended before it is too, so staged versions are published in order
+        private void publishStagedUpTo(long logPosition) {
+            while (!staged.isEmpty() && staged.peekFirst().logPosition <= logPosition) {
+                StagedSheet next = staged.pollFirst();
+                publish(next.sheet, next.changedCells);
+            }
+        }
+
+        // changedCells are the cells whose stored values the change made differ from the published version it replaces
+        // or, for a new version, from the version before it
+        private void publish(Sheet sheet, Set<Coordinate> changedCells) {
+            PublishedSheet replaced = versions.get(sheet.getVersion());
+            if (replaced != null && !replaced.changedCells.isEmpty()) {
+                Set<Coordinate> changedSinceVersionBefore = new HashSet<>(replaced.changedCells);
+                changedSinceVersionBefore.addAll(changedCells);
+                changedCells = changedSinceVersionBefore;
+            }
+            PublishedSheet published = new PublishedSheet(sheetName, sheet, changedCells, ++publications);
+            versions.put(sheet.getVersion(), published);
+            current = published;
+            compactBefore(sheet.getVersion() - retainedVersions + 1);
+        }
+
+        // Turns the whole versions older than the given one into deltas, oldest first, so the version after each is still whole
+        private void compactBefore(int firstRetainedVersion) {
+            while (oldestWholeVersion < firstRetainedVersion) {
+                PublishedSheet older = versions.get(oldestWholeVersion);
+                PublishedSheet newer = versions.get(oldestWholeVersion + 1);
+                deltas.put(oldestWholeVersion, ReverseDelta.between(older.sheet, newer.sheet, newer.changedCells, older.publication));
+                versions.remove(oldestWholeVersion);
+                oldestWholeVersion++;
+            }
+        }
+
+        // Rebuilds a version that is only kept as a delta, starting from the nearest newer version held whole or rebuilt
+        private Sheet rebuild(int versionNumber) {
+            Sheet base;
+            List<ReverseDelta> chain = new ArrayList<>();
+            int version = versionNumber;
+            // a delta is added before its whole version is removed, so one of the two is always found
+            while ((base = wholeOrRebuilt(version)) == null) {
+                chain.add(deltas.get(version));
+                version++;
+            }
+            if (chain.isEmpty()) {
+                return base;
+            }
+            Collections.reverse(chain);
+            Sheet sheet = ReverseDelta.rebuild(base, chain);
+            synchronized (rebuiltVersions) {
+                rebuiltVersions.put(versionNumber, sheet);
+                Iterator<Sheet> leastRecentlyUsed = rebuiltVersions.values().iterator();
+                while (rebuiltVersions.size() > REBUILT_VERSIONS_KEPT) {
+                    leastRecentlyUsed.next();
+                    leastRecentlyUsed.remove();
+                }
+            }
+            return sheet;
+        }
+
+        private Sheet wholeOrRebuilt(int version) {
+            PublishedSheet whole = versions.get(version);
+            if (whole != null) {
+                return whole.sheet;
+            }
+            synchronized (rebuiltVersions) {
+                return rebuiltVersions.get(version);
+            }
+        }
+    }
+
+    private static class StagedSheet {
+        private final Sheet sheet;
+        private final Set<Coordinate> changedCells;
+        private final long logPosition;
+
+        private StagedSheet(Sheet sheet, Set<Coordinate> changedCells, long logPosition) {
+            this.sheet = sheet;
+            this.changedCells = changedCells;
+            this.logPosition = logPosition;
+        }
+    }
+
+    private class PublishedSheet implements SheetSnapshot {
+        private final String sheetName;
+        private final Sheet sheet;
+        // the cells whose stored values differ from the version before, which its reverse delta is built from
+        private final Set<Coordinate> changedCells;
+        private final long publication;
+        private final String tag;
+
+        private PublishedSheet(String sheetName, Sheet sheet, Set<Coordinate> changedCells, long publication) {
+            this.sheetName = sheetName;
+            this.sheet = sheet;
+            this.changedCells = changedCells;
+            this.publication = publication;
+            this.tag = tagOf(sheet.getVersion(), publication);
+        }
+
+        @Override
+        public String getSheetName() {
+            return sheetName;
+        }
+
+        @Override
+        public int getVersion() {
+            return sheet.getVersion();
+        }
+
+        @Override
+        public String getTag() {
+            return tag;
+        }
+
+        @Override
+        public SheetDTO toDTO() {
+            return dtoFactory.createSheetDTO(sheet);
+        }
+    }
+
+    // A version kept only as a delta; its tag is known at once, its content is rebuilt when it is asked for
+    private class CompactedSheet implements SheetSnapshot {
+        private final SheetHistory history;
+        private final int version;
+        private final String tag;
+
+        private CompactedSheet(SheetHistory history, int version, long publication) {
+            this.history = history;
+            this.version = version;
+            this.tag = tagOf(version, publication);
+        }
+
+        @Override
+        public String getSheetName() {
+            return history.sheetName;
+        }
+
+        @Override
+        public int getVersion() {
+            return version;
+        }
+
+        @Override
+        public String getTag() {
+            return tag;
+        }
+
+        @Override
+        public SheetDTO toDTO() {
+            return dtoFactory.createSheetDTO(history.rebuild(version));
+        }
+    }
+
+    private static String tagOf(int version, long publication) {
+        return TAG_EPOCH + "-" + version + "-" + publication;
     }
 
     // Additional methods for dynamic analysis and other sheet-related operations
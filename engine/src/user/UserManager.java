@@ -2,32 +2,59 @@ package user;
 
 import java.util.Collections;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 
     public class UserManager {
         private final Set<String> users;
+        private final List<UsersListener> usersListeners = new CopyOnWriteArrayList<>();
+        // grows with every change to the users, so a client can ask to wait for a change after the one it has seen
+        private int version;
 
         public UserManager() {
             users = new HashSet<>();
         }
 
-        public synchronized void addUser(String username) {
-            users.add(username);
+        public void addUsersListener(UsersListener listener) {
+            usersListeners.add(listener);
         }
 
+        public void addUser(String username) {
+            int changedVersion;
+            synchronized (this) {
+                if (!users.add(username)) {
+                    return;
+                }
+                changedVersion = ++version;
+            }
+            notifyUsersChanged(changedVersion);
+        }
 
-        public synchronized void removeUser(String username) {
-            users.remove(username);
+
+        public void removeUser(String username) {
+            int changedVersion;
+            synchronized (this) {
+                if (!users.remove(username)) {
+                    return;
+                }
+                changedVersion = ++version;
+            }
+            notifyUsersChanged(changedVersion);
         }
 
-        // Returns an unmodifiable view of the users set.
+        // Returns an unmodifiable copy of the users set.
         // This method is synchronized to ensure thread-safe access.
         public synchronized Set<String> getUsers() {
-            return Collections.unmodifiableSet(users);
+            return Collections.unmodifiableSet(new HashSet<>(users));
         }
 
-        public boolean isUserExists(String username) {
+        public synchronized int getVersion() {
+            return version;
+        }
+
+        public synchronized boolean isUserExists(String username) {
             for (String user : users) {
                 if (user.equalsIgnoreCase(username)) {
                     return true;
@@ -35,4 +62,11 @@ import java.util.Set;
             }
             return false;
         }
-    }
\ No newline at end of file
+
+        // listeners run outside the lock so that a slow one never holds up a login
+        private void notifyUsersChanged(int changedVersion) {
+            for (UsersListener listener : usersListeners) {
+                listener.onUsersChanged(changedVersion);
+            }
+        }
+    }
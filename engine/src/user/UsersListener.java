@@ -0,0 +1,6 @@
+package user;
+
+// Notified after a user has joined or left, with the users version that includes the change
+public interface UsersListener {
+    void onUsersChanged(int version);
+}
@@ -0,0 +1,90 @@
+package chat;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ChatManagerTest {
+
+    @Test
+    void keepsTheLastLinesOnceTheRingWrapsAround() {
+        ChatManager chat = new ChatManager(4);
+        for (int i = 0; i < 10; i++) {
+            chat.addChatString("line " + i, "alice");
+        }
+
+        ChatPage page = chat.getChatEntriesSince(0, 100);
+
+        assertEquals(List.of(6L, 7L, 8L, 9L), page.getEntries().stream().map(SingleChatEntry::getSequence).toList());
+        assertEquals(10, page.getNextSequence());
+        assertEquals(10, chat.getVersion());
+    }
+
+    @Test
+    void readersSeeEveryLineOnceAndInOrderWhileWritersLapThem() throws Exception {
+        int capacity = 64;
+        int writers = 8;
+        int readers = 4;
+        int linesPerWriter = 5_000;
+        ChatManager chat = new ChatManager(capacity);
+        CountDownLatch writersDone = new CountDownLatch(writers);
+        ExecutorService executor = Executors.newFixedThreadPool(writers + readers);
+        try {
+            List<Future<?>> tasks = new ArrayList<>();
+            for (int writer = 0; writer < writers; writer++) {
+                String username = "writer" + writer;
+                tasks.add(executor.submit(() -> {
+                    for (int line = 0; line < linesPerWriter; line++) {
+                        chat.addChatString(String.valueOf(line), username);
+                    }
+                    writersDone.countDown();
+                }));
+            }
+            for (int reader = 0; reader < readers; reader++) {
+                tasks.add(executor.submit(() -> {
+                    long next = 0;
+                    // the last line read from each writer, which the ring must give back in the order it was written
+                    Map<String, Integer> lastLines = new HashMap<>();
+                    while (writersDone.getCount() > 0 || next < chat.getVersion()) {
+                        ChatPage page = chat.getChatEntriesSince(next, 10);
+                        long previous = next - 1;
+                        for (SingleChatEntry entry : page.getEntries()) {
+                            assertTrue(entry.getSequence() > previous, "Line " + entry.getSequence() + " read after " + previous);
+                            previous = entry.getSequence();
+                            int line = Integer.parseInt(entry.getChatString());
+                            Integer lastLine = lastLines.put(entry.getUsername(), line);
+                            assertTrue(lastLine == null || line > lastLine, entry.getUsername() + " line " + line + " read after " + lastLine);
+                        }
+                        assertTrue(page.getNextSequence() >= next, "Moved back from " + next + " to " + page.getNextSequence());
+                        next = page.getNextSequence();
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> task : tasks) {
+                task.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        long total = (long) writers * linesPerWriter;
+        assertEquals(total, chat.getVersion());
+        List<SingleChatEntry> kept = chat.getChatEntriesSince(0, capacity).getEntries();
+        assertEquals(capacity, kept.size());
+        for (int i = 0; i < capacity; i++) {
+            assertEquals(total - capacity + i, kept.get(i).getSequence());
+        }
+    }
+}
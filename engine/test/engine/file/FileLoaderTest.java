@@ -0,0 +1,83 @@
+package engine.file;
+
+import coordinate.CoordinateFactory;
+import org.junit.jupiter.api.Test;
+import sheet.api.Sheet;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class FileLoaderTest {
+
+    @Test
+    void keepsTheLastValueOfACellGivenTwice() throws IOException {
+        Sheet sheet = load(new FileLoader(), 3, 3,
+                cell(1, "A", "1") + cell(1, "A", "{PLUS,1,1}") + cell(1, "B", "{REF,A1}"));
+
+        assertEquals("{PLUS,1,1}", sheet.getCell(CoordinateFactory.createCoordinate(1, 1)).getOriginalValue());
+        assertEquals(2.0, sheet.getCell(CoordinateFactory.createCoordinate(1, 2)).getEffectiveValue().getValue());
+    }
+
+    @Test
+    void loadsACellWhoseOverwrittenValueIsNotAFormula() throws IOException {
+        Sheet sheet = load(new FileLoader(), 3, 3, cell(2, "B", "{NOSUCH,1}") + cell(2, "B", "{MINUS,5,2}"));
+
+        assertEquals(3.0, sheet.getCell(CoordinateFactory.createCoordinate(2, 2)).getEffectiveValue().getValue());
+    }
+
+    @Test
+    void rejectsACellWhoseLastValueIsNotAFormula() {
+        assertThrows(RuntimeException.class,
+                () -> load(new FileLoader(), 3, 3, cell(2, "B", "{MINUS,5,2}") + cell(2, "B", "{NOSUCH,1}")));
+    }
+
+    @Test
+    void loadsALargeSheetWithCellsGivenTwiceOnWorkerThreads() throws IOException {
+        int rows = 100;
+        StringBuilder cells = new StringBuilder();
+        for (int row = 1; row <= rows; row++) {
+            for (int col = 0; col < 10; col++) {
+                String column = String.valueOf((char) ('A' + col));
+                // every cell is first given a formula that cannot be parsed, and then one that can
+                cells.append(cell(row, column, "{NOSUCH," + row + "}"));
+                cells.append(cell(row, column, "{TIMES," + row + "," + (col + 1) + "}"));
+            }
+        }
+
+        Sheet sheet = load(new FileLoader(rows, 10), rows, 10, cells.toString());
+
+        assertEquals(1000, sheet.getActiveCells().size());
+        assertEquals(70.0 * 7, sheet.getCell(CoordinateFactory.createCoordinate(70, 7)).getEffectiveValue().getValue());
+    }
+
+    @Test
+    void rejectsLayoutsAndCellsOutsideTheLimits() {
+        assertThrows(IllegalArgumentException.class, () -> load(new FileLoader(10, 5), 11, 5, ""));
+        assertThrows(IllegalArgumentException.class, () -> load(new FileLoader(10, 5), 10, 6, ""));
+        assertThrows(IllegalArgumentException.class, () -> load(new FileLoader(10, 5), 10, 5, cell(11, "A", "1")));
+        assertThrows(IllegalArgumentException.class, () -> load(new FileLoader(10, 5), 10, 5, cell(1, "F", "1")));
+        assertThrows(IllegalArgumentException.class, () -> new FileLoader(0, 5));
+    }
+
+    private static Sheet load(FileLoader loader, int rows, int columns, String cells) throws IOException {
+        String xml = """
+                <?xml version="1.0" encoding="UTF-8"?>
+                <STL-Sheet name="sheet">
+                  <STL-Layout rows="%d" columns="%d">
+                    <STL-Size rows-height-units="2" column-width-units="10"/>
+                  </STL-Layout>
+                  <STL-Cells>%s</STL-Cells>
+                </STL-Sheet>
+                """.formatted(rows, columns, cells);
+        return loader.loadSheetFromXML(new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8)), "owner");
+    }
+
+    private static String cell(int row, String column, String originalValue) {
+        return "<STL-Cell row=\"" + row + "\" column=\"" + column + "\"><STL-Original-Value>" + originalValue
+                + "</STL-Original-Value></STL-Cell>";
+    }
+}
@@ -0,0 +1,78 @@
+package engine.impl;
+
+import dto.permission.PermissionStatus;
+import dto.permission.PermissionType;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class EngineImplTest {
+
+    private static final String SHEET = "sheet";
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void keepsEveryChangeAcrossACloseAndReopen() throws Exception {
+        EngineImpl engine = EngineImpl.open(directory);
+        engine.loadFile(sheetXml(SHEET), "owner");
+        engine.updateCell(SHEET, "A1", "5", "owner");
+        engine.submitPermissionRequest(SHEET, "bob", PermissionType.WRITER);
+        engine.handleResponseRequest(SHEET, "bob", "owner", PermissionStatus.APPROVED);
+        engine.close();
+        // closing again does nothing
+        engine.close();
+
+        try (EngineImpl reopened = EngineImpl.open(directory)) {
+            assertEquals(2, reopened.getLatestVersion(SHEET));
+            assertEquals("5", reopened.getCellInfo(SHEET, "A1").getOriginalValue());
+            assertEquals(PermissionType.WRITER, reopened.getPermissionsManager(SHEET).getUserPermission("bob"));
+            assertEquals(PermissionStatus.APPROVED, reopened.getPermissionRequests(SHEET).get(0).getStatus());
+        }
+    }
+
+    @Test
+    void refusesChangesOnceClosedAndShowsNoneOfThem() throws Exception {
+        EngineImpl engine = EngineImpl.open(directory);
+        engine.loadFile(sheetXml(SHEET), "owner");
+        engine.close();
+
+        assertThrows(IllegalStateException.class, () -> engine.updateCell(SHEET, "A1", "5", "owner"));
+        assertThrows(IllegalStateException.class, () -> engine.submitPermissionRequest(SHEET, "bob", PermissionType.READER));
+        assertThrows(IllegalStateException.class, () -> engine.loadFile(sheetXml("other"), "owner"));
+
+        assertEquals(1, engine.getLatestVersion(SHEET));
+        assertTrue(engine.getPermissionRequests(SHEET).isEmpty());
+        assertThrows(IllegalArgumentException.class, () -> engine.getPermissionsManager("other"));
+        try (EngineImpl reopened = EngineImpl.open(directory)) {
+            assertEquals(1, reopened.getLatestVersion(SHEET));
+            assertTrue(reopened.getPermissionRequests(SHEET).isEmpty());
+            assertFalse(reopened.getAllSheetsSummary("owner").stream().anyMatch(summary -> summary.getName().equals("other")));
+        }
+    }
+
+    private static InputStream sheetXml(String sheetName) {
+        String xml = """
+                <?xml version="1.0" encoding="UTF-8"?>
+                <STL-Sheet name="%s">
+                  <STL-Layout rows="3" columns="3">
+                    <STL-Size rows-height-units="2" column-width-units="10"/>
+                  </STL-Layout>
+                  <STL-Cells>
+                    <STL-Cell row="1" column="A"><STL-Original-Value>1</STL-Original-Value></STL-Cell>
+                  </STL-Cells>
+                </STL-Sheet>
+                """.formatted(sheetName);
+        return new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,134 @@
+package engine.storage;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class WriteAheadLogTest {
+
+    private static final int FIRST_SEGMENT = 1;
+    private static final LogRecord FIRST = LogRecord.of(LogRecord.Type.UPDATE_CELL, "sheet", "A1", "1", "alice");
+    private static final LogRecord SECOND = LogRecord.of(LogRecord.Type.ADD_RANGE, "sheet", "range", "A1..B2");
+    private static final LogRecord THIRD = LogRecord.of(LogRecord.Type.UPDATE_CELL, "other", "C3", "{PLUS,1,2}", "bob");
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void replaysEveryDurableRecordInOrder() throws IOException {
+        try (WriteAheadLog log = WriteAheadLog.open(directory, FIRST_SEGMENT, record -> { })) {
+            append(log, FIRST);
+            append(log, SECOND);
+            append(log, THIRD);
+        }
+
+        assertRecords(List.of(FIRST, SECOND, THIRD), replay(FIRST_SEGMENT));
+    }
+
+    @Test
+    void dropsARecordCutShortAndAppendsAfterTheLastWholeOne() throws IOException {
+        try (WriteAheadLog log = WriteAheadLog.open(directory, FIRST_SEGMENT, record -> { })) {
+            append(log, FIRST);
+            append(log, SECOND);
+        }
+        // as if the machine stopped while the second record was being written
+        Path segment = onlySegment();
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - 3);
+        }
+
+        try (WriteAheadLog log = WriteAheadLog.open(directory, FIRST_SEGMENT, record -> { })) {
+            append(log, THIRD);
+        }
+
+        assertRecords(List.of(FIRST, THIRD), replay(FIRST_SEGMENT));
+    }
+
+    @Test
+    void dropsATailWhoseChecksumDoesNotMatch() throws IOException {
+        try (WriteAheadLog log = WriteAheadLog.open(directory, FIRST_SEGMENT, record -> { })) {
+            append(log, FIRST);
+            append(log, SECOND);
+        }
+        Path segment = onlySegment();
+        byte[] bytes = Files.readAllBytes(segment);
+        bytes[bytes.length - 1] ^= 0x7F;
+        Files.write(segment, bytes);
+
+        assertRecords(List.of(FIRST), replay(FIRST_SEGMENT));
+    }
+
+    @Test
+    void replaysOnlyTheSegmentsAfterACheckpoint() throws IOException {
+        int nextSegment;
+        try (WriteAheadLog log = WriteAheadLog.open(directory, FIRST_SEGMENT, record -> { })) {
+            append(log, FIRST);
+            nextSegment = log.checkpoint(() -> "state").getNextSegment();
+            append(log, SECOND);
+            log.deleteSegmentsBefore(nextSegment);
+        }
+
+        assertRecords(List.of(SECOND), replay(nextSegment));
+        assertEquals(List.of(nextSegment), segmentNumbers());
+    }
+
+    @Test
+    void refusesAppendsOnceTheLogCannotBeWritten() throws IOException {
+        WriteAheadLog log = WriteAheadLog.open(directory, FIRST_SEGMENT, record -> { });
+        append(log, FIRST);
+        log.close();
+
+        long position = log.append(SECOND);
+        assertThrows(IllegalStateException.class, () -> log.awaitDurable(position));
+        assertThrows(IllegalStateException.class, () -> log.append(THIRD));
+        assertFalse(log.getDurablePosition() >= position);
+        assertRecords(List.of(FIRST), replay(FIRST_SEGMENT));
+    }
+
+    private static void append(WriteAheadLog log, LogRecord record) {
+        log.awaitDurable(log.append(record));
+    }
+
+    private List<LogRecord> replay(int firstSegment) throws IOException {
+        List<LogRecord> replayed = new ArrayList<>();
+        WriteAheadLog.open(directory, firstSegment, replayed::add).close();
+        return replayed;
+    }
+
+    private Path onlySegment() throws IOException {
+        List<Integer> segments = segmentNumbers();
+        assertEquals(1, segments.size(), "Expected a single log segment, found " + segments);
+        return directory.resolve(String.format("engine-%06d.wal", segments.get(0)));
+    }
+
+    private List<Integer> segmentNumbers() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.map(file -> file.getFileName().toString())
+                    .filter(name -> name.startsWith("engine-") && name.endsWith(".wal"))
+                    .map(name -> Integer.parseInt(name.substring("engine-".length(), name.length() - ".wal".length())))
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    // Records are compared by their encoding, which covers the type, the sheet and every argument
+    private static void assertRecords(List<LogRecord> expected, List<LogRecord> actual) {
+        assertEquals(expected.size(), actual.size(), "Number of records replayed");
+        for (int i = 0; i < expected.size(); i++) {
+            assertArrayEquals(expected.get(i).toBytes(), actual.get(i).toBytes(), "Record " + i);
+        }
+    }
+}
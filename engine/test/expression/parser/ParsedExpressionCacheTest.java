@@ -0,0 +1,60 @@
+package expression.parser;
+
+import expression.api.Expression;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class ParsedExpressionCacheTest {
+
+    @Test
+    void keepsTheFormulasInUseAndDropsTheRest() {
+        ParsedExpressionCache cache = new ParsedExpressionCache(4);
+        Expression first = FunctionParser.parseExpression("1");
+        Expression second = FunctionParser.parseExpression("2");
+        Expression third = FunctionParser.parseExpression("3");
+
+        cache.put("1", first);
+        cache.put("2", second);
+        // used while in the previous generation, so it is carried into the next one
+        assertSame(first, cache.get("1"));
+        cache.put("3", third);
+
+        assertNull(cache.get("2"));
+        assertSame(first, cache.get("1"));
+        assertSame(third, cache.get("3"));
+    }
+
+    @Test
+    void parsesTheSameFormulasFromManyThreads() throws Exception {
+        int threads = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> parsers = new ArrayList<>();
+            for (int thread = 0; thread < threads; thread++) {
+                int offset = thread;
+                parsers.add(executor.submit(() -> {
+                    // more formulas than the cache holds, so generations roll over while others read
+                    for (int i = 0; i < 30_000; i++) {
+                        int number = (i + offset * 1_000) % 25_000;
+                        Expression expression = FunctionParser.parseExpression("{PLUS," + number + ",{TIMES,2,1}}");
+                        assertEquals(number + 2, expression.evalNumber(null));
+                    }
+                }));
+            }
+            for (Future<?> parser : parsers) {
+                parser.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package sheet.impl;
+
+import cell.api.Cell;
+import cell.impl.CellImpl;
+import coordinate.Coordinate;
+import coordinate.CoordinateFactory;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CellStoreTest {
+
+    @Test
+    void keepsASheetInAGridOnceAQuarterOfItIsFilled() {
+        SheetImpl sheet = new SheetImpl();
+        sheet.setRows(4);
+        sheet.setCols(4);
+        for (int col = 1; col <= 3; col++) {
+            addCell(sheet, 1, col);
+        }
+        assertInstanceOf(PersistentCellMap.class, sheet.getActiveCells());
+
+        addCell(sheet, 2, 1);
+        assertInstanceOf(PersistentCellGrid.class, sheet.getActiveCells());
+        assertEquals(4, sheet.getActiveCells().size());
+
+        // twice the area, so the same cells fill only an eighth of it
+        sheet.setRows(8);
+        assertInstanceOf(PersistentCellMap.class, sheet.getActiveCells());
+        assertEquals(4, sheet.getActiveCells().size());
+        assertEquals("1:1", sheet.getCell(CoordinateFactory.createCoordinate(1, 1)).getOriginalValue());
+    }
+
+    @Test
+    void leavesTheGridItWasMadeFromAsItWas() {
+        Map<Coordinate, Cell> cells = new HashMap<>();
+        for (int row = 1; row <= 3; row++) {
+            for (int col = 1; col <= 3; col++) {
+                cells.put(CoordinateFactory.createCoordinate(row, col), cell(row, col));
+            }
+        }
+        PersistentCellGrid grid = PersistentCellGrid.copyOf(cells, 3, 3);
+        Coordinate center = CoordinateFactory.createCoordinate(2, 2);
+
+        PersistentCellGrid without = grid.without(center);
+        PersistentCellGrid replaced = grid.with(center, cell(9, 9));
+
+        assertEquals(cells, grid);
+        assertNull(without.get(center));
+        assertEquals(8, without.size());
+        assertEquals("9:9", replaced.get(center).getOriginalValue());
+        assertEquals(9, replaced.size());
+        assertSame(grid, grid.without(CoordinateFactory.createCoordinate(4, 4)));
+    }
+
+    @Test
+    void findsEveryCellLeftAfterRemovingCellsThatShareTheirPath() throws IOException {
+        // columns 1, 33, 1025 and 1057 share their lowest bits, so their entries sit under a chain of nodes
+        int[] columns = {1, 33, 1025, 1057};
+        PersistentCellMap map = PersistentCellMap.EMPTY;
+        for (int column : columns) {
+            map = map.with(CoordinateFactory.createCoordinate(1, column), cell(1, column));
+        }
+
+        PersistentCellMap withoutDeepest = map.without(CoordinateFactory.createCoordinate(1, 1057));
+        PersistentCellMap single = withoutDeepest
+                .without(CoordinateFactory.createCoordinate(1, 33))
+                .without(CoordinateFactory.createCoordinate(1, 1025));
+
+        assertEquals(3, withoutDeepest.size());
+        assertEquals(1, single.size());
+        assertEquals("1:1", single.get(CoordinateFactory.createCoordinate(1, 1)).getOriginalValue());
+        assertEquals(Map.of(CoordinateFactory.createCoordinate(1, 1), map.get(CoordinateFactory.createCoordinate(1, 1))), single);
+        // the chain the removed cells needed is gone, leaving the trie a map of that cell alone would be
+        Cell remaining = single.get(CoordinateFactory.createCoordinate(1, 1));
+        assertArrayEquals(serialize(PersistentCellMap.EMPTY.with(CoordinateFactory.createCoordinate(1, 1), remaining)), serialize(single));
+        assertTrue(single.without(CoordinateFactory.createCoordinate(1, 1)).isEmpty());
+        assertEquals(4, map.size());
+    }
+
+    @Test
+    void behavesAsAMapThroughRandomAddsAndRemoves() {
+        Random random = new Random(3);
+        Map<Coordinate, Cell> expected = new HashMap<>();
+        PersistentCellMap map = PersistentCellMap.EMPTY;
+        for (int step = 0; step < 20_000; step++) {
+            // few rows and columns spread over every level of the trie, so paths are shared and collapse often
+            int row = 1 + random.nextInt(4) * 64;
+            int column = 1 + random.nextInt(8) * 32 + random.nextInt(2) * 1024;
+            Coordinate coordinate = CoordinateFactory.createCoordinate(row, column);
+            if (random.nextBoolean()) {
+                Cell cell = cell(row, column);
+                expected.put(coordinate, cell);
+                map = map.with(coordinate, cell);
+            } else {
+                expected.remove(coordinate);
+                map = map.without(coordinate);
+            }
+            assertEquals(expected.size(), map.size());
+        }
+        assertEquals(expected, map);
+        assertEquals(expected.keySet(), map.keySet());
+    }
+
+    private static byte[] serialize(PersistentCellMap map) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream output = new ObjectOutputStream(bytes)) {
+            output.writeObject(map);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static void addCell(SheetImpl sheet, int row, int col) {
+        sheet.addCell(CoordinateFactory.createCoordinate(row, col), cell(row, col));
+    }
+
+    private static Cell cell(int row, int col) {
+        return new CellImpl(row, col, row + ":" + col, 1, "owner", null);
+    }
+}
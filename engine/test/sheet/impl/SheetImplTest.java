@@ -0,0 +1,229 @@
+package sheet.impl;
+
+import cell.api.Cell;
+import cell.impl.CellImpl;
+import coordinate.Coordinate;
+import coordinate.CoordinateFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import range.api.Range;
+import sheet.api.Sheet;
+
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SheetImplTest {
+
+    private static final int ROWS = 6;
+    private static final int COLS = 6;
+    private static final String[] RANGES = {"low", "wide"};
+    private static final int DEFAULT_PARALLEL_THRESHOLD = 512;
+
+    @AfterEach
+    void restoreCalculator() {
+        CellCalculator.setParallelThreshold(DEFAULT_PARALLEL_THRESHOLD);
+        CellCalculator.setPool(ForkJoinPool.commonPool());
+    }
+
+    @Test
+    void recalculatesEachEditAsAFullCalculationWould() {
+        applyRandomEdits(new Random(7), 400);
+    }
+
+    @Test
+    void recalculatesInParallelLevelsAsAFullCalculationWould() {
+        // every calculation is split into levels, and every level of more than one task runs on the pool
+        CellCalculator.setParallelThreshold(1);
+        AtomicInteger levelsOnThePool = new AtomicInteger();
+        ForkJoinPool pool = new ForkJoinPool(4) {
+            @Override
+            public <T> T invoke(ForkJoinTask<T> task) {
+                levelsOnThePool.incrementAndGet();
+                return super.invoke(task);
+            }
+        };
+        try {
+            CellCalculator.setPool(pool);
+            applyRandomEdits(new Random(11), 400);
+            applyWideEdits();
+            assertTrue(levelsOnThePool.get() > 0, "No level was calculated on the pool");
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void keepsRangeSumsAndAveragesAsTheirCellsChange() {
+        Sheet sheet = newSheet();
+        sheet = sheet.updateCellValueAndCalculate("A1", "4", "alice");
+        sheet = sheet.updateCellValueAndCalculate("B1", "6", "alice");
+        sheet = sheet.updateCellValueAndCalculate("C5", "{SUM,low}", "alice");
+        sheet = sheet.updateCellValueAndCalculate("D5", "{AVERAGE,low}", "alice");
+        assertEquals("10.0", valueOf(sheet, "C5"));
+        assertEquals("5.0", valueOf(sheet, "D5"));
+
+        // text does not count towards either
+        sheet = sheet.updateCellValueAndCalculate("A2", "text", "alice");
+        assertEquals("10.0", valueOf(sheet, "C5"));
+        assertEquals("5.0", valueOf(sheet, "D5"));
+
+        // a formula in the range counts with its value, and follows it
+        sheet = sheet.updateCellValueAndCalculate("B2", "{PLUS,{REF,A1},1}", "alice");
+        assertEquals("15.0", valueOf(sheet, "C5"));
+        assertEquals("5.0", valueOf(sheet, "D5"));
+        sheet = sheet.updateCellValueAndCalculate("A1", "10", "alice");
+        assertEquals("27.0", valueOf(sheet, "C5"));
+        assertEquals("9.0", valueOf(sheet, "D5"));
+
+        sheet = sheet.updateCellValueAndCalculate("B1", "x", "alice");
+        assertEquals("21.0", valueOf(sheet, "C5"));
+        assertEquals("10.5", valueOf(sheet, "D5"));
+    }
+
+    @Test
+    void keepsEachVersionsRangesAndTheirSums() {
+        Sheet first = newSheet().updateCellValueAndCalculate("A1", "3", "alice");
+        Sheet second = first.copySheet();
+        second.addRange("top", "A1..F1");
+        Sheet third = second.updateCellValueAndCalculate("B1", "4", "alice");
+        Sheet fourth = third.copySheet();
+        fourth.deleteRange("top");
+
+        assertNull(first.getRange("top"));
+        assertEquals(3, second.getRange("top").getSum());
+        assertEquals(7, third.getRange("top").getSum());
+        assertNull(fourth.getRange("top"));
+        // the later versions' edits are not in the earlier versions' sums
+        assertEquals(3, first.getRange("low").getSum());
+        assertEquals(7, fourth.getRange("low").getSum());
+
+        Sheet using = third.updateCellValueAndCalculate("C5", "{SUM,top}", "alice");
+        assertEquals("7.0", valueOf(using, "C5"));
+        Sheet stillUsing = using.copySheet();
+        assertThrows(IllegalArgumentException.class, () -> stillUsing.deleteRange("top"));
+        assertNotNull(stillUsing.getRange("top"));
+    }
+
+    // Edits random cells with random values and formulas, checking every version against the same cells calculated
+    // from scratch. Edits that close a cycle are refused and must leave the sheet as it was.
+    private static void applyRandomEdits(Random random, int edits) {
+        Sheet sheet = newSheet();
+        for (int edit = 0; edit < edits; edit++) {
+            String cellId = randomCellId(random);
+            String value = randomValue(random);
+            Sheet before = sheet;
+            String describedBefore = describe(before);
+            try {
+                sheet = sheet.updateCellValueAndCalculate(cellId, value, "user");
+            } catch (IllegalStateException e) {
+                assertEquals(describedBefore, describe(before), "after refusing " + cellId + " = " + value);
+                continue;
+            }
+            assertEquals(describedBefore, describe(before), "the version before " + cellId + " = " + value);
+            assertSameAsFullCalculation(sheet, "after " + cellId + " = " + value);
+        }
+    }
+
+    // A row of chains wide enough that each level has more cells than one task takes
+    private static void applyWideEdits() {
+        Sheet sheet = new SheetImpl();
+        sheet.setName("wide");
+        sheet.setRows(3);
+        sheet.setCols(300);
+        sheet.addRange("all", "A1.." + columnName(300) + "1");
+        for (int col = 1; col <= 300; col++) {
+            String column = columnName(col);
+            sheet = sheet.updateCellValueAndCalculate(column + "1", String.valueOf(col), "user");
+            sheet = sheet.updateCellValueAndCalculate(column + "2", "{PLUS,{REF," + column + "1},{SUM,all}}", "user");
+            sheet = sheet.updateCellValueAndCalculate(column + "3", "{TIMES,{REF," + column + "2},2}", "user");
+        }
+        sheet = sheet.updateCellValueAndCalculate("A1", "1000", "user");
+        assertSameAsFullCalculation(sheet, "after the wide edit");
+        assertEquals(String.valueOf(2.0 * (1000 + 45150 - 1 + 1000)), valueOf(sheet, "A3"));
+    }
+
+    private static void assertSameAsFullCalculation(Sheet sheet, String message) {
+        SheetImpl full = new SheetImpl();
+        full.setName(sheet.getName());
+        full.setRows(sheet.getRows());
+        full.setCols(sheet.getCols());
+        for (Range range : sheet.getAllRanges()) {
+            full.addRange(range.getName(), range.getFrom() + ".." + range.getTo());
+        }
+        for (Map.Entry<Coordinate, Cell> entry : sheet.getActiveCells().entrySet()) {
+            full.addCell(entry.getKey(), new CellImpl(entry.getKey(), entry.getValue().getOriginalValue(), 1, "user", full));
+        }
+        CellCalculator.calculateNewSheet(full);
+
+        assertEquals(describe(full), describe(sheet), message);
+    }
+
+    // Every value and range aggregate of a sheet, in a fixed order
+    private static String describe(Sheet sheet) {
+        StringBuilder description = new StringBuilder();
+        Set<Coordinate> coordinates = new HashSet<>(sheet.getActiveCells().keySet());
+        for (int row = 1; row <= sheet.getRows(); row++) {
+            for (int col = 1; col <= sheet.getCols(); col++) {
+                Coordinate coordinate = CoordinateFactory.createCoordinate(row, col);
+                if (coordinates.contains(coordinate)) {
+                    Cell cell = sheet.getCell(coordinate);
+                    description.append(coordinate).append(' ').append(cell.getOriginalValue())
+                            .append(' ').append(cell.getEffectiveValue()).append('\n');
+                }
+            }
+        }
+        sheet.getAllRanges().stream().sorted((first, second) -> first.getName().compareTo(second.getName()))
+                .forEach(range -> description.append(range.getName()).append(' ').append(range.getSum())
+                        .append(' ').append(range.getNumericCount()).append('\n'));
+        return description.toString();
+    }
+
+    private static Sheet newSheet() {
+        Sheet sheet = new SheetImpl();
+        sheet.setName("sheet");
+        sheet.setRows(ROWS);
+        sheet.setCols(COLS);
+        sheet.addRange("low", "A1..B3");
+        sheet.addRange("wide", "A1..F2");
+        return sheet;
+    }
+
+    private static String randomValue(Random random) {
+        return switch (random.nextInt(8)) {
+            case 0, 1 -> String.valueOf(random.nextInt(26) - 5);
+            case 2 -> "{PLUS,{REF," + randomCellId(random) + "}," + random.nextInt(10) + "}";
+            case 3 -> "{TIMES,{REF," + randomCellId(random) + "},{REF," + randomCellId(random) + "}}";
+            case 4 -> "{SUM," + RANGES[random.nextInt(RANGES.length)] + "}";
+            case 5 -> "{AVERAGE," + RANGES[random.nextInt(RANGES.length)] + "}";
+            case 6 -> "{REF," + randomCellId(random) + "}";
+            default -> "text";
+        };
+    }
+
+    private static String randomCellId(Random random) {
+        return columnName(random.nextInt(COLS) + 1) + (random.nextInt(ROWS) + 1);
+    }
+
+    private static String columnName(int column) {
+        StringBuilder name = new StringBuilder();
+        for (int remaining = column; remaining > 0; remaining = (remaining - 1) / 26) {
+            name.insert(0, (char) ('A' + (remaining - 1) % 26));
+        }
+        return name.toString();
+    }
+
+    private static String valueOf(Sheet sheet, String cellId) {
+        return sheet.getCell(CoordinateFactory.createCoordinate(cellId)).getEffectiveValue().toString();
+    }
+}
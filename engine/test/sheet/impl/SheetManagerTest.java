@@ -0,0 +1,169 @@
+package sheet.impl;
+
+import coordinate.Coordinate;
+import coordinate.CoordinateFactory;
+import dto.api.SheetDTO;
+import engine.DTOFactory.DTOFactoryImpl;
+import engine.api.SheetSnapshot;
+import engine.file.FileLoader;
+import engine.storage.LogRecord;
+import engine.storage.WriteAheadLog;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import sheet.api.Sheet;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class SheetManagerTest {
+
+    private static final String SHEET = "sheet";
+    private static final String XML = """
+            <?xml version="1.0" encoding="UTF-8"?>
+            <STL-Sheet name="sheet">
+              <STL-Layout rows="3" columns="3">
+                <STL-Size rows-height-units="2" column-width-units="10"/>
+              </STL-Layout>
+              <STL-Cells>
+                <STL-Cell row="1" column="A"><STL-Original-Value>1</STL-Original-Value></STL-Cell>
+                <STL-Cell row="1" column="B"><STL-Original-Value>{PLUS,{REF,A1},1}</STL-Original-Value></STL-Cell>
+              </STL-Cells>
+            </STL-Sheet>
+            """;
+
+    @TempDir
+    Path directory;
+
+    private SheetManager sheetManager;
+    private WriteAheadLog writeAheadLog;
+
+    @BeforeEach
+    void loadSheet() throws IOException {
+        Sheet sheet = new FileLoader().loadSheetFromXML(new ByteArrayInputStream(XML.getBytes(StandardCharsets.UTF_8)), "owner");
+        // as the engine does when a file is loaded
+        sheet.setOwner("owner");
+        sheetManager = new SheetManager(new DTOFactoryImpl(), SheetManager.MIN_RETAINED_VERSIONS);
+        sheetManager.addSheet(SHEET, sheet);
+        writeAheadLog = WriteAheadLog.open(directory, 1, record -> { });
+        sheetManager.setWriteAheadLog(writeAheadLog);
+    }
+
+    @Test
+    void publishesAnUpdateOnceItIsLogged() {
+        sheetManager.updateCell(SHEET, "A1", "5", "owner");
+
+        assertEquals(2, sheetManager.getCurrentSheetVersion(SHEET));
+        assertEquals("6.0", valueOf(sheetManager.getCurrentSheet(SHEET), "B1"));
+        assertEquals(1, sheetManager.getSheetSnapshot(SHEET, 1).getVersion());
+    }
+
+    @Test
+    void keepsTheLastLoggedVersionWhenTheLogCannotBeWritten() throws IOException {
+        sheetManager.updateCell(SHEET, "A1", "5", "owner");
+        writeAheadLog.close();
+
+        assertThrows(IllegalStateException.class, () -> sheetManager.updateCell(SHEET, "A1", "7", "owner"));
+        assertThrows(IllegalStateException.class, () -> sheetManager.updateCurrentSheet(SHEET,
+                LogRecord.of(LogRecord.Type.ADD_RANGE, SHEET, "range", "A1..A3"), sheet -> sheet.addRange("range", "A1..A3")));
+
+        assertEquals(2, sheetManager.getCurrentSheetVersion(SHEET));
+        assertEquals("5.0", valueOf(sheetManager.getCurrentSheet(SHEET), "A1"));
+        assertNull(sheetManager.getCurrentSheet(SHEET).getRange("range"));
+        // the next writer starts from the published version too, not from the edits that were refused
+        Sheet latest = sheetManager.getCurrentSheets().get(SHEET);
+        assertEquals(2, latest.getVersion());
+        assertNull(latest.getRange("range"));
+    }
+
+    @Test
+    void rebuildsAVersionKeptAsADeltaWithoutLaterRangeChanges() {
+        sheetManager.updateCell(SHEET, "A1", "2", "owner");
+        sheetManager.updateCell(SHEET, "A1", "3", "owner");
+        sheetManager.updateCurrentSheet(SHEET, LogRecord.of(LogRecord.Type.ADD_RANGE, SHEET, "range", "A1..A3"),
+                sheet -> sheet.addRange("range", "A1..A3"));
+        sheetManager.updateCell(SHEET, "A1", "4", "owner");
+
+        assertNotNull(sheetManager.getCurrentSheet(SHEET).getRange("range"));
+        assertEquals(0, sheetManager.getSheetSnapshot(SHEET, 2).toDTO().getRanges().size());
+    }
+
+    @Test
+    void rebuildsEveryCompactedVersionAsItWasPublished() {
+        List<String> published = new ArrayList<>();
+        published.add(describe(sheetManager.getCurrentSheetDTO(SHEET)));
+        sheetManager.updateCell(SHEET, "A1", "2", "owner");
+        published.add(describe(sheetManager.getCurrentSheetDTO(SHEET)));
+        sheetManager.updateCell(SHEET, "C2", "{PLUS,{REF,B1},{REF,A1}}", "writer");
+        updateBackgroundColor("C2", "#FF0000");
+        // a design change keeps the version, so it is part of what the version holds from then on
+        updateBackgroundColor("A1", "#00FF00");
+        published.add(describe(sheetManager.getCurrentSheetDTO(SHEET)));
+        sheetManager.updateCell(SHEET, "A1", "10", "owner");
+        published.add(describe(sheetManager.getCurrentSheetDTO(SHEET)));
+        sheetManager.updateCell(SHEET, "B1", "7", "writer");
+        published.add(describe(sheetManager.getCurrentSheetDTO(SHEET)));
+        sheetManager.updateCell(SHEET, "C3", "x", "owner");
+        published.add(describe(sheetManager.getCurrentSheetDTO(SHEET)));
+
+        // oldest first rebuilds each from the whole versions, newest first from the one rebuilt just before
+        for (int version = 1; version <= published.size(); version++) {
+            assertEquals(published.get(version - 1), describe(sheetManager.getSheetDTOByVersion(SHEET, version)),
+                    "version " + version);
+        }
+        for (int version = published.size(); version >= 1; version--) {
+            assertEquals(published.get(version - 1), describe(sheetManager.getSheetDTOByVersion(SHEET, version)),
+                    "version " + version);
+        }
+    }
+
+    @Test
+    void tagsACompactedVersionAsItWasPublished() {
+        String publishedTag = sheetManager.getCurrentSheetSnapshot(SHEET).getTag();
+        sheetManager.updateCell(SHEET, "A1", "2", "owner");
+        sheetManager.updateCell(SHEET, "A1", "3", "owner");
+
+        SheetSnapshot compacted = sheetManager.getSheetSnapshot(SHEET, 1);
+        assertEquals(publishedTag, compacted.getTag());
+        assertEquals(1, compacted.getVersion());
+        assertEquals("1", compacted.toDTO().getCells().get("A1").getOriginalValue());
+        assertThrows(IllegalArgumentException.class, () -> sheetManager.getSheetSnapshot(SHEET, 4));
+    }
+
+    @Test
+    void refusesARetentionWindowOfOneVersion() {
+        assertThrows(IllegalArgumentException.class, () -> new SheetManager(new DTOFactoryImpl(), 1));
+    }
+
+    private void updateBackgroundColor(String cellId, String color) {
+        Coordinate coordinate = CoordinateFactory.createCoordinate(cellId);
+        sheetManager.updateCurrentSheet(SHEET, LogRecord.of(LogRecord.Type.BACKGROUND_COLOR, SHEET, cellId, color), Set.of(coordinate),
+                sheet -> sheet.getCellForUpdate(coordinate).setBackgroundColor(color));
+    }
+
+    // Everything a reader sees of a version, in a fixed order
+    private static String describe(SheetDTO sheet) {
+        StringBuilder description = new StringBuilder("version " + sheet.getVersion());
+        new TreeMap<>(sheet.getCells()).forEach((cellId, cell) -> description.append('\n').append(cellId)
+                .append(' ').append(cell.getOriginalValue()).append(' ').append(cell.getEffectiveValue())
+                .append(' ').append(cell.getVersion()).append(' ').append(cell.getChangedBy())
+                .append(' ').append(cell.getBackgroundColor()).append(' ').append(cell.getTextColor()));
+        new TreeMap<>(sheet.getRanges()).forEach((rangeName, range) -> description.append('\n').append(rangeName));
+        return description.toString();
+    }
+
+    private static String valueOf(Sheet sheet, String cellId) {
+        return sheet.getCell(CoordinateFactory.createCoordinate(cellId)).getEffectiveValue().toString();
+    }
+}
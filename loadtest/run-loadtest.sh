@@ -0,0 +1,36 @@
+#!/usr/bin/env bash
+# Runs the load test against the server module in an embedded Tomcat, or against a running server given with --url.
+#
+# Needs, besides a JDK 21:
+#   - the engine, DTO and server modules built into out/production (Build > Build Project in IntelliJ)
+#   - Gson in lib/gson, as for the server
+#   - the embedded Tomcat jars in lib/tomcat-embed: tomcat-embed-core-10.1.26.jar and tomcat-annotations-api-10.1.26.jar
+#
+# Arguments are passed on to the load test, for example:
+#   loadtest/run-loadtest.sh --users 50 --duration 120 --rows 5000 --mix updateCell=50,getSheet=50
+set -euo pipefail
+shopt -s nullglob
+
+cd "$(dirname "$0")/.."
+BIN="${JAVA_HOME:+$JAVA_HOME/bin/}"
+TOMCAT_JARS=(lib/tomcat-embed/*.jar)
+if [ ${#TOMCAT_JARS[@]} -eq 0 ]; then
+  echo "No embedded Tomcat jars found in lib/tomcat-embed." >&2
+  exit 1
+fi
+for module in engine DTO server; do
+  if [ ! -d "out/production/$module" ]; then
+    echo "out/production/$module is missing; build the project first." >&2
+    exit 1
+  fi
+done
+
+LIB_JARS=(lib/gson/*.jar lib/*.jar "${TOMCAT_JARS[@]}")
+APP_CP="out/production/engine:out/production/DTO:$(IFS=:; echo "${LIB_JARS[*]}")"
+OUT=out/production/loadtest
+
+rm -rf "$OUT"
+mkdir -p "$OUT"
+# the synthetic sheets are shared with the benchmarks module and compiled in from its sources
+"${BIN}javac" -encoding UTF-8 -d "$OUT" -cp "$APP_CP" -sourcepath benchmarks/src $(find loadtest/src -name '*.java')
+"${BIN}java" -cp "$OUT:$APP_CP" loadtest.LoadTest --serverClasses out/production/server "$@"
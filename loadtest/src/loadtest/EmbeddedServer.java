@@ -0,0 +1,69 @@
+package loadtest;
+
+import org.apache.catalina.Context;
+import org.apache.catalina.LifecycleException;
+import org.apache.catalina.WebResourceRoot;
+import org.apache.catalina.startup.Tomcat;
+import org.apache.catalina.webresources.DirResourceSet;
+import org.apache.catalina.webresources.StandardRoot;
+import org.apache.tomcat.util.scan.StandardJarScanner;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/*
+The server module run in an embedded Tomcat on localhost.
+Its compiled classes are served as the webapp's WEB-INF/classes, so its servlets are found by their annotations
+as in a deployed WAR; the engine, DTO and Gson come from the launching class path.
+ */
+public class EmbeddedServer implements Closeable {
+
+    private final Tomcat tomcat;
+    private final int port;
+
+    private EmbeddedServer(Tomcat tomcat, int port) {
+        this.tomcat = tomcat;
+        this.port = port;
+    }
+
+    // Starts the server on the given port, or on any free one if it is 0
+    public static EmbeddedServer start(Path serverClasses, Path baseDirectory, int port) throws IOException, LifecycleException {
+        if (!Files.isDirectory(serverClasses)) {
+            throw new IllegalArgumentException("No compiled server classes in " + serverClasses + "; build the project first.");
+        }
+        Path docBase = Files.createDirectories(baseDirectory.resolve("webapp"));
+
+        Tomcat tomcat = new Tomcat();
+        tomcat.setBaseDir(baseDirectory.toString());
+        tomcat.setPort(port);
+        tomcat.getConnector();
+        // the default web.xml maps JSPs, whose compiler is not on the class path; the servlets need nothing from it
+        tomcat.setAddDefaultWebXmlToWebapp(false);
+
+        Context context = tomcat.addWebapp("", docBase.toString());
+        // the launching class path holds no web fragments, so scanning it would only slow the start
+        ((StandardJarScanner) context.getJarScanner()).setScanClassPath(false);
+        WebResourceRoot resources = new StandardRoot(context);
+        resources.addPreResources(new DirResourceSet(resources, "/WEB-INF/classes", serverClasses.toAbsolutePath().toString(), "/"));
+        context.setResources(resources);
+
+        tomcat.start();
+        return new EmbeddedServer(tomcat, tomcat.getConnector().getLocalPort());
+    }
+
+    public String getBaseUrl() {
+        return "http://localhost:" + port;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            tomcat.stop();
+            tomcat.destroy();
+        } catch (LifecycleException e) {
+            throw new IOException("Failed to stop the embedded server.", e);
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package loadtest;
+
+/*
+The servlets a simulated user calls, with the share of its requests each gets by default.
+The default mix is mostly reads: polling for a new version, fetching the sheet and reading the chat,
+with about one request in five an edit.
+ */
+public enum Endpoint {
+    GET_LATEST_VERSION("/getLatestVersion", 35),
+    GET_SHEET("/getSheet", 20),
+    UPDATE_CELL("/updateCell", 20),
+    CHAT("/chat", 15),
+    SEND_CHAT("/pages/chatroom/sendChat", 5),
+    DYNAMIC_ANALYSIS("/dynamicAnalysis", 5);
+
+    private final String path;
+    private final int defaultWeight;
+
+    Endpoint(String path, int defaultWeight) {
+        this.path = path;
+        this.defaultWeight = defaultWeight;
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    public int getDefaultWeight() {
+        return defaultWeight;
+    }
+
+    // Accepts the servlet path without its slash as well as the constant's name, e.g. "updateCell" or "UPDATE_CELL"
+    public static Endpoint fromName(String name) {
+        for (Endpoint endpoint : values()) {
+            if (endpoint.name().equalsIgnoreCase(name) || endpoint.path.substring(endpoint.path.lastIndexOf('/') + 1).equalsIgnoreCase(name)) {
+                return endpoint;
+            }
+        }
+        throw new IllegalArgumentException("Unknown endpoint: " + name);
+    }
+}
@@ -0,0 +1,37 @@
+package loadtest;
+
+import benchmark.SyntheticSheets;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+
+/*
+Writes synthetic STL sheets to files, for uploading by hand or to another server.
+Usage: GenerateSheets --out <directory> [--sheets 1] [--rows 1000] [--depth 5] [--fanOut 100]
+A server only accepts sheets within its sheet.load.maxRows and sheet.load.maxColumns; a sheet has depth + 3 columns.
+ */
+public class GenerateSheets {
+
+    public static void main(String[] args) throws IOException {
+        Map<String, String> options = Options.parse(args);
+        Path directory = Path.of(Options.required(options, "out"));
+        int sheets = Options.intOption(options, "sheets", 1);
+        int rows = Options.intOption(options, "rows", LoadTest.DEFAULT_ROWS);
+        int depth = Options.intOption(options, "depth", LoadTest.DEFAULT_DEPTH);
+        int fanOut = Options.intOption(options, "fanOut", LoadTest.DEFAULT_FAN_OUT);
+
+        Files.createDirectories(directory);
+        for (int i = 1; i <= sheets; i++) {
+            String name = LoadTest.sheetName(i);
+            Path file = directory.resolve(name + ".xml");
+            try (Writer out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+                SyntheticSheets.writeXml(out, name, rows, depth, fanOut);
+            }
+            System.out.println("Wrote " + file + " (" + rows + " x " + SyntheticSheets.columns(depth) + ", " + Files.size(file) + " bytes)");
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package loadtest;
+
+import java.util.Arrays;
+
+/*
+The latencies of one endpoint as seen by one simulated user.
+Each user records into its own recorder, so recording takes no lock; the recorders of all users are merged
+once the run is over, and percentiles are read from the sorted samples, exactly.
+ */
+public class LatencyRecorder {
+
+    private long[] samples = new long[1024];
+    private int count;
+    private long errors;
+
+    public void record(long latencyNanos) {
+        if (count == samples.length) {
+            samples = Arrays.copyOf(samples, count * 2);
+        }
+        samples[count++] = latencyNanos;
+    }
+
+    public void recordError() {
+        errors++;
+    }
+
+    public void mergeFrom(LatencyRecorder other) {
+        if (count + other.count > samples.length) {
+            samples = Arrays.copyOf(samples, Math.max(samples.length * 2, count + other.count));
+        }
+        System.arraycopy(other.samples, 0, samples, count, other.count);
+        count += other.count;
+        errors += other.errors;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    public long getErrors() {
+        return errors;
+    }
+
+    // Sorts the samples, after which percentiles can be read
+    public void sort() {
+        Arrays.sort(samples, 0, count);
+    }
+
+    // The latency at or below which the given fraction of requests finished; call sort first
+    public long percentileNanos(double fraction) {
+        if (count == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(fraction * count) - 1;
+        return samples[Math.max(0, Math.min(count - 1, index))];
+    }
+
+    public long maxNanos() {
+        return count == 0 ? 0 : samples[count - 1];
+    }
+}
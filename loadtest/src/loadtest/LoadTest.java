@@ -0,0 +1,210 @@
+package loadtest;
+
+import benchmark.SyntheticSheets;
+import engine.file.FileLoader;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/*
+Drives simulated users against the server and reports throughput and latency per endpoint.
+Usage: LoadTest [--users 20] [--duration 60] [--warmup 10] [--sheets 1] [--rows 1000] [--depth 5] [--fanOut 100]
+                [--mix getLatestVersion=35,getSheet=20,updateCell=20,chat=15,sendChat=5,dynamicAnalysis=5]
+                [--thinkMillis 0] [--url http://localhost:8080/app] [--serverClasses out/production/server] [--port 0]
+Without --url the server module is started in an embedded Tomcat with a fresh data directory, and stopped afterwards.
+The owner uploads the sheets and every user is granted write permission on them before the clock starts.
+ */
+public class LoadTest {
+
+    public static final int DEFAULT_ROWS = 1000;
+    public static final int DEFAULT_DEPTH = 5;
+    public static final int DEFAULT_FAN_OUT = 100;
+    private static final String OWNER = "loadtest-owner";
+    // read by the server module when the webapp starts; the server is not on this module's class path
+    private static final String DATA_DIRECTORY_PROPERTY = "sheets.dataDirectory";
+
+    public static String sheetName(int index) {
+        return "load" + index;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = Options.parse(args);
+        int users = Options.intOption(options, "users", 20);
+        int duration = Options.intOption(options, "duration", 60);
+        int warmup = Options.intOption(options, "warmup", 10);
+        int sheets = Options.intOption(options, "sheets", 1);
+        int rows = Options.intOption(options, "rows", DEFAULT_ROWS);
+        int depth = Options.intOption(options, "depth", DEFAULT_DEPTH);
+        int fanOut = Options.intOption(options, "fanOut", DEFAULT_FAN_OUT);
+        int thinkMillis = Options.intOption(options, "thinkMillis", 0);
+        Endpoint[] schedule = schedule(options.get("mix"));
+        if (users < 1 || duration < 1 || warmup < 0 || sheets < 1) {
+            throw new IllegalArgumentException("At least one user and one sheet, and a positive duration, are required.");
+        }
+
+        EmbeddedServer server = null;
+        Path dataDirectory = null;
+        String baseUrl = options.get("url");
+        if (baseUrl == null) {
+            dataDirectory = Files.createTempDirectory("loadtest");
+            // the engine reads these when it is created, which is when the webapp starts
+            System.setProperty(FileLoader.MAX_ROWS_PROPERTY, String.valueOf(Math.max(rows, Integer.getInteger(FileLoader.MAX_ROWS_PROPERTY, 0))));
+            System.setProperty(FileLoader.MAX_COLS_PROPERTY, String.valueOf(Math.max(SyntheticSheets.columns(depth), Integer.getInteger(FileLoader.MAX_COLS_PROPERTY, 0))));
+            System.setProperty(DATA_DIRECTORY_PROPERTY, dataDirectory.resolve("data").toString());
+            server = EmbeddedServer.start(Path.of(options.getOrDefault("serverClasses", "out/production/server")),
+                    dataDirectory.resolve("tomcat"), Options.intOption(options, "port", 0));
+            baseUrl = server.getBaseUrl();
+        }
+
+        try {
+            List<String> sheetNames = new ArrayList<>();
+            List<SimulatedUser> simulatedUsers = setUp(baseUrl, users, sheets, rows, depth, fanOut, sheetNames);
+            System.out.println("Running " + users + " users against " + baseUrl + " for " + warmup + "s warm-up and " + duration + "s measured, "
+                    + sheets + " sheet(s) of " + rows + " x " + SyntheticSheets.columns(depth) + ".");
+
+            RunClock clock = new RunClock(warmup, duration);
+            for (SimulatedUser user : simulatedUsers) {
+                user.prepare(sheetNames, rows, schedule, clock, thinkMillis);
+            }
+            run(simulatedUsers);
+            report(simulatedUsers, duration);
+        } finally {
+            if (server != null) {
+                server.close();
+            }
+            if (dataDirectory != null) {
+                deleteRecursively(dataDirectory);
+            }
+        }
+    }
+
+    // Uploads the sheets as their owner and logs every user in with write permission on all of them
+    private static List<SimulatedUser> setUp(String baseUrl, int users, int sheets, int rows, int depth, int fanOut,
+                                             List<String> sheetNames) throws IOException, InterruptedException {
+        SimulatedUser owner = new SimulatedUser(baseUrl, OWNER, 0);
+        owner.login();
+        for (int i = 1; i <= sheets; i++) {
+            String name = sheetName(i);
+            owner.uploadSheet(name, SyntheticSheets.xml(name, rows, depth, fanOut).getBytes(StandardCharsets.UTF_8));
+            sheetNames.add(name);
+        }
+        // so that reading the chat from its start is answered at once rather than waiting for a line
+        owner.sendChat("load test starting");
+
+        List<SimulatedUser> simulatedUsers = new ArrayList<>();
+        for (int i = 1; i <= users; i++) {
+            SimulatedUser user = new SimulatedUser(baseUrl, "loadtest-user" + i, i);
+            user.login();
+            for (String name : sheetNames) {
+                user.requestWritePermission(name);
+                owner.approvePermission(name, user.getUsername());
+            }
+            simulatedUsers.add(user);
+        }
+        return simulatedUsers;
+    }
+
+    private static void run(List<SimulatedUser> simulatedUsers) throws InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(simulatedUsers.size());
+        try {
+            List<Future<?>> running = new ArrayList<>();
+            for (SimulatedUser user : simulatedUsers) {
+                running.add(executor.submit(user));
+            }
+            for (Future<?> future : running) {
+                try {
+                    future.get();
+                } catch (ExecutionException e) {
+                    e.getCause().printStackTrace();
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+            executor.awaitTermination(1, TimeUnit.MINUTES);
+        }
+    }
+
+    private static void report(List<SimulatedUser> simulatedUsers, int durationSeconds) {
+        Map<Endpoint, LatencyRecorder> merged = new EnumMap<>(Endpoint.class);
+        LatencyRecorder total = new LatencyRecorder();
+        for (Endpoint endpoint : Endpoint.values()) {
+            LatencyRecorder recorder = new LatencyRecorder();
+            for (SimulatedUser user : simulatedUsers) {
+                recorder.mergeFrom(user.getRecorders().get(endpoint));
+            }
+            total.mergeFrom(recorder);
+            recorder.sort();
+            merged.put(endpoint, recorder);
+        }
+        total.sort();
+
+        System.out.printf("%-26s %9s %7s %9s %9s %9s %9s %9s%n", "endpoint", "requests", "errors", "req/s", "p50 ms", "p99 ms", "p999 ms", "max ms");
+        for (Map.Entry<Endpoint, LatencyRecorder> entry : merged.entrySet()) {
+            if (entry.getValue().getCount() + entry.getValue().getErrors() > 0) {
+                printRow(entry.getKey().getPath(), entry.getValue(), durationSeconds);
+            }
+        }
+        printRow("all", total, durationSeconds);
+    }
+
+    private static void printRow(String name, LatencyRecorder recorder, int durationSeconds) {
+        System.out.printf("%-26s %9d %7d %9.1f %9.2f %9.2f %9.2f %9.2f%n", name, recorder.getCount(), recorder.getErrors(),
+                (double) recorder.getCount() / durationSeconds,
+                millis(recorder.percentileNanos(0.50)), millis(recorder.percentileNanos(0.99)),
+                millis(recorder.percentileNanos(0.999)), millis(recorder.maxNanos()));
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+
+    // Each endpoint appears in the schedule as many times as its weight, so a uniform pick follows the mix
+    private static Endpoint[] schedule(String mix) {
+        Map<Endpoint, Integer> weights = new EnumMap<>(Endpoint.class);
+        if (mix == null) {
+            for (Endpoint endpoint : Endpoint.values()) {
+                weights.put(endpoint, endpoint.getDefaultWeight());
+            }
+        } else {
+            for (String part : mix.split(",")) {
+                String[] nameAndWeight = part.trim().split("=");
+                if (nameAndWeight.length != 2) {
+                    throw new IllegalArgumentException("The mix is given as endpoint=weight pairs separated by commas. Provided: " + part);
+                }
+                weights.put(Endpoint.fromName(nameAndWeight[0].trim()), Integer.parseInt(nameAndWeight[1].trim()));
+            }
+        }
+
+        List<Endpoint> schedule = new ArrayList<>();
+        weights.forEach((endpoint, weight) -> {
+            for (int i = 0; i < weight; i++) {
+                schedule.add(endpoint);
+            }
+        });
+        if (schedule.isEmpty()) {
+            throw new IllegalArgumentException("The mix must give at least one endpoint a positive weight.");
+        }
+        return schedule.toArray(new Endpoint[0]);
+    }
+
+    private static void deleteRecursively(Path directory) throws IOException {
+        try (Stream<Path> paths = Files.walk(directory)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+}
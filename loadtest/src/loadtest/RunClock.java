@@ -0,0 +1,22 @@
+package loadtest;
+
+import java.util.concurrent.TimeUnit;
+
+// When a run's measured part starts and when the run ends, in System.nanoTime() terms
+public class RunClock {
+    private final long measureFrom;
+    private final long end;
+
+    public RunClock(long warmupSeconds, long durationSeconds) {
+        this.measureFrom = System.nanoTime() + TimeUnit.SECONDS.toNanos(warmupSeconds);
+        this.end = measureFrom + TimeUnit.SECONDS.toNanos(durationSeconds);
+    }
+
+    public long getMeasureFrom() {
+        return measureFrom;
+    }
+
+    public long getEnd() {
+        return end;
+    }
+}
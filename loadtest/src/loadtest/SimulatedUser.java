@@ -0,0 +1,188 @@
+package loadtest;
+
+import benchmark.SyntheticSheets;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.CookieManager;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.StringJoiner;
+
+/*
+One user of the server: its own HTTP client, and with it its own connection and session cookie.
+Once logged in it sends requests back to back, each to an endpoint drawn from the mix, to a sheet drawn from those
+loaded, and records how long each took until its full response was read.
+Requests that start during the warm-up are sent but not recorded.
+ */
+public class SimulatedUser implements Runnable {
+
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(60);
+
+    private final String baseUrl;
+    private final String username;
+    private final HttpClient client;
+    private final SplittableRandom random;
+    private final Map<Endpoint, LatencyRecorder> recorders = new EnumMap<>(Endpoint.class);
+    private List<String> sheetNames;
+    private int rows;
+    private Endpoint[] schedule;
+    private RunClock clock;
+    private long thinkMillis;
+
+    public SimulatedUser(String baseUrl, String username, long seed) {
+        this.baseUrl = baseUrl;
+        this.username = username;
+        this.client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .cookieHandler(new CookieManager())
+                .connectTimeout(REQUEST_TIMEOUT)
+                .build();
+        this.random = new SplittableRandom(seed);
+        for (Endpoint endpoint : Endpoint.values()) {
+            recorders.put(endpoint, new LatencyRecorder());
+        }
+    }
+
+    public String getUsername() {
+        return username;
+    }
+
+    // What to send once running: schedule holds every endpoint as many times as its weight
+    public void prepare(List<String> sheetNames, int rows, Endpoint[] schedule, RunClock clock, long thinkMillis) {
+        this.sheetNames = sheetNames;
+        this.rows = rows;
+        this.schedule = schedule;
+        this.clock = clock;
+        this.thinkMillis = thinkMillis;
+    }
+
+    public Map<Endpoint, LatencyRecorder> getRecorders() {
+        return recorders;
+    }
+
+    public void login() throws IOException, InterruptedException {
+        expectOk(get("/login?username=" + encode(username)), "log in");
+    }
+
+    public void uploadSheet(String sheetName, byte[] xml) throws IOException, InterruptedException {
+        String boundary = "loadtest" + Long.toHexString(random.nextLong());
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        body.writeBytes(("--" + boundary + "\r\n"
+                + "Content-Disposition: form-data; name=\"file\"; filename=\"" + sheetName + ".xml\"\r\n"
+                + "Content-Type: text/xml\r\n\r\n").getBytes(StandardCharsets.UTF_8));
+        body.writeBytes(xml);
+        body.writeBytes(("\r\n--" + boundary + "--\r\n").getBytes(StandardCharsets.UTF_8));
+
+        HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + "/uploadSheet"))
+                .timeout(REQUEST_TIMEOUT)
+                .header("Content-Type", "multipart/form-data; boundary=" + boundary)
+                .POST(HttpRequest.BodyPublishers.ofByteArray(body.toByteArray()))
+                .build();
+        expectOk(request, "upload " + sheetName);
+    }
+
+    public void requestWritePermission(String sheetName) throws IOException, InterruptedException {
+        expectOk(post("/permissionRequest", "sheetName", sheetName, "requesterUsername", username, "requestedPermission", "WRITER"),
+                "request permission for " + sheetName);
+    }
+
+    public void approvePermission(String sheetName, String requesterUsername) throws IOException, InterruptedException {
+        expectOk(post("/permissionResponse", "sheetName", sheetName, "requesterUsername", requesterUsername, "status", "APPROVED"),
+                "approve " + requesterUsername + " on " + sheetName);
+    }
+
+    public void sendChat(String line) throws IOException, InterruptedException {
+        expectOk(get(Endpoint.SEND_CHAT.getPath() + "?userstring=" + encode(line)), "send a chat line");
+    }
+
+    @Override
+    public void run() {
+        while (System.nanoTime() < clock.getEnd()) {
+            Endpoint endpoint = schedule[random.nextInt(schedule.length)];
+            HttpRequest request = buildRequest(endpoint);
+            long start = System.nanoTime();
+            int status;
+            try {
+                status = client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+            } catch (IOException e) {
+                status = -1;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            long latency = System.nanoTime() - start;
+
+            if (start >= clock.getMeasureFrom()) {
+                LatencyRecorder recorder = recorders.get(endpoint);
+                if (status >= 200 && status < 400) {
+                    recorder.record(latency);
+                } else {
+                    recorder.recordError();
+                }
+            }
+            if (thinkMillis > 0) {
+                try {
+                    Thread.sleep(thinkMillis);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    private HttpRequest buildRequest(Endpoint endpoint) {
+        String sheetName = sheetNames.get(random.nextInt(sheetNames.size()));
+        int row = 1 + random.nextInt(rows);
+        return switch (endpoint) {
+            case GET_LATEST_VERSION -> get(endpoint.getPath() + "?sheetName=" + encode(sheetName));
+            case GET_SHEET -> get(endpoint.getPath() + "?sheetName=" + encode(sheetName));
+            // A starts a formula chain and may be in the summed range; B is read by nothing
+            case UPDATE_CELL -> post(endpoint.getPath(), "sheetName", sheetName,
+                    "cellId", SyntheticSheets.cellId(row, 1 + random.nextInt(2)), "newValue", String.valueOf(random.nextInt(1000)));
+            // the page a user joining the chat reads; a known version of 0 is answered at once once anything was said
+            case CHAT -> get(endpoint.getPath() + "?chatversion=0");
+            case SEND_CHAT -> get(endpoint.getPath() + "?userstring=" + encode("line " + random.nextInt(1000) + " from " + username));
+            case DYNAMIC_ANALYSIS -> post(endpoint.getPath(), "sheetName", sheetName,
+                    "cellValues", "{\"" + SyntheticSheets.cellId(row, 1) + "\":" + random.nextInt(1000) + "}");
+        };
+    }
+
+    private HttpRequest get(String pathAndQuery) {
+        return HttpRequest.newBuilder(URI.create(baseUrl + pathAndQuery)).timeout(REQUEST_TIMEOUT).GET().build();
+    }
+
+    // A form post of the given name and value pairs
+    private HttpRequest post(String path, String... namesAndValues) {
+        StringJoiner form = new StringJoiner("&");
+        for (int i = 0; i < namesAndValues.length; i += 2) {
+            form.add(encode(namesAndValues[i]) + "=" + encode(namesAndValues[i + 1]));
+        }
+        return HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .timeout(REQUEST_TIMEOUT)
+                .header("Content-Type", "application/x-www-form-urlencoded")
+                .POST(HttpRequest.BodyPublishers.ofString(form.toString()))
+                .build();
+    }
+
+    private void expectOk(HttpRequest request, String action) throws IOException, InterruptedException {
+        HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() != 200) {
+            throw new IllegalStateException(username + " failed to " + action + ": " + response.statusCode() + " " + response.body());
+        }
+    }
+
+    private static String encode(String value) {
+        return URLEncoder.encode(value, StandardCharsets.UTF_8);
+    }
+}
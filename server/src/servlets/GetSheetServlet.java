@@ -1,13 +1,13 @@
 package servlets;
 
 import com.google.gson.Gson;
-import dto.api.SheetDTO;
 import engine.api.Engine;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.annotation.WebServlet;
 import jakarta.servlet.http.HttpServlet;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
+import utils.ServletUtils;
 
 import java.io.IOException;
 import java.io.PrintWriter;
@@ -27,24 +27,16 @@ public class GetSheetServlet extends HttpServlet {
     protected void doGet(HttpServletRequest request, HttpServletResponse response) throws ServletException, IOException {
         String sheetName = request.getParameter("sheetName");
 
-        response.setContentType("application/json");
-        PrintWriter out = response.getWriter();
-
         try {
             if (sheetName == null || sheetName.isEmpty()) {
                 throw new IllegalArgumentException("Sheet name is required");
             }
 
-            SheetDTO sheetDTO = engine.getCurrentSheetDTO(sheetName);
-            if (sheetDTO == null) {
-                throw new IllegalArgumentException("Sheet with name '" + sheetName + "' not found.");
-            }
-
-            String jsonResponse = new Gson().toJson(sheetDTO);
-            out.print(jsonResponse);
-            out.flush();
+            ServletUtils.writeSheetSnapshot(request, response, engine.getCurrentSheetSnapshot(sheetName));
         } catch (Exception e) {
             response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+            response.setContentType("application/json");
+            PrintWriter out = response.getWriter();
             out.print(new Gson().toJson("Error retrieving sheet: " + e.getMessage()));
             out.flush();
         }
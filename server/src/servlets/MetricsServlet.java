@@ -0,0 +1,24 @@
+package servlets;
+
+import engine.metrics.EngineMetrics;
+import jakarta.servlet.annotation.WebServlet;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import utils.ServletUtils;
+
+import java.io.IOException;
+
+// The engine's metrics in the Prometheus text format, for scraping
+@WebServlet("/metrics")
+public class MetricsServlet extends HttpServlet {
+    @Override
+    protected void doGet(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        // the engine registers its gauges when it is created
+        ServletUtils.getEngine(getServletContext());
+
+        response.setContentType("text/plain; version=0.0.4; charset=utf-8");
+        response.setHeader("Cache-Control", "no-cache");
+        response.getWriter().write(EngineMetrics.REGISTRY.scrape());
+    }
+}
@@ -1,6 +1,7 @@
 package servlets.chat;
 
 import chat.ChatManager;
+import chat.ChatPage;
 import chat.SingleChatEntry;
 import com.google.gson.Gson;
 import jakarta.servlet.annotation.WebServlet;
@@ -8,21 +9,30 @@ import jakarta.servlet.http.HttpServlet;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import utils.Constants;
+import utils.LongPollRequests;
 import utils.ServletUtils;
 import utils.SessionUtils;
 
 import java.io.IOException;
-import java.io.PrintWriter;
 import java.util.List;
 
-@WebServlet("/chat")
+// Answers with the chat lines after the client's version as soon as there are any, holding the request until then
+@WebServlet(value = "/chat", asyncSupported = true)
 public class ChatServlet extends HttpServlet {
 
+    private final Gson gson = new Gson();
+    private LongPollRequests chatRequests;
+
+    @Override
+    public void init() {
+        ChatManager chatManager = ServletUtils.getChatManager(getServletContext());
+        chatRequests = new LongPollRequests(chatManager::getVersion, this::writeChatEntries);
+        chatManager.addChatListener(chatRequests::wake);
+    }
+
     @Override
     protected void doGet(HttpServletRequest request, HttpServletResponse response) throws IOException {
 
-        response.setContentType("application/json");
-        ChatManager chatManager = ServletUtils.getChatManager(getServletContext());
         String username = SessionUtils.getUsername(request);
         if (username == null) {
             response.setStatus(HttpServletResponse.SC_UNAUTHORIZED);
@@ -30,42 +40,30 @@ public class ChatServlet extends HttpServlet {
         }
 
         // Validate chat version from the user
-        int chatVersion = ServletUtils.getIntParameter(request, Constants.CHAT_VERSION_PARAMETER);
-        if (chatVersion == Constants.INT_PARAMETER_ERROR) {
+        long chatVersion = ServletUtils.getLongParameter(request, Constants.CHAT_VERSION_PARAMETER);
+        if (chatVersion == Constants.LONG_PARAMETER_ERROR) {
             response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
             return;
         }
 
-        // Fetch chat entries and version
-        int chatManagerVersion;
-        List<SingleChatEntry> chatEntries;
-        synchronized (getServletContext()) {
-            chatManagerVersion = chatManager.getVersion();
-            chatEntries = chatManager.getChatEntries(chatVersion);
-        }
+        chatRequests.awaitVersionAfter(request, response, chatVersion);
+    }
 
-        // Create the response JSON
-        ChatAndVersion cav = new ChatAndVersion(chatEntries, chatManagerVersion);
-        Gson gson = new Gson();
-        String jsonResponse = gson.toJson(cav);
-        logServerMessage("Server Chat version: " + chatManagerVersion + ", User '" + username + "' Chat version: " + chatVersion);
-        logServerMessage(jsonResponse);
+    private void writeChatEntries(HttpServletResponse response, long chatVersion) throws IOException {
+        ChatManager chatManager = ServletUtils.getChatManager(getServletContext());
 
-        try (PrintWriter out = response.getWriter()) {
-            out.print(jsonResponse);
-            out.flush();
-        }
-    }
+        // a client that is further behind gets the rest on its next request, which is answered at once
+        ChatPage chatPage = chatManager.getChatEntriesSince(chatVersion, Constants.MAX_CHAT_LINES_PER_RESPONSE);
 
-    private void logServerMessage(String message) {
-        System.out.println(message);
+        response.setContentType("application/json");
+        response.getWriter().print(gson.toJson(new ChatAndVersion(chatPage.getEntries(), chatPage.getNextSequence())));
     }
 
     private static class ChatAndVersion {
         private final List<SingleChatEntry> entries;
-        private final int version;
+        private final long version;
 
-        public ChatAndVersion(List<SingleChatEntry> entries, int version) {
+        public ChatAndVersion(List<SingleChatEntry> entries, long version) {
             this.entries = entries;
             this.version = version;
         }
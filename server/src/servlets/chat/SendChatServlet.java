@@ -18,19 +18,14 @@ public class SendChatServlet extends HttpServlet {
         String username = SessionUtils.getUsername(request);
         if (username == null) {
             response.setStatus(HttpServletResponse.SC_UNAUTHORIZED);
+            return;
         }
 
+        // adding the line wakes up every client waiting on /chat
         String userChatString = request.getParameter(Constants.CHAT_PARAMETER);
         if (userChatString != null && !userChatString.isEmpty()) {
-            logServerMessage("Adding chat string from " + username + ": " + userChatString);
-            synchronized (getServletContext()) {
-                chatManager.addChatString(userChatString, username);
-            }
+            chatManager.addChatString(userChatString, username);
         }
     }
 
-    private void logServerMessage(String message) {
-        System.out.println(message);
-    }
-
 }
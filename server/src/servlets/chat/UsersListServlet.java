@@ -6,25 +6,60 @@ import jakarta.servlet.http.HttpServlet;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import user.UserManager;
+import utils.Constants;
+import utils.LongPollRequests;
 import utils.ServletUtils;
 
 import java.io.IOException;
-import java.io.PrintWriter;
 import java.util.Set;
 
-@WebServlet("/userslist")
+// Answers with the users once they differ from the version the client has, holding the request until then
+@WebServlet(value = "/userslist", asyncSupported = true)
 public class UsersListServlet extends HttpServlet {
 
+    private final Gson gson = new Gson();
+    private LongPollRequests usersListRequests;
+
+    @Override
+    public void init() {
+        UserManager userManager = ServletUtils.getUserManager(getServletContext());
+        usersListRequests = new LongPollRequests(userManager::getVersion, this::writeUsers);
+        userManager.addUsersListener(usersListRequests::wake);
+    }
+
+    @Override
     protected void doGet(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        int usersVersion = ServletUtils.getIntParameter(request, Constants.USERS_VERSION_PARAMETER);
+        if (usersVersion == Constants.INT_PARAMETER_ERROR) {
+            response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+            return;
+        }
+
+        usersListRequests.awaitVersionAfter(request, response, usersVersion);
+    }
+
+    private void writeUsers(HttpServletResponse response, long usersVersion) throws IOException {
+        UserManager userManager = ServletUtils.getUserManager(getServletContext());
+
+        int userManagerVersion;
+        Set<String> users;
+        synchronized (userManager) {
+            userManagerVersion = userManager.getVersion();
+            users = userManager.getUsers();
+        }
+
         // returning JSON objects, not HTML
         response.setContentType("application/json");
-        try (PrintWriter out = response.getWriter()) {
-            Gson gson = new Gson();
-            UserManager userManager = ServletUtils.getUserManager(getServletContext());
-            Set<String> usersList = userManager.getUsers();
-            String json = gson.toJson(usersList);
-            out.println(json);
-            out.flush();
+        response.getWriter().print(gson.toJson(new UsersAndVersion(users, userManagerVersion)));
+    }
+
+    private static class UsersAndVersion {
+        private final Set<String> users;
+        private final int version;
+
+        public UsersAndVersion(Set<String> users, int version) {
+            this.users = users;
+            this.version = version;
         }
     }
 }
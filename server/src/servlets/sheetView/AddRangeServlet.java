@@ -1,13 +1,12 @@
 package servlets.sheetView;
 
-import com.google.gson.Gson;
-import dto.api.SheetDTO;
 import engine.api.Engine;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.annotation.WebServlet;
 import jakarta.servlet.http.HttpServlet;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
+import utils.ServletUtils;
 
 import java.io.IOException;
 import java.io.PrintWriter;
@@ -29,17 +28,13 @@ public class AddRangeServlet extends HttpServlet {
         String rangeName = request.getParameter("rangeName");
         String range = request.getParameter("range");
 
-        response.setContentType("application/json");
-        PrintWriter out = response.getWriter();
-
         try {
             engine.addRangeToSheet(sheetName, rangeName, range);
-            SheetDTO updatedSheetDTO = engine.getCurrentSheetDTO(sheetName);
-            String jsonResponse = new Gson().toJson(updatedSheetDTO);
-            out.print(jsonResponse);
-            out.flush();
+            ServletUtils.writeSheetSnapshot(request, response, engine.getCurrentSheetSnapshot(sheetName));
         } catch (Exception e) {
             response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+            response.setContentType("application/json");
+            PrintWriter out = response.getWriter();
             out.print("Error adding range: " + e.getMessage());
             out.flush();
         }
@@ -1,12 +1,11 @@
 package servlets.sheetView;
-import com.google.gson.Gson;
-import dto.api.SheetDTO;
 import engine.api.Engine;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.annotation.WebServlet;
 import jakarta.servlet.http.HttpServlet;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
+import utils.ServletUtils;
 
 import java.io.IOException;
 import java.io.PrintWriter;
@@ -26,18 +25,14 @@ public class DeleteRangeServlet extends HttpServlet {
         String sheetName = request.getParameter("sheetName");
         String rangeName = request.getParameter("rangeName");
 
-        response.setContentType("application/json; charset=UTF-8");
-        PrintWriter out = response.getWriter();
-
         try {
             engine.deleteRangeFromSheet(sheetName, rangeName);
-            SheetDTO updatedSheetDTO = engine.getCurrentSheetDTO(sheetName);
-            String jsonResponse = new Gson().toJson(updatedSheetDTO);
-            out.print(jsonResponse);
-            out.flush();
+            ServletUtils.writeSheetSnapshot(request, response, engine.getCurrentSheetSnapshot(sheetName));
         } catch (Exception e) {
             e.printStackTrace();  // To log the error
             response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+            response.setContentType("application/json; charset=UTF-8");
+            PrintWriter out = response.getWriter();
             out.print("error:" + e.getMessage());
             out.flush();
         }
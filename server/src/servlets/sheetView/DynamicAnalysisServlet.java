@@ -32,6 +32,7 @@ public class DynamicAnalysisServlet extends HttpServlet {
             String sheetJson = gson.toJson(temporarySheetDTO);
             response.setContentType("application/json");
             response.getWriter().write(sheetJson);
+            ServletUtils.recordResponseBytes(request, sheetJson);
         } catch (IllegalArgumentException e) {
             response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
             response.getWriter().write(e.getMessage());
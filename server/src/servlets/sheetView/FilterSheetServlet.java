@@ -8,6 +8,7 @@ import jakarta.servlet.annotation.WebServlet;
 import jakarta.servlet.http.HttpServlet;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
+import utils.ServletUtils;
 
 import java.io.IOException;
 import java.io.PrintWriter;
@@ -43,6 +44,7 @@ public class FilterSheetServlet extends HttpServlet {
 
             String jsonResponse = new Gson().toJson(filteredSheetDTO);
             out.print(jsonResponse);
+            ServletUtils.recordResponseBytes(request, jsonResponse);
             out.flush();
         } catch (Exception e) {
             response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
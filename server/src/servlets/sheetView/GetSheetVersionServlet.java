@@ -1,13 +1,13 @@
 package servlets.sheetView;
 
 import com.google.gson.Gson;
-import dto.api.SheetDTO;
 import engine.api.Engine;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.annotation.WebServlet;
 import jakarta.servlet.http.HttpServlet;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
+import utils.ServletUtils;
 
 import java.io.IOException;
 import java.io.PrintWriter;
@@ -27,17 +27,13 @@ public class GetSheetVersionServlet extends HttpServlet {
         String sheetName = request.getParameter("sheetName");
         String version = request.getParameter("version");
 
-        response.setContentType("application/json");
-        PrintWriter out = response.getWriter();
-
         try {
             int versionNumber = Integer.parseInt(version);
-            SheetDTO sheetDTO = engine.getSheetDTOByVersion(sheetName, versionNumber);
-            String jsonResponse = new Gson().toJson(sheetDTO);
-            out.print(jsonResponse);
-            out.flush();
+            ServletUtils.writeSheetSnapshot(request, response, engine.getSheetSnapshot(sheetName, versionNumber));
         } catch (Exception e) {
             response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+            response.setContentType("application/json");
+            PrintWriter out = response.getWriter();
             out.print(new Gson().toJson("Error retrieving sheet version: " + e.getMessage()));
             out.flush();
         }
@@ -26,6 +26,7 @@ public class SingleDynamicAnalysisServlet extends HttpServlet {
             String sheetJson = new Gson().toJson(temporarySheetDTO);
             response.setContentType("application/json");
             response.getWriter().write(sheetJson);
+            ServletUtils.recordResponseBytes(request, sheetJson);
         } catch (Exception e) {
             response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
             response.getWriter().write("Error: " + e.getMessage());
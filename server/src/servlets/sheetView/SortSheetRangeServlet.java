@@ -8,6 +8,7 @@ import jakarta.servlet.annotation.WebServlet;
 import jakarta.servlet.http.HttpServlet;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
+import utils.ServletUtils;
 
 import java.io.IOException;
 import java.io.PrintWriter;
@@ -50,6 +51,7 @@ public class SortSheetRangeServlet extends HttpServlet {
             // Send the sorted sheet as a response
             String jsonResponse = new Gson().toJson(sortedSheetDTO);
             out.print(jsonResponse);
+            ServletUtils.recordResponseBytes(request, jsonResponse);
             out.flush();
 
         } catch (Exception e) {
@@ -1,13 +1,14 @@
 package servlets.sheetView;
 
 import com.google.gson.Gson;
-import dto.api.SheetDTO;
+import dto.api.SheetDeltaDTO;
 import engine.api.Engine;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.annotation.WebServlet;
 import jakarta.servlet.http.HttpServlet;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
+import utils.ServletUtils;
 import utils.SessionUtils;
 
 import java.io.IOException;
@@ -28,10 +29,11 @@ public class UpdateCellServlet extends HttpServlet {
         PrintWriter out = response.getWriter();
         Engine engine = (Engine) getServletContext().getAttribute("engine");
         try {
-            engine.updateCell(sheetName, cellId, newValue, userName);
-            SheetDTO updatedSheetDTO = engine.getCurrentSheetDTO(sheetName);
-            String jsonResponse = new Gson().toJson(updatedSheetDTO);
+            // only the cells touched by this edit are sent; the client applies them to its copy of the sheet
+            SheetDeltaDTO sheetDelta = engine.updateCell(sheetName, cellId, newValue, userName);
+            String jsonResponse = new Gson().toJson(sheetDelta);
             out.print(jsonResponse);
+            ServletUtils.recordResponseBytes(request, jsonResponse);
             out.flush();
         } catch (Exception e) {
             response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
@@ -0,0 +1,35 @@
+package servlets.sheetView;
+
+import jakarta.servlet.annotation.WebServlet;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import utils.ServletUtils;
+
+import java.io.IOException;
+
+import static utils.Constants.INT_PARAMETER_ERROR;
+import static utils.Constants.KNOWN_VERSION_PARAMETER;
+
+// Long-poll for the next version of a sheet: answers with the latest version once it is newer than knownVersion
+@WebServlet(value = "/waitForVersion", asyncSupported = true)
+public class WaitForVersionServlet extends HttpServlet {
+    @Override
+    protected void doGet(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        String sheetName = request.getParameter("sheetName");
+        int knownVersion = ServletUtils.getIntParameter(request, KNOWN_VERSION_PARAMETER);
+
+        if (sheetName == null || knownVersion == INT_PARAMETER_ERROR) {
+            response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+            return;
+        }
+
+        try {
+            ServletUtils.getSheetVersionNotifier(getServletContext()).awaitVersionAfter(request, response, sheetName, knownVersion);
+        } catch (IllegalArgumentException e) {
+            response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+            response.setContentType("text/plain");
+            response.getWriter().write(e.getMessage());
+        }
+    }
+}
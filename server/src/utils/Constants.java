@@ -5,7 +5,14 @@ public class Constants {
     public static final String USER_MANAGER_ATTRIBUTE_NAME = "userManager";
     public static final String ENGINE_ATTRIBUTE_NAME = "engine";
     public static final int INT_PARAMETER_ERROR = Integer.MIN_VALUE;
+    public static final long LONG_PARAMETER_ERROR = Long.MIN_VALUE;
     public static final String CHAT_VERSION_PARAMETER = "chatversion";
     public static final String CHAT_PARAMETER = "userstring";
+    public static final int MAX_CHAT_LINES_PER_RESPONSE = 100;
+    public static final String USERS_VERSION_PARAMETER = "usersversion";
+    public static final String KNOWN_VERSION_PARAMETER = "knownVersion";
+    // where the engine keeps its write-ahead log; set with -Dsheets.dataDirectory=...
+    public static final String DATA_DIRECTORY_PROPERTY = "sheets.dataDirectory";
+    public static final String DEFAULT_DATA_DIRECTORY = System.getProperty("user.home") + "/.sheets-server";
 
 }
@@ -0,0 +1,18 @@
+package utils;
+
+import jakarta.servlet.ServletContextEvent;
+import jakarta.servlet.ServletContextListener;
+import jakarta.servlet.annotation.WebListener;
+
+/*
+Closes the engine when the application stops, so that the engine of a redeployed application is the only one
+writing to the data directory.
+ */
+@WebListener
+public class EngineContextListener implements ServletContextListener {
+
+    @Override
+    public void contextDestroyed(ServletContextEvent event) {
+        ServletUtils.closeEngine(event.getServletContext());
+    }
+}
@@ -0,0 +1,98 @@
+package utils;
+
+import jakarta.servlet.AsyncContext;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+
+/*
+Long-poll requests waiting for something versioned (the chat, the users list, a sheet) to get past the version the client has.
+A waiting request holds no thread: it is parked as an AsyncContext and answered as soon as wake() is called with a newer
+version, or when its timeout ends, after which the client simply asks again. Nothing is sent while nothing changes.
+Whoever removes a request from the waiting map is the only one that answers it.
+ */
+public class LongPollRequests {
+
+    public static final long WAIT_TIMEOUT_MILLIS = 25_000;
+
+    // Writes everything after knownVersion; called at most once per request
+    @FunctionalInterface
+    public interface AnswerWriter {
+        void write(HttpServletResponse response, long knownVersion) throws IOException;
+    }
+
+    private final LongSupplier currentVersion;
+    private final AnswerWriter answerWriter;
+    // each parked request with the version its client already has
+    private final Map<AsyncContext, Long> waitingRequests = new ConcurrentHashMap<>();
+
+    public LongPollRequests(LongSupplier currentVersion, AnswerWriter answerWriter) {
+        this.currentVersion = currentVersion;
+        this.answerWriter = answerWriter;
+    }
+
+    // Answers at once if the version is already past knownVersion, otherwise parks the request until it is
+    public void awaitVersionAfter(HttpServletRequest request, HttpServletResponse response, long knownVersion) throws IOException {
+        if (currentVersion.getAsLong() != knownVersion) {
+            answerWriter.write(response, knownVersion);
+            return;
+        }
+
+        AsyncContext asyncContext = request.startAsync();
+        asyncContext.setTimeout(WAIT_TIMEOUT_MILLIS);
+        asyncContext.addListener(new AsyncListener() {
+            @Override
+            public void onTimeout(AsyncEvent event) {
+                if (waitingRequests.remove(asyncContext) != null) {
+                    answer(asyncContext, knownVersion);
+                }
+            }
+
+            @Override
+            public void onError(AsyncEvent event) {
+                waitingRequests.remove(asyncContext);
+            }
+
+            @Override
+            public void onComplete(AsyncEvent event) {
+                waitingRequests.remove(asyncContext);
+            }
+
+            @Override
+            public void onStartAsync(AsyncEvent event) {
+            }
+        });
+        waitingRequests.put(asyncContext, knownVersion);
+
+        // a change made between the first check and the registration would otherwise be missed
+        if (currentVersion.getAsLong() != knownVersion && waitingRequests.remove(asyncContext) != null) {
+            answer(asyncContext, knownVersion);
+        }
+    }
+
+    // Answers every parked request that is behind the given version
+    public void wake(long version) {
+        for (Map.Entry<AsyncContext, Long> waiting : waitingRequests.entrySet()) {
+            long knownVersion = waiting.getValue();
+            if (knownVersion != version && waitingRequests.remove(waiting.getKey(), knownVersion)) {
+                answer(waiting.getKey(), knownVersion);
+            }
+        }
+    }
+
+    private void answer(AsyncContext asyncContext, long knownVersion) {
+        try {
+            answerWriter.write((HttpServletResponse) asyncContext.getResponse(), knownVersion);
+        } catch (IOException | IllegalStateException e) {
+            // the client has gone away; it will ask again when it comes back
+        } finally {
+            asyncContext.complete();
+        }
+    }
+}
@@ -3,21 +3,34 @@ package utils;
 
 import chat.ChatManager;
 import engine.api.Engine;
+import engine.api.SheetSnapshot;
 import engine.impl.EngineImpl;
+import engine.metrics.EngineMetrics;
 import jakarta.servlet.ServletContext;
 import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import user.UserManager;
 
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
 import static utils.Constants.INT_PARAMETER_ERROR;
+import static utils.Constants.LONG_PARAMETER_ERROR;
 
 public class ServletUtils {
     private static final Object chatManagerLock = new Object();
     private static final String CHAT_MANAGER_ATTRIBUTE_NAME = "chatManager";
     private static final String USER_MANAGER_ATTRIBUTE_NAME = "userManager";
     public static final String ENGINE_ATTRIBUTE_NAME = "engine";
+    private static final String SHEET_JSON_CACHE_ATTRIBUTE_NAME = "sheetJsonCache";
+    private static final String SHEET_VERSION_NOTIFIER_ATTRIBUTE_NAME = "sheetVersionNotifier";
 
     private static final Object userManagerLock = new Object();
     private static final Object engineLock = new Object();
+    private static final Object sheetJsonCacheLock = new Object();
+    private static final Object sheetVersionNotifierLock = new Object();
 
     // Retrieves the UserManager instance from the servlet context, creating it if it doesn't exist
     public static UserManager getUserManager(ServletContext servletContext) {
@@ -29,16 +42,37 @@ public class ServletUtils {
         return (UserManager) servletContext.getAttribute(USER_MANAGER_ATTRIBUTE_NAME);
     }
 
-    // Retrieves the Engine instance from the servlet context, creating it if it doesn't exist
+    // Retrieves the Engine instance from the servlet context, creating it from its data directory if it doesn't exist
     public static Engine getEngine(ServletContext servletContext) {
         synchronized (engineLock) {
             if (servletContext.getAttribute(ENGINE_ATTRIBUTE_NAME) == null) {
-                servletContext.setAttribute(ENGINE_ATTRIBUTE_NAME, new EngineImpl());
+                Path dataDirectory = Paths.get(System.getProperty(Constants.DATA_DIRECTORY_PROPERTY, Constants.DEFAULT_DATA_DIRECTORY));
+                try {
+                    EngineImpl engine = EngineImpl.open(dataDirectory);
+                    engine.registerGauges(EngineMetrics.REGISTRY);
+                    servletContext.setAttribute(ENGINE_ATTRIBUTE_NAME, engine);
+                } catch (IOException e) {
+                    throw new IllegalStateException("Failed to open the data directory " + dataDirectory.toAbsolutePath() + ".", e);
+                }
             }
         }
         return (Engine) servletContext.getAttribute(ENGINE_ATTRIBUTE_NAME);
     }
 
+    // Closes the engine if one was created, writing its last snapshot and releasing its data directory
+    public static void closeEngine(ServletContext servletContext) {
+        synchronized (engineLock) {
+            if (servletContext.getAttribute(ENGINE_ATTRIBUTE_NAME) instanceof Closeable engine) {
+                try {
+                    engine.close();
+                } catch (IOException e) {
+                    // the log holds every change the last snapshot missed, so the next start loses nothing
+                    e.printStackTrace();
+                }
+            }
+        }
+    }
+
     public static ChatManager getChatManager(ServletContext servletContext) {
         synchronized (chatManagerLock) {
             if (servletContext.getAttribute(CHAT_MANAGER_ATTRIBUTE_NAME) == null) {
@@ -47,6 +81,93 @@ public class ServletUtils {
         }
         return (ChatManager) servletContext.getAttribute(CHAT_MANAGER_ATTRIBUTE_NAME);
     }
+    public static SheetJsonCache getSheetJsonCache(ServletContext servletContext) {
+        synchronized (sheetJsonCacheLock) {
+            if (servletContext.getAttribute(SHEET_JSON_CACHE_ATTRIBUTE_NAME) == null) {
+                servletContext.setAttribute(SHEET_JSON_CACHE_ATTRIBUTE_NAME, new SheetJsonCache(SheetJsonCache.DEFAULT_MAX_BYTES));
+            }
+        }
+        return (SheetJsonCache) servletContext.getAttribute(SHEET_JSON_CACHE_ATTRIBUTE_NAME);
+    }
+
+    // Retrieves the SheetVersionNotifier, creating it and subscribing it to the engine's new versions if it doesn't exist
+    public static SheetVersionNotifier getSheetVersionNotifier(ServletContext servletContext) {
+        synchronized (sheetVersionNotifierLock) {
+            if (servletContext.getAttribute(SHEET_VERSION_NOTIFIER_ATTRIBUTE_NAME) == null) {
+                Engine engine = getEngine(servletContext);
+                SheetVersionNotifier notifier = new SheetVersionNotifier(engine);
+                engine.addVersionListener(notifier);
+                servletContext.setAttribute(SHEET_VERSION_NOTIFIER_ATTRIBUTE_NAME, notifier);
+            }
+        }
+        return (SheetVersionNotifier) servletContext.getAttribute(SHEET_VERSION_NOTIFIER_ATTRIBUTE_NAME);
+    }
+
+    // Writes a sheet snapshot as JSON with its ETag, or only 304 when the client already holds that snapshot
+    public static void writeSheetSnapshot(HttpServletRequest request, HttpServletResponse response, SheetSnapshot snapshot) throws IOException {
+        String eTag = "\"" + snapshot.getTag() + "\"";
+        response.setHeader("ETag", eTag);
+        // clients may keep the sheet but must check it is still current before using it
+        response.setHeader("Cache-Control", "no-cache");
+
+        if (matchesETag(request.getHeader("If-None-Match"), eTag)) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+
+        byte[] json = getSheetJsonCache(request.getServletContext()).getJson(snapshot);
+        response.setContentType("application/json");
+        response.setCharacterEncoding("UTF-8");
+        response.setContentLength(json.length);
+        response.getOutputStream().write(json);
+        recordResponseBytes(request, json.length);
+    }
+
+    // Records the size of a response's serialized JSON under the servlet that sent it
+    public static void recordResponseBytes(HttpServletRequest request, long bytes) {
+        EngineMetrics.responseBytes(request.getServletPath()).observe(bytes);
+    }
+
+    // Records the size of a response's JSON as it is written in UTF-8
+    public static void recordResponseBytes(HttpServletRequest request, String json) {
+        recordResponseBytes(request, utf8Length(json));
+    }
+
+    // Bytes the text takes in UTF-8, counted without encoding it
+    private static long utf8Length(String text) {
+        long length = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c < 0x80) {
+                length++;
+            } else if (c < 0x800) {
+                length += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < text.length() && Character.isLowSurrogate(text.charAt(i + 1))) {
+                length += 4;
+                i++;
+            } else {
+                length += 3;
+            }
+        }
+        return length;
+    }
+
+    private static boolean matchesETag(String ifNoneMatch, String eTag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String trimmed = candidate.trim();
+            if (trimmed.startsWith("W/")) {
+                trimmed = trimmed.substring(2);
+            }
+            if (trimmed.equals("*") || trimmed.equals(eTag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     public static int getIntParameter(HttpServletRequest request, String name) {
         String value = request.getParameter(name);
         if (value != null) {
@@ -57,4 +178,15 @@ public class ServletUtils {
         }
         return INT_PARAMETER_ERROR;
     }
+
+    public static long getLongParameter(HttpServletRequest request, String name) {
+        String value = request.getParameter(name);
+        if (value != null) {
+            try {
+                return Long.parseLong(value);
+            } catch (NumberFormatException numberFormatException) {
+            }
+        }
+        return LONG_PARAMETER_ERROR;
+    }
 }
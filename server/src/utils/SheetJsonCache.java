@@ -0,0 +1,84 @@
+package utils;
+
+import com.google.gson.Gson;
+import engine.api.SheetSnapshot;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+
+/*
+Serialized JSON of sheet snapshots, kept while they fit in a fixed number of bytes, least recently used out first.
+A snapshot never changes once published, so its bytes are made once and served to every request for it.
+When several requests miss on the same snapshot together, only the first one serializes it and the rest wait for it.
+ */
+public class SheetJsonCache {
+
+    public static final long DEFAULT_MAX_BYTES = 64L * 1024 * 1024;
+
+    private final long maxBytes;
+    private final Gson gson = new Gson();
+    // guarded by this
+    private final Map<String, byte[]> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long totalBytes;
+    private final Map<String, CompletableFuture<byte[]>> inProgress = new ConcurrentHashMap<>();
+
+    public SheetJsonCache(long maxBytes) {
+        if (maxBytes < 0) {
+            throw new IllegalArgumentException("Cache size cannot be negative.");
+        }
+        this.maxBytes = maxBytes;
+    }
+
+    public byte[] getJson(SheetSnapshot snapshot) {
+        String key = snapshot.getSheetName() + "/" + snapshot.getTag();
+        byte[] json = lookup(key);
+        if (json != null) {
+            return json;
+        }
+
+        CompletableFuture<byte[]> serialization = new CompletableFuture<>();
+        CompletableFuture<byte[]> running = inProgress.putIfAbsent(key, serialization);
+        if (running != null) {
+            try {
+                return running.join();
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof RuntimeException cause ? cause : e;
+            }
+        }
+
+        try {
+            json = gson.toJson(snapshot.toDTO()).getBytes(StandardCharsets.UTF_8);
+            store(key, json);
+            serialization.complete(json);
+            return json;
+        } catch (RuntimeException e) {
+            serialization.completeExceptionally(e);
+            throw e;
+        } finally {
+            inProgress.remove(key);
+        }
+    }
+
+    private synchronized byte[] lookup(String key) {
+        return entries.get(key);
+    }
+
+    private synchronized void store(String key, byte[] json) {
+        if (json.length > maxBytes) {
+            return;
+        }
+        byte[] replaced = entries.put(key, json);
+        totalBytes += json.length - (replaced != null ? replaced.length : 0);
+
+        Iterator<byte[]> leastRecentlyUsed = entries.values().iterator();
+        while (totalBytes > maxBytes) {
+            totalBytes -= leastRecentlyUsed.next().length;
+            leastRecentlyUsed.remove();
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package utils;
+
+import engine.api.Engine;
+import engine.api.SheetVersionListener;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Long-poll requests waiting for a sheet to get past the version the client already has, one LongPollRequests per sheet
+public class SheetVersionNotifier implements SheetVersionListener {
+
+    private final Engine engine;
+    private final Map<String, LongPollRequests> sheetRequests = new ConcurrentHashMap<>();
+
+    public SheetVersionNotifier(Engine engine) {
+        this.engine = engine;
+    }
+
+    // Answers with the latest version at once if it is not knownVersion, otherwise parks the request until it changes
+    public void awaitVersionAfter(HttpServletRequest request, HttpServletResponse response, String sheetName, int knownVersion) throws IOException {
+        // an unknown sheet is refused before anything is kept for it
+        engine.getLatestVersion(sheetName);
+        sheetRequests.computeIfAbsent(sheetName, this::createRequests).awaitVersionAfter(request, response, knownVersion);
+    }
+
+    @Override
+    public void onNewVersion(String sheetName, int version) {
+        LongPollRequests requests = sheetRequests.get(sheetName);
+        if (requests != null) {
+            requests.wake(version);
+        }
+    }
+
+    private LongPollRequests createRequests(String sheetName) {
+        return new LongPollRequests(() -> engine.getLatestVersion(sheetName),
+                (response, knownVersion) -> writeVersion(response, engine.getLatestVersion(sheetName)));
+    }
+
+    private static void writeVersion(HttpServletResponse response, int version) throws IOException {
+        response.setContentType("text/plain");
+        response.getWriter().write(String.valueOf(version));
+    }
+}